@@ -5,6 +5,7 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import com.example.AdoptaFacil.Entity.Role;
 import com.example.AdoptaFacil.Entity.Person;
 import com.example.AdoptaFacil.Repository.RoleRepository;
@@ -12,6 +13,7 @@ import com.example.AdoptaFacil.Repository.PersonRepository;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 @SpringBootApplication
+@EnableScheduling
 public class AdoptaFacilApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,275 @@
+package com.example.AdoptaFacil.Cache;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Caché en memoria acotada por tamaño (LRU) y por tiempo de vida (TTL)
+ *
+ * - Al superar el tamaño máximo se expulsa la entrada usada hace más tiempo
+ * - Las entradas vencidas se descartan al leerlas
+ * - Lleva contadores de aciertos, fallos, expulsiones e invalidaciones
+ * - Puede deshabilitarse en caliente (todas las lecturas pasan a ser fallos)
+ *
+ * Las claves se reparten en segmentos, cada uno con su propio LRU y su propio bloqueo:
+ * las lecturas de claves distintas no compiten por un único monitor. El LRU y el tamaño
+ * máximo son por segmento (el tamaño máximo se reparte entre ellos).
+ *
+ * Cada carga registra una marca para su clave: invalidar esa clave descarta la marca y la
+ * carga en curso no se guarda, para no dejar en caché datos ya modificados. Invalidar una
+ * clave no afecta a las cargas de las demás.
+ *
+ * Con una función de copia, la caché guarda y devuelve copias: quien recibe un valor puede
+ * modificarlo sin alterar lo que ven las demás peticiones.
+ */
+public class CacheAcotada<K, V> {
+
+    private static final int MAX_SEGMENTOS = 16;
+
+    private record Entrada<V>(V valor, long expiraEnNanos) {
+    }
+
+    /**
+     * LRU de una parte de las claves y las marcas de sus cargas en curso (protegidos por el propio segmento)
+     */
+    private final class Segmento {
+
+        private final LinkedHashMap<K, Entrada<V>> entradas;
+        private final HashMap<K, Object> cargas = new HashMap<>();
+
+        Segmento(int maximo) {
+            this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, Entrada<V>> eldest) {
+                    boolean expulsar = size() > maximo;
+                    if (expulsar) {
+                        expulsiones.increment();
+                    }
+                    return expulsar;
+                }
+            };
+        }
+    }
+
+    private final String nombre;
+    private final int tamanoMaximo;
+    private final long ttlNanos;
+    private final UnaryOperator<V> copia;
+    private final List<Segmento> segmentos;
+    private volatile boolean habilitada;
+
+    private final LongAdder aciertos = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+    private final LongAdder expulsiones = new LongAdder();
+    private final LongAdder invalidaciones = new LongAdder();
+
+    public CacheAcotada(String nombre, int tamanoMaximo, long ttlSegundos, boolean habilitada) {
+        this(nombre, tamanoMaximo, ttlSegundos, habilitada, UnaryOperator.identity());
+    }
+
+    /**
+     * @param copia Copia de un valor; se aplica al guardarlo y al devolverlo (valores mutables)
+     */
+    public CacheAcotada(String nombre, int tamanoMaximo, long ttlSegundos, boolean habilitada, UnaryOperator<V> copia) {
+        this.nombre = nombre;
+        this.tamanoMaximo = tamanoMaximo;
+        this.ttlNanos = ttlSegundos * 1_000_000_000L;
+        this.habilitada = habilitada;
+        this.copia = copia;
+
+        // Potencia de dos (para elegir el segmento con una máscara) y nunca más segmentos que entradas
+        int cantidad = Integer.highestOneBit(Math.max(1, Math.min(MAX_SEGMENTOS, tamanoMaximo)));
+        // El resto de la división se reparte: la suma de los segmentos es exactamente tamanoMaximo
+        int base = tamanoMaximo / cantidad;
+        int resto = tamanoMaximo % cantidad;
+        List<Segmento> creados = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            creados.add(new Segmento(Math.max(1, base + (i < resto ? 1 : 0))));
+        }
+        this.segmentos = List.copyOf(creados);
+    }
+
+    /**
+     * Devuelve el valor en caché o lo carga con el cargador y lo guarda (read-through)
+     * Si el cargador devuelve null no se guarda nada
+     */
+    public V obtener(K clave, Function<K, V> cargador) {
+        V valor = buscar(clave);
+        if (valor != null) {
+            return valor;
+        }
+        Segmento segmento = segmento(clave);
+        Object marca = new Object();
+        synchronized (segmento) {
+            segmento.cargas.put(clave, marca);
+        }
+        try {
+            valor = cargador.apply(clave);
+        } finally {
+            if (valor == null) {
+                synchronized (segmento) {
+                    segmento.cargas.remove(clave, marca);
+                }
+            }
+        }
+        if (valor != null) {
+            guardarSiMarca(segmento, clave, valor, marca, ttlNanos);
+        }
+        return valor;
+    }
+
+    /**
+     * Busca un valor sin cargarlo; devuelve null si no está o ha vencido
+     */
+    public V buscar(K clave) {
+        if (!habilitada) {
+            fallos.increment();
+            return null;
+        }
+        Segmento segmento = segmento(clave);
+        V valor;
+        synchronized (segmento) {
+            Entrada<V> entrada = segmento.entradas.get(clave);
+            if (entrada == null) {
+                fallos.increment();
+                return null;
+            }
+            if (entrada.expiraEnNanos() - System.nanoTime() <= 0) {
+                segmento.entradas.remove(clave);
+                expulsiones.increment();
+                fallos.increment();
+                return null;
+            }
+            valor = entrada.valor();
+        }
+        aciertos.increment();
+        // La copia se hace fuera del bloqueo del segmento
+        return copia.apply(valor);
+    }
+
+    /**
+     * Guarda un valor con el TTL por defecto
+     */
+    public void guardar(K clave, V valor) {
+        guardarSiMarca(segmento(clave), clave, valor, null, ttlNanos);
+    }
+
+    /**
+     * Guarda un valor que debe vencer como muy tarde en el instante indicado
+     * (el TTL efectivo es el menor entre el TTL por defecto y el tiempo restante)
+     */
+    public void guardar(K clave, V valor, Instant venceComoMuyTarde) {
+        long restanteNanos = Duration.between(Instant.now(), venceComoMuyTarde).toNanos();
+        if (restanteNanos <= 0) {
+            return;
+        }
+        guardarSiMarca(segmento(clave), clave, valor, null, Math.min(ttlNanos, restanteNanos));
+    }
+
+    /**
+     * Guarda el valor si la carga sigue vigente (su marca no se invalidó ni la sustituyó otra carga)
+     * Con marca null el valor se guarda siempre y las cargas en curso de la clave se descartan
+     */
+    private void guardarSiMarca(Segmento segmento, K clave, V valor, Object marca, long vidaNanos) {
+        if (!habilitada) {
+            return;
+        }
+        V guardado = copia.apply(valor);
+        synchronized (segmento) {
+            if (marca == null) {
+                segmento.cargas.remove(clave);
+            } else if (!segmento.cargas.remove(clave, marca)) {
+                return;
+            }
+            segmento.entradas.put(clave, new Entrada<>(guardado, System.nanoTime() + vidaNanos));
+        }
+    }
+
+    /**
+     * Elimina una clave concreta de la caché (y descarta sus cargas en curso)
+     */
+    public void invalidar(K clave) {
+        Segmento segmento = segmento(clave);
+        synchronized (segmento) {
+            segmento.cargas.remove(clave);
+            segmento.entradas.remove(clave);
+        }
+        invalidaciones.increment();
+    }
+
+    /**
+     * Vacía la caché por completo
+     */
+    public void invalidarTodo() {
+        for (Segmento segmento : segmentos) {
+            synchronized (segmento) {
+                segmento.cargas.clear();
+                segmento.entradas.clear();
+            }
+        }
+        invalidaciones.increment();
+    }
+
+    private Segmento segmento(K clave) {
+        int h = clave.hashCode();
+        // Mezcla los bits altos (como HashMap): los Long consecutivos se reparten igual
+        return segmentos.get((h ^ (h >>> 16)) & (segmentos.size() - 1));
+    }
+
+    public boolean isHabilitada() {
+        return habilitada;
+    }
+
+    /**
+     * Habilita o deshabilita la caché; al deshabilitarla se vacía
+     */
+    public void setHabilitada(boolean habilitada) {
+        this.habilitada = habilitada;
+        if (!habilitada) {
+            invalidarTodo();
+        }
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public int tamano() {
+        int total = 0;
+        for (Segmento segmento : segmentos) {
+            synchronized (segmento) {
+                total += segmento.entradas.size();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Contadores de la caché para el endpoint de administración
+     */
+    public Map<String, Object> estadisticas() {
+        long totalAciertos = aciertos.sum();
+        long totalFallos = fallos.sum();
+        long lecturas = totalAciertos + totalFallos;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("habilitada", habilitada);
+        stats.put("tamano", tamano());
+        stats.put("tamanoMaximo", tamanoMaximo);
+        stats.put("ttlSegundos", ttlNanos / 1_000_000_000L);
+        stats.put("aciertos", totalAciertos);
+        stats.put("fallos", totalFallos);
+        stats.put("tasaAciertos", lecturas == 0 ? 0.0 : (double) totalAciertos / lecturas);
+        stats.put("expulsiones", expulsiones.sum());
+        stats.put("invalidaciones", invalidaciones.sum());
+        return stats;
+    }
+}
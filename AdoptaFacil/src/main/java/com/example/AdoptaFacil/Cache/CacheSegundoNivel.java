@@ -0,0 +1,101 @@
+package com.example.AdoptaFacil.Cache;
+
+import com.example.AdoptaFacil.Entity.MascotaImage;
+import com.example.AdoptaFacil.Entity.Mascotas;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Acceso a la caché de segundo nivel de Hibernate (JCache con Ehcache, ver ehcache.xml)
+ *
+ * - Regiones: roles (solo lectura), personas, mascotas, mascota_imagenes y la colección
+ *   mascotas_imagenes (lectura-escritura), y la caché de consultas roles_por_tipo
+ * - Hibernate la mantiene al día en las escrituras por JPA y en los UPDATE/DELETE en JPQL;
+ *   las escrituras con JdbcTemplate deben invalidar lo que modifican con estos métodos
+ * - Los aciertos y fallos por región requieren hibernate.generate_statistics=true
+ */
+@Component
+public class CacheSegundoNivel {
+
+    private static final String COLECCION_IMAGENES = Mascotas.class.getName() + ".imagenes";
+
+    private final SessionFactory sessionFactory;
+
+    public CacheSegundoNivel(EntityManagerFactory entityManagerFactory) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+    }
+
+    /**
+     * Invalida una mascota, la colección de sus imágenes y solo las imágenes indicadas
+     * (p. ej. al cambiar el orden de las imágenes con SQL directo)
+     *
+     * Conviene llamarlo antes de las sentencias y de nuevo tras el commit: una carga concurrente
+     * que leyó las filas antiguas puede volver a guardarlas entre medias
+     */
+    public void invalidarMascota(Long idMascota, Collection<Long> idsImagenes) {
+        org.hibernate.Cache cache = sessionFactory.getCache();
+        cache.evictEntityData(Mascotas.class, idMascota);
+        cache.evictCollectionData(COLECCION_IMAGENES, idMascota);
+        for (Long idImagen : idsImagenes) {
+            cache.evictEntityData(MascotaImage.class, idImagen);
+        }
+    }
+
+    /**
+     * Vacía todas las regiones y la caché de consultas
+     */
+    public void invalidarTodo() {
+        sessionFactory.getCache().evictAll();
+        System.out.println("🧹 Caché de segundo nivel vaciada");
+    }
+
+    /**
+     * Aciertos, fallos, inserciones y entradas en memoria de cada región
+     */
+    public Map<String, Object> estadisticas() {
+        Statistics estadisticas = sessionFactory.getStatistics();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("estadisticasHabilitadas", estadisticas.isStatisticsEnabled());
+
+        Map<String, Object> regiones = new LinkedHashMap<>();
+        Arrays.stream(estadisticas.getSecondLevelCacheRegionNames()).sorted().forEach(nombre -> {
+            CacheRegionStatistics region = estadisticas.getCacheRegionStatistics(nombre);
+            if (region != null) {
+                regiones.put(nombre, resumen(region));
+            }
+        });
+        stats.put("regiones", regiones);
+
+        Map<String, Object> consultas = new LinkedHashMap<>();
+        consultas.put("aciertos", estadisticas.getQueryCacheHitCount());
+        consultas.put("fallos", estadisticas.getQueryCacheMissCount());
+        consultas.put("inserciones", estadisticas.getQueryCachePutCount());
+        consultas.put("invalidacionesTimestamps", estadisticas.getUpdateTimestampsCachePutCount());
+        CacheRegionStatistics rolesPorTipo = estadisticas.getQueryRegionStatistics("roles_por_tipo");
+        if (rolesPorTipo != null) {
+            consultas.put("roles_por_tipo", resumen(rolesPorTipo));
+        }
+        stats.put("consultas", consultas);
+        return stats;
+    }
+
+    private static Map<String, Object> resumen(CacheRegionStatistics region) {
+        long aciertos = region.getHitCount();
+        long fallos = region.getMissCount();
+        Map<String, Object> datos = new LinkedHashMap<>();
+        datos.put("aciertos", aciertos);
+        datos.put("fallos", fallos);
+        datos.put("inserciones", region.getPutCount());
+        datos.put("tasaAciertos", aciertos + fallos == 0 ? 0.0 : (double) aciertos / (aciertos + fallos));
+        datos.put("entradasEnMemoria", region.getElementCountInMemory());
+        return datos;
+    }
+}
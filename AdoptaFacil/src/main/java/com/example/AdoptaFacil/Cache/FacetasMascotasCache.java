@@ -0,0 +1,53 @@
+package com.example.AdoptaFacil.Cache;
+
+import com.example.AdoptaFacil.DTO.ConteoFacetaDTO;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Caché en memoria del conteo agrupado de mascotas usado para las facetas del filtro
+ *
+ * Guarda una única instantánea inmutable (una fila por combinación de ciudad, especie,
+ * sexo, raza y edad). Se invalida al crear, actualizar o eliminar mascotas y se recarga
+ * en la siguiente consulta con una sola consulta agregada.
+ */
+@Component
+public class FacetasMascotasCache {
+
+    private volatile List<ConteoFacetaDTO> conteos;
+
+    // Se incrementa en cada invalidación para descartar cargas que empezaron antes
+    private final AtomicLong generacion = new AtomicLong();
+
+    /**
+     * Devuelve la instantánea en caché o la carga con el proveedor indicado
+     */
+    public List<ConteoFacetaDTO> obtener(Supplier<List<ConteoFacetaDTO>> cargador) {
+        List<ConteoFacetaDTO> actual = conteos;
+        if (actual != null) {
+            return actual;
+        }
+        long generacionInicial = generacion.get();
+        List<ConteoFacetaDTO> cargados = List.copyOf(cargador.get());
+        synchronized (this) {
+            // Solo se guarda si nadie invalidó la caché mientras se cargaba
+            if (generacion.get() == generacionInicial) {
+                conteos = cargados;
+            }
+        }
+        return cargados;
+    }
+
+    /**
+     * Descarta la instantánea actual
+     */
+    public void invalidar() {
+        synchronized (this) {
+            generacion.incrementAndGet();
+            conteos = null;
+        }
+    }
+}
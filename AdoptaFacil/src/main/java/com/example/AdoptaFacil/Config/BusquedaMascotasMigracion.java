@@ -0,0 +1,69 @@
+package com.example.AdoptaFacil.Config;
+
+import com.example.AdoptaFacil.Util.TextoUtil;
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.migration.Context;
+import org.flywaydb.core.api.migration.JavaMigration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Migración V4: rellena mascotas.busqueda en las mascotas creadas antes de que existiera
+ *
+ * Es una migración Java y no SQL porque el texto tiene que normalizarse exactamente igual
+ * que TextoUtil.textoBusqueda (NFD y sin marcas diacríticas), que no tiene equivalente en SQL
+ * sin la extensión unaccent. Spring Boot registra en Flyway los beans JavaMigration.
+ */
+@Component
+public class BusquedaMascotasMigracion implements JavaMigration {
+
+    private static final int TAMANO_LOTE = 500;
+
+    @Override
+    public MigrationVersion getVersion() {
+        return MigrationVersion.fromVersion("4");
+    }
+
+    @Override
+    public String getDescription() {
+        return "rellenar busqueda mascotas";
+    }
+
+    @Override
+    public Integer getChecksum() {
+        return null;
+    }
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return true;
+    }
+
+    @Override
+    public void migrate(Context context) {
+        // Misma conexión (y transacción) que el resto de la migración; no se cierra aquí
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(context.getConnection(), true));
+        int total = 0;
+        List<Object[]> lote;
+        do {
+            lote = jdbcTemplate.query(
+                    "SELECT id_mascota, nombre, raza, ciudad, descripcion FROM mascotas "
+                            + "WHERE busqueda IS NULL ORDER BY id_mascota LIMIT ?",
+                    (rs, i) -> new Object[]{
+                            TextoUtil.textoBusqueda(rs.getString("nombre"), rs.getString("raza"),
+                                    rs.getString("ciudad"), rs.getString("descripcion")),
+                            rs.getLong("id_mascota")
+                    },
+                    TAMANO_LOTE);
+            if (!lote.isEmpty()) {
+                jdbcTemplate.batchUpdate("UPDATE mascotas SET busqueda = ? WHERE id_mascota = ?", lote);
+                total += lote.size();
+            }
+        } while (lote.size() == TAMANO_LOTE);
+
+        System.out.println("✅ Texto de búsqueda calculado para " + total + " mascotas existentes");
+    }
+}
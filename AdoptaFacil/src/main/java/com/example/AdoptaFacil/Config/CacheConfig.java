@@ -0,0 +1,65 @@
+package com.example.AdoptaFacil.Config;
+
+import com.example.AdoptaFacil.Cache.CacheAcotada;
+import com.example.AdoptaFacil.DTO.MascotasDTO;
+import com.example.AdoptaFacil.Security.UsuarioAutenticado;
+import com.example.AdoptaFacil.Util.JwtClaims;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuración de las cachés en memoria de la aplicación
+ * Los tamaños y tiempos de vida se ajustan en application.properties
+ */
+@Configuration
+public class CacheConfig {
+
+    /**
+     * Caché de DTOs de mascota ya construidos, por ID (detalle de mascota)
+     * MascotasDTO es mutable: la caché guarda y devuelve copias
+     */
+    @Bean
+    public CacheAcotada<Long, MascotasDTO> cacheMascotas(
+            @Value("${cache.mascotas.tamano-maximo:1000}") int tamanoMaximo,
+            @Value("${cache.mascotas.ttl-segundos:300}") long ttlSegundos,
+            @Value("${cache.mascotas.habilitada:true}") boolean habilitada) {
+        return new CacheAcotada<>("mascotas", tamanoMaximo, ttlSegundos, habilitada, MascotasDTO::copia);
+    }
+
+    /**
+     * Caché de tokens JWT ya verificados, por hash SHA-256 del token
+     * Cada entrada vence como muy tarde con el 'exp' del propio token
+     */
+    @Bean
+    public CacheAcotada<String, JwtClaims> cacheTokens(
+            @Value("${cache.tokens.tamano-maximo:10000}") int tamanoMaximo,
+            @Value("${cache.tokens.ttl-segundos:300}") long ttlSegundos,
+            @Value("${cache.tokens.habilitada:true}") boolean habilitada) {
+        return new CacheAcotada<>("tokens", tamanoMaximo, ttlSegundos, habilitada);
+    }
+
+    /**
+     * Caché de usuarios autenticados por email (sin contraseña)
+     * Se invalida al actualizar o eliminar personas y al modificar roles
+     */
+    @Bean
+    public CacheAcotada<String, UsuarioAutenticado> cachePrincipales(
+            @Value("${cache.principales.tamano-maximo:10000}") int tamanoMaximo,
+            @Value("${cache.principales.ttl-segundos:60}") long ttlSegundos,
+            @Value("${cache.principales.habilitada:true}") boolean habilitada) {
+        return new CacheAcotada<>("principales", tamanoMaximo, ttlSegundos, habilitada);
+    }
+
+    /**
+     * Caché de ETags (SHA-256) de imágenes cuyo nombre no es su hash
+     * La clave incluye tamaño y fecha de modificación, así que no necesita invalidación
+     */
+    @Bean
+    public CacheAcotada<String, String> cacheEtags(
+            @Value("${cache.etags.tamano-maximo:10000}") int tamanoMaximo,
+            @Value("${cache.etags.ttl-segundos:86400}") long ttlSegundos,
+            @Value("${cache.etags.habilitada:true}") boolean habilitada) {
+        return new CacheAcotada<>("etags", tamanoMaximo, ttlSegundos, habilitada);
+    }
+}
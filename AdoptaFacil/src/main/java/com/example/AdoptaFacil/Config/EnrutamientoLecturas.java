@@ -0,0 +1,186 @@
+package com.example.AdoptaFacil.Config;
+
+import com.example.AdoptaFacil.Entity.Person;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Decide a qué base de datos va cada conexión cuando hay réplica de lectura (ver ReplicaDataSourceConfig)
+ *
+ * - Las transacciones de escritura van siempre a la primaria
+ * - Las de solo lectura van a la réplica, salvo:
+ *   - dentro de una petición que escribe (POST, PUT, PATCH, DELETE)
+ *   - durante 'lectura-propia-ms' después de que el mismo usuario (o IP, si era anónimo) escribiera:
+ *     la réplica puede ir con retraso y el usuario no vería su propio cambio
+ *   - en las cargas de cachés compartidas (enPrimaria): un dato atrasado quedaría cacheado para todos
+ *   - en las tareas en segundo plano que actúan según lo leído (enPrimaria): variantes de imágenes,
+ *     revisión de pendientes, recolector de huérfanas y limpieza de subidas. Sus hilos no tienen
+ *     petición ni usuario, así que sin forzarlo irían siempre a la réplica
+ *
+ * El contexto de la petición lo fija LecturaPropiaFilter. Sin réplica configurada solo se usan
+ * las estadísticas del pool.
+ */
+@Component
+public class EnrutamientoLecturas {
+
+    public enum Destino {
+        PRIMARIA, REPLICA
+    }
+
+    /**
+     * Contexto de la petición en curso: si escribe y la IP del cliente
+     */
+    private record Contexto(boolean escritura, String ip) {
+    }
+
+    private final ThreadLocal<Contexto> contexto = new ThreadLocal<>();
+    private final ThreadLocal<Boolean> forzarPrimaria = new ThreadLocal<>();
+    // Clave del usuario -> instante (nanoTime) hasta el que sus lecturas van a la primaria
+    private final ConcurrentHashMap<String, Long> ventanas = new ConcurrentHashMap<>();
+    private final long ventanaNanos;
+    private final ObjectProvider<HikariDataSource> pools;
+
+    private final LongAdder escrituras = new LongAdder();
+    private final LongAdder lecturasReplica = new LongAdder();
+    private final LongAdder lecturasPrimariaPorPeticion = new LongAdder();
+    private final LongAdder lecturasPrimariaPorVentana = new LongAdder();
+    private final LongAdder lecturasPrimariaPorCache = new LongAdder();
+
+    public EnrutamientoLecturas(@Value("${datasource.replica.lectura-propia-ms:5000}") long ventanaMs,
+                                ObjectProvider<HikariDataSource> pools) {
+        this.ventanaNanos = TimeUnit.MILLISECONDS.toNanos(ventanaMs);
+        this.pools = pools;
+    }
+
+    /**
+     * Destino de una conexión nueva según la transacción actual
+     */
+    public Destino destino(boolean soloLectura) {
+        if (!soloLectura) {
+            escrituras.increment();
+            return Destino.PRIMARIA;
+        }
+        if (Boolean.TRUE.equals(forzarPrimaria.get())) {
+            lecturasPrimariaPorCache.increment();
+            return Destino.PRIMARIA;
+        }
+        Contexto actual = contexto.get();
+        if (actual != null && actual.escritura()) {
+            lecturasPrimariaPorPeticion.increment();
+            return Destino.PRIMARIA;
+        }
+        long ahora = System.nanoTime();
+        if ((actual != null && ventanaActiva(actual.ip(), ahora)) || ventanaActiva(usuarioActual(), ahora)) {
+            lecturasPrimariaPorVentana.increment();
+            return Destino.PRIMARIA;
+        }
+        lecturasReplica.increment();
+        return Destino.REPLICA;
+    }
+
+    /**
+     * Ejecuta una carga contra la primaria (cachés compartidas y tareas en segundo plano);
+     * debe llamarse fuera de una transacción
+     */
+    public <T> T enPrimaria(Supplier<T> carga) {
+        Boolean anterior = forzarPrimaria.get();
+        forzarPrimaria.set(Boolean.TRUE);
+        try {
+            return carga.get();
+        } finally {
+            if (anterior == null) {
+                forzarPrimaria.remove();
+            } else {
+                forzarPrimaria.set(anterior);
+            }
+        }
+    }
+
+    /**
+     * Inicio de una petición (LecturaPropiaFilter)
+     */
+    public void iniciarPeticion(boolean escritura, String ip) {
+        contexto.set(new Contexto(escritura, "ip:" + ip));
+    }
+
+    /**
+     * Fin de una petición: si escribió, abre la ventana de lectura propia de su usuario (o de su IP)
+     */
+    public void finalizarPeticion() {
+        Contexto actual = contexto.get();
+        contexto.remove();
+        if (actual == null || !actual.escritura() || ventanaNanos <= 0) {
+            return;
+        }
+        String usuario = usuarioActual();
+        ventanas.put(usuario != null ? usuario : actual.ip(), System.nanoTime() + ventanaNanos);
+    }
+
+    private boolean ventanaActiva(String clave, long ahora) {
+        if (clave == null) {
+            return false;
+        }
+        Long hasta = ventanas.get(clave);
+        return hasta != null && hasta - ahora > 0;
+    }
+
+    private static String usuarioActual() {
+        Authentication autenticacion = SecurityContextHolder.getContext().getAuthentication();
+        if (autenticacion != null && autenticacion.getPrincipal() instanceof Person person && person.getIdPerson() != null) {
+            return "usuario:" + person.getIdPerson();
+        }
+        return null;
+    }
+
+    /**
+     * Elimina las ventanas ya cerradas
+     */
+    @Scheduled(fixedDelayString = "${datasource.replica.limpieza-ms:60000}")
+    public void limpiarVentanas() {
+        long ahora = System.nanoTime();
+        ventanas.values().removeIf(hasta -> hasta - ahora <= 0);
+    }
+
+    /**
+     * Reparto de conexiones entre primaria y réplica y estado de cada pool de Hikari
+     */
+    public Map<String, Object> estadisticas() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ventanaLecturaPropiaMs", TimeUnit.NANOSECONDS.toMillis(ventanaNanos));
+        stats.put("ventanasAbiertas", ventanas.size());
+        stats.put("escrituras", escrituras.sum());
+        stats.put("lecturasReplica", lecturasReplica.sum());
+        stats.put("lecturasPrimariaPorPeticion", lecturasPrimariaPorPeticion.sum());
+        stats.put("lecturasPrimariaPorVentana", lecturasPrimariaPorVentana.sum());
+        stats.put("lecturasPrimariaPorCache", lecturasPrimariaPorCache.sum());
+
+        Map<String, Object> porPool = new LinkedHashMap<>();
+        pools.orderedStream().forEach(pool -> {
+            Map<String, Object> datos = new LinkedHashMap<>();
+            datos.put("maximo", pool.getMaximumPoolSize());
+            HikariPoolMXBean mx = pool.getHikariPoolMXBean();
+            if (mx != null) {
+                datos.put("activas", mx.getActiveConnections());
+                datos.put("inactivas", mx.getIdleConnections());
+                datos.put("total", mx.getTotalConnections());
+                datos.put("esperando", mx.getThreadsAwaitingConnection());
+            }
+            porPool.put(pool.getPoolName(), datos);
+        });
+        stats.put("pools", porPool);
+        return stats;
+    }
+}
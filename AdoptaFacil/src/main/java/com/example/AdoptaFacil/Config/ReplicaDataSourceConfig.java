@@ -0,0 +1,99 @@
+package com.example.AdoptaFacil.Config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Réplica de lectura (solo si se define datasource.replica.url)
+ *
+ * - Dos pools de Hikari: 'primaria' (spring.datasource.*) y 'replica' (datasource.replica.*)
+ * - El DataSource que usan JPA y JdbcTemplate elige el pool en cada conexión con EnrutamientoLecturas:
+ *   las transacciones @Transactional(readOnly = true) van a la réplica y el resto a la primaria
+ * - LazyConnectionDataSourceProxy retrasa la conexión real hasta la primera sentencia, cuando
+ *   la transacción ya está marcada como de solo lectura
+ * - Flyway migra siempre la primaria; la réplica recibe los cambios por replicación
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource.replica.url")
+public class ReplicaDataSourceConfig {
+
+    /**
+     * Pool de la base de datos primaria (mismas propiedades que sin réplica)
+     */
+    @Bean
+    @FlywayDataSource
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSourcePrimaria(DataSourceProperties propiedades) {
+        HikariDataSource dataSource = propiedades.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        dataSource.setPoolName("primaria");
+        return dataSource;
+    }
+
+    /**
+     * Pool de la réplica: usuario y contraseña de la primaria salvo que se indiquen otros
+     */
+    @Bean
+    @ConfigurationProperties("datasource.replica.hikari")
+    public HikariDataSource dataSourceReplica(
+            @Value("${datasource.replica.url}") String url,
+            @Value("${datasource.replica.username:${spring.datasource.username}}") String usuario,
+            @Value("${datasource.replica.password:${spring.datasource.password}}") String contrasena,
+            DataSourceProperties propiedades) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(usuario);
+        dataSource.setPassword(contrasena);
+        dataSource.setDriverClassName(propiedades.determineDriverClassName());
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("dataSourcePrimaria") HikariDataSource primaria,
+                                 @Qualifier("dataSourceReplica") HikariDataSource replica,
+                                 EnrutamientoLecturas enrutamiento) {
+        DataSourceEnrutado enrutado = new DataSourceEnrutado(enrutamiento);
+        enrutado.setTargetDataSources(Map.of(
+                EnrutamientoLecturas.Destino.PRIMARIA, primaria,
+                EnrutamientoLecturas.Destino.REPLICA, replica));
+        enrutado.setDefaultTargetDataSource(primaria);
+        enrutado.afterPropertiesSet();
+        System.out.println("🔀 Lecturas de solo lectura enrutadas a la réplica: " + replica.getJdbcUrl());
+        return new LazyConnectionDataSourceProxy(enrutado);
+    }
+
+    /**
+     * Elige primaria o réplica según la transacción en curso al abrir la conexión
+     */
+    private static class DataSourceEnrutado extends AbstractRoutingDataSource {
+
+        private final EnrutamientoLecturas enrutamiento;
+
+        DataSourceEnrutado(EnrutamientoLecturas enrutamiento) {
+            this.enrutamiento = enrutamiento;
+        }
+
+        @Override
+        protected Object determineCurrentLookupKey() {
+            return enrutamiento.destino(TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+        }
+    }
+}
@@ -1,9 +1,15 @@
 package com.example.AdoptaFacil.Config;
 
 import com.example.AdoptaFacil.Security.JwtAuthenticationFilter;
+import com.example.AdoptaFacil.Security.LecturaPropiaFilter;
+import com.example.AdoptaFacil.Security.LimiteSubidasFilter;
+import com.example.AdoptaFacil.Security.LoginThrottleFilter;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
@@ -28,6 +34,15 @@ public class SecurityConfig {
     @Autowired
     private JwtAuthenticationFilter jwtAuthenticationFilter;
 
+    @Autowired
+    private LoginThrottleFilter loginThrottleFilter;
+
+    @Autowired
+    private LimiteSubidasFilter limiteSubidasFilter;
+
+    @Autowired
+    private LecturaPropiaFilter lecturaPropiaFilter;
+
     /**
      * Configura la cadena de filtros de seguridad
      * Define rutas públicas (/api/auth/**) y protegidas (resto de rutas)
@@ -43,15 +58,27 @@ public class SecurityConfig {
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             // Configurar autorización de peticiones
             .authorizeHttpRequests(authz -> authz
+                    // El despacho asíncrono (StreamingResponseBody) ya se autorizó en la petición original
+                    .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                     // Rutas públicas - accesibles sin autenticación
                     .requestMatchers("/api/auth/**").permitAll()
                     // Permitir acceso público a las imágenes
                     .requestMatchers("/uploads/**").permitAll()
+                    .requestMatchers(HttpMethod.GET, "/api/imagenes/**").permitAll()
+                    .requestMatchers(HttpMethod.HEAD, "/api/imagenes/**").permitAll()
+                    // Administración (cachés, métricas) solo para ADMIN
+                    .requestMatchers("/api/admin/**").hasRole("ADMIN")
                     // Todas las demás rutas requieren autenticación
                     .anyRequest().authenticated()
             )
+            // Marcar la petición para el enrutamiento de lecturas (primaria o réplica)
+            .addFilterBefore(lecturaPropiaFilter, UsernamePasswordAuthenticationFilter.class)
+            // Limitar intentos de login (por IP y por email) antes de cualquier otra lógica
+            .addFilterBefore(loginThrottleFilter, UsernamePasswordAuthenticationFilter.class)
             // Añadir filtro JWT antes del filtro de autenticación estándar
-            .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
+            .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+            // Limitar las subidas concurrentes (tras autenticar, antes de leer el cuerpo multipart)
+            .addFilterAfter(limiteSubidasFilter, UsernamePasswordAuthenticationFilter.class);
 
         return http.build();
     }
@@ -59,10 +86,12 @@ public class SecurityConfig {
     /**
      * Configura el codificador de contraseñas BCrypt
      * BCrypt es un algoritmo de hash seguro para contraseñas
+     * El coste se configura con security.bcrypt.strength (los hashes con otro coste
+     * se recalculan en el siguiente login correcto)
      */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${security.bcrypt.strength:10}") int strength) {
+        return new BCryptPasswordEncoder(strength);
     }
 
     /**
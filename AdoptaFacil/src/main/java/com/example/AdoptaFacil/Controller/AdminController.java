@@ -0,0 +1,224 @@
+package com.example.AdoptaFacil.Controller;
+
+import com.example.AdoptaFacil.Cache.CacheAcotada;
+import com.example.AdoptaFacil.Cache.CacheSegundoNivel;
+import com.example.AdoptaFacil.Config.EnrutamientoLecturas;
+import com.example.AdoptaFacil.DTO.MascotasDTO;
+import com.example.AdoptaFacil.Security.LimiteSubidasFilter;
+import com.example.AdoptaFacil.Security.LoginThrottleFilter;
+import com.example.AdoptaFacil.Security.PasswordHashingService;
+import com.example.AdoptaFacil.Security.UsuarioAutenticado;
+import com.example.AdoptaFacil.Service.ImagenesHuerfanasService;
+import com.example.AdoptaFacil.Service.ImportacionMascotasService;
+import com.example.AdoptaFacil.Service.MascotasService;
+import com.example.AdoptaFacil.Service.ProcesamientoImagenesService;
+import com.example.AdoptaFacil.Util.JwtClaims;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Controlador REST de administración (solo ADMIN, ver SecurityConfig)
+ * 
+ * Endpoints disponibles:
+ * - GET /api/admin/cache - Estadísticas de las cachés en memoria
+ * - PUT /api/admin/cache/mascotas?habilitada=true|false - Habilitar o deshabilitar la caché de mascotas
+ * - DELETE /api/admin/cache/mascotas - Vaciar la caché de mascotas
+ * - GET /api/admin/cache/hibernate - Aciertos y fallos por región de la caché de segundo nivel de Hibernate
+ * - DELETE /api/admin/cache/hibernate - Vaciar la caché de segundo nivel
+ * - GET /api/admin/metricas/auth - Estado del pool de hashing, latencias y limitación de login
+ * - GET /api/admin/metricas/imagenes - Estado del procesamiento de variantes de imágenes
+ * - GET /api/admin/metricas/transacciones - Duración de las transacciones de escritura de mascotas
+ * - GET /api/admin/metricas/subidas - Subidas en curso, en cola y rechazadas por el bulkhead
+ * - GET /api/admin/metricas/datasource - Reparto de lecturas entre primaria y réplica y estado de los pools
+ * - GET /api/admin/metricas/huerfanas - Resultado del recolector de imágenes huérfanas
+ * - POST /api/admin/imagenes/huerfanas?simulacion=true|false - Ejecutar el recolector ahora
+ * - POST /api/admin/importar/mascotas?aliadoId=123 - Importación masiva de mascotas desde CSV (cuerpo text/csv)
+ */
+@RestController
+@RequestMapping("/api/admin")
+@RequiredArgsConstructor
+public class AdminController {
+
+    private final CacheAcotada<Long, MascotasDTO> cacheMascotas;
+    private final CacheAcotada<String, JwtClaims> cacheTokens;
+    private final CacheAcotada<String, UsuarioAutenticado> cachePrincipales;
+    private final CacheAcotada<String, String> cacheEtags;
+    private final CacheSegundoNivel cacheSegundoNivel;
+    private final PasswordHashingService passwordHashingService;
+    private final LoginThrottleFilter loginThrottleFilter;
+    private final LimiteSubidasFilter limiteSubidasFilter;
+    private final ProcesamientoImagenesService procesamientoImagenes;
+    private final MascotasService mascotasService;
+    private final ImagenesHuerfanasService imagenesHuerfanas;
+    private final ImportacionMascotasService importacionMascotas;
+    private final EnrutamientoLecturas enrutamientoLecturas;
+
+    /**
+     * Devuelve los contadores de aciertos, fallos y expulsiones de cada caché
+     * 
+     * @return Estadísticas por nombre de caché
+     */
+    @GetMapping("/cache")
+    public ResponseEntity<?> estadisticasCache() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put(cacheMascotas.getNombre(), cacheMascotas.estadisticas());
+        stats.put(cacheTokens.getNombre(), cacheTokens.estadisticas());
+        stats.put(cachePrincipales.getNombre(), cachePrincipales.estadisticas());
+        stats.put(cacheEtags.getNombre(), cacheEtags.estadisticas());
+        return ResponseEntity.ok(stats);
+    }
+
+    /**
+     * Habilita o deshabilita la caché de mascotas sin reiniciar la aplicación
+     * 
+     * @param habilitada true para habilitar, false para deshabilitar (y vaciar)
+     * @return Estadísticas actualizadas de la caché
+     */
+    @PutMapping("/cache/mascotas")
+    public ResponseEntity<?> cambiarCacheMascotas(@RequestParam boolean habilitada) {
+        cacheMascotas.setHabilitada(habilitada);
+        System.out.println("⚙️ Caché de mascotas " + (habilitada ? "habilitada" : "deshabilitada"));
+        return ResponseEntity.ok(cacheMascotas.estadisticas());
+    }
+
+    /**
+     * Vacía la caché de mascotas
+     * 
+     * @return Status 204 (No Content)
+     */
+    @DeleteMapping("/cache/mascotas")
+    public ResponseEntity<?> vaciarCacheMascotas() {
+        cacheMascotas.invalidarTodo();
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Estadísticas por región de la caché de segundo nivel de Hibernate (entidades, colecciones y consultas)
+     * 
+     * @return Aciertos, fallos, inserciones y entradas en memoria por región
+     */
+    @GetMapping("/cache/hibernate")
+    public ResponseEntity<?> estadisticasCacheHibernate() {
+        return ResponseEntity.ok(cacheSegundoNivel.estadisticas());
+    }
+
+    /**
+     * Vacía la caché de segundo nivel (p. ej. tras modificar datos directamente en la BD)
+     * 
+     * @return Status 204 (No Content)
+     */
+    @DeleteMapping("/cache/hibernate")
+    public ResponseEntity<?> vaciarCacheHibernate() {
+        cacheSegundoNivel.invalidarTodo();
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Estado del pool de hashing de contraseñas, latencias por resultado y
+     * contadores de la limitación de intentos de login
+     * 
+     * @return Métricas de autenticación
+     */
+    @GetMapping("/metricas/auth")
+    public ResponseEntity<?> metricasAuth() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hashing", passwordHashingService.estadisticas());
+        stats.put("limitacionLogin", loginThrottleFilter.estadisticas());
+        return ResponseEntity.ok(stats);
+    }
+
+    /**
+     * Estado del pool que genera las variantes de imágenes
+     * 
+     * @return Hilos activos, cola, procesadas, fallidas, rechazadas y latencias
+     */
+    @GetMapping("/metricas/imagenes")
+    public ResponseEntity<?> metricasImagenes() {
+        return ResponseEntity.ok(procesamientoImagenes.estadisticas());
+    }
+
+    /**
+     * Tiempo que cada escritura de mascotas retiene la conexión JDBC
+     * (la E/S de archivos ya no cuenta: ocurre antes y después de la transacción)
+     * 
+     * @return Total, media y máximo en milisegundos por operación
+     */
+    @GetMapping("/metricas/transacciones")
+    public ResponseEntity<?> metricasTransacciones() {
+        return ResponseEntity.ok(mascotasService.estadisticasTransacciones());
+    }
+
+    /**
+     * Estado del bulkhead de subidas de imágenes
+     * 
+     * @return Subidas en curso y en cola, rechazos y tiempos de espera en cola
+     */
+    @GetMapping("/metricas/subidas")
+    public ResponseEntity<?> metricasSubidas() {
+        return ResponseEntity.ok(limiteSubidasFilter.estadisticas());
+    }
+
+    /**
+     * Conexiones enviadas a la primaria (escrituras, peticiones que escriben, ventana de lectura
+     * propia y cargas de caché) y a la réplica, y estado de cada pool de Hikari
+     * 
+     * @return Contadores de enrutamiento y conexiones activas, inactivas y en espera por pool
+     */
+    @GetMapping("/metricas/datasource")
+    public ResponseEntity<?> metricasDataSource() {
+        return ResponseEntity.ok(enrutamientoLecturas.estadisticas());
+    }
+
+    /**
+     * Totales del recolector de imágenes huérfanas y el detalle de su última ejecución
+     * 
+     * @return Ejecuciones, archivos eliminados y bytes recuperados
+     */
+    @GetMapping("/metricas/huerfanas")
+    public ResponseEntity<?> metricasHuerfanas() {
+        return ResponseEntity.ok(imagenesHuerfanas.estadisticas());
+    }
+
+    /**
+     * Ejecuta el recolector de imágenes huérfanas sin esperar a la ejecución programada
+     * 
+     * @param simulacion Si es true (por defecto) solo cuenta, no borra
+     * @return Archivos revisados, huérfanos y bytes recuperados (o recuperables)
+     */
+    @PostMapping("/imagenes/huerfanas")
+    public ResponseEntity<?> recolectarHuerfanas(@RequestParam(defaultValue = "true") boolean simulacion) {
+        try {
+            return ResponseEntity.ok(imagenesHuerfanas.recolectar(simulacion));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+    }
+
+    /**
+     * Importa mascotas desde un CSV enviado como cuerpo de la petición (no multipart:
+     * se lee en streaming sin copiarlo a disco ni aplicar el límite de tamaño de las subidas)
+     * 
+     * @param aliadoId Propietario de las filas que no traen la columna idPropietario (opcional)
+     * @return Filas leídas, insertadas y rechazadas, con el motivo de cada rechazo por número de línea
+     */
+    @PostMapping(value = "/importar/mascotas", consumes = {"text/csv", "text/plain"})
+    public ResponseEntity<?> importarMascotas(@RequestParam(required = false) Long aliadoId,
+                                              HttpServletRequest request) {
+        try (InputStream entrada = request.getInputStream()) {
+            return ResponseEntity.ok(importacionMascotas.importar(entrada, aliadoId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IOException e) {
+            System.err.println("❌ Error leyendo el CSV de importación: " + e.getMessage());
+            return ResponseEntity.badRequest().body("Error leyendo el CSV: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.example.AdoptaFacil.Controller;
+
+import com.example.AdoptaFacil.Cache.CacheAcotada;
+import com.example.AdoptaFacil.Service.StorageService;
+import com.example.AdoptaFacil.Util.ClavesAlmacenamiento;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Controlador para servir las imágenes de mascotas (originales y variantes)
+ *
+ * Endpoints disponibles:
+ * - GET/HEAD /api/imagenes/{clave} - Descarga de la imagen por su clave de almacenamiento (público)
+ *   p. ej. /api/imagenes/ab/cd/abcd...jpg; con almacenamiento S3 redirige a la URL del objeto
+ *
+ * Frente al manejador estático /uploads/**:
+ * - Envío sin copia (sendfile de Tomcat o FileChannel.transferTo)
+ * - ETag fuerte basado en el contenido; If-None-Match responde 304 sin cuerpo
+ * - Peticiones Range (un solo rango) con 206 / 416
+ * - Los nombres por hash (contenido inmutable) se cachean un año con 'immutable'
+ */
+@RestController
+@RequestMapping("/api/imagenes")
+public class ImagenesController {
+
+    // <sha256>.<ext>: nombre derivado del contenido (ver PreparacionImagenes)
+    private static final Pattern NOMBRE_POR_HASH = Pattern.compile("^([0-9a-f]{64})\\.[a-z0-9]{1,5}$");
+    private static final Pattern RANGO = Pattern.compile("^bytes=(\\d*)-(\\d*)$");
+
+    // Atributos de Tomcat para delegar el envío al sistema operativo (sendfile)
+    private static final String SENDFILE_SOPORTADO = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_ARCHIVO = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_INICIO = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_FIN = "org.apache.tomcat.sendfile.end";
+
+    private static final String CACHE_INMUTABLE = "public, max-age=31536000, immutable";
+
+    private final StorageService storageService;
+    private final CacheAcotada<String, String> cacheEtags;
+    private final String cacheControlMutable;
+    private final long tamanoMinimoSendfile;
+
+    public ImagenesController(StorageService storageService,
+                              CacheAcotada<String, String> cacheEtags,
+                              @Value("${imagenes.servir.max-age-segundos:86400}") long maxAgeSegundos,
+                              @Value("${imagenes.servir.sendfile-minimo-bytes:49152}") long tamanoMinimoSendfile) {
+        this.storageService = storageService;
+        this.cacheEtags = cacheEtags;
+        this.cacheControlMutable = "public, max-age=" + maxAgeSegundos + ", must-revalidate";
+        this.tamanoMinimoSendfile = tamanoMinimoSendfile;
+    }
+
+    /**
+     * Sirve una imagen por su clave de almacenamiento
+     *
+     * @param clave Clave de la imagen (ab/cd/archivo o, en imágenes antiguas, solo el nombre)
+     */
+    @RequestMapping(value = "/{*clave}", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void servirImagen(@PathVariable String clave,
+                             HttpServletRequest request,
+                             HttpServletResponse response) throws IOException {
+        clave = clave.startsWith("/") ? clave.substring(1) : clave;
+        Path archivo = storageService.rutaLocal(clave).orElse(null);
+        if (archivo == null) {
+            if (ClavesAlmacenamiento.esValida(clave) && storageService.existe(clave)) {
+                // Almacenamiento remoto (S3): el cliente descarga directamente del bucket o CDN
+                response.sendRedirect(storageService.url(clave));
+            } else {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            }
+            return;
+        }
+        String nombre = ClavesAlmacenamiento.nombre(clave);
+
+        BasicFileAttributes atributos = Files.readAttributes(archivo, BasicFileAttributes.class);
+        long longitud = atributos.size();
+        Matcher porHash = NOMBRE_POR_HASH.matcher(nombre);
+        String etag = "\"" + (porHash.matches() ? porHash.group(1) : etagPorContenido(archivo, atributos)) + "\"";
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, porHash.matches() ? CACHE_INMUTABLE : cacheControlMutable);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        // El cliente ya tiene esta versión
+        if (coincideEtag(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        response.setContentType(MediaTypeFactory.getMediaType(nombre)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+
+        long inicio = 0;
+        long fin = longitud - 1;
+        String rango = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        // If-Range con otro ETag: la copia parcial del cliente está desactualizada, se envía completa
+        if (rango != null && (ifRange == null || ifRange.equals(etag))) {
+            long[] limites = parsearRango(rango, longitud);
+            if (limites == null) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + longitud);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (limites.length == 2) {
+                inicio = limites[0];
+                fin = limites[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + inicio + "-" + fin + "/" + longitud);
+            }
+        }
+
+        long aEnviar = fin - inicio + 1;
+        response.setContentLengthLong(aEnviar);
+        if ("HEAD".equals(request.getMethod()) || aEnviar <= 0) {
+            return;
+        }
+        enviar(archivo, inicio, aEnviar, request, response);
+    }
+
+    /**
+     * Envía el rango de bytes sin pasar por buffers de la aplicación:
+     * - Con sendfile disponible (conector NIO de Tomcat), el propio Tomcat lo envía tras la respuesta
+     * - Si no, FileChannel.transferTo hacia el canal de salida
+     */
+    private void enviar(Path archivo, long inicio, long longitud,
+                        HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (longitud >= tamanoMinimoSendfile && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SOPORTADO))) {
+            request.setAttribute(SENDFILE_ARCHIVO, archivo.toString());
+            request.setAttribute(SENDFILE_INICIO, inicio);
+            request.setAttribute(SENDFILE_FIN, inicio + longitud);
+            return;
+        }
+
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            OutputStream salida = response.getOutputStream();
+            WritableByteChannel destino = Channels.newChannel(salida);
+            long posicion = inicio;
+            long restante = longitud;
+            while (restante > 0) {
+                long enviados = canal.transferTo(posicion, restante, destino);
+                if (enviados <= 0) {
+                    break;
+                }
+                posicion += enviados;
+                restante -= enviados;
+            }
+            salida.flush();
+        }
+    }
+
+    /**
+     * SHA-256 del archivo para nombres que no lo llevan (imágenes antiguas y variantes)
+     * Se calcula una vez por versión del archivo (ruta + tamaño + fecha de modificación)
+     */
+    private String etagPorContenido(Path archivo, BasicFileAttributes atributos) {
+        String clave = archivo + ":" + atributos.size() + ":" + atributos.lastModifiedTime().toMillis();
+        return cacheEtags.obtener(clave, k -> {
+            try (InputStream entrada = new DigestInputStream(Files.newInputStream(archivo),
+                    MessageDigest.getInstance("SHA-256"))) {
+                entrada.transferTo(OutputStream.nullOutputStream());
+                return HexFormat.of().formatHex(((DigestInputStream) entrada).getMessageDigest().digest());
+            } catch (IOException | NoSuchAlgorithmException e) {
+                // Sin hash: ETag derivado de los metadatos (sigue cambiando si cambia el archivo)
+                return Long.toHexString(atributos.size()) + "-" + Long.toHexString(atributos.lastModifiedTime().toMillis());
+            }
+        });
+    }
+
+    /**
+     * Comparación débil de If-None-Match (admite lista de ETags y '*')
+     */
+    private static boolean coincideEtag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidato : ifNoneMatch.split(",")) {
+            String valor = candidato.trim();
+            if (valor.startsWith("W/")) {
+                valor = valor.substring(2);
+            }
+            if (valor.equals("*") || valor.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Interpreta la cabecera Range (solo un rango: bytes=a-b, bytes=a-, bytes=-n)
+     * @return {inicio, fin}; array vacío para ignorar el rango (se envía completo); null si no es satisfacible
+     */
+    private static long[] parsearRango(String rango, long longitud) {
+        Matcher m = RANGO.matcher(rango.trim());
+        if (!m.matches()) {
+            return new long[0]; // varios rangos u otra unidad: se sirve el archivo completo
+        }
+        String desde = m.group(1);
+        String hasta = m.group(2);
+        try {
+            long inicio;
+            long fin;
+            if (desde.isEmpty()) {
+                if (hasta.isEmpty()) {
+                    return new long[0];
+                }
+                long sufijo = Long.parseLong(hasta); // últimos n bytes
+                if (sufijo == 0) {
+                    return null;
+                }
+                inicio = Math.max(0, longitud - sufijo);
+                fin = longitud - 1;
+            } else {
+                inicio = Long.parseLong(desde);
+                fin = hasta.isEmpty() ? longitud - 1 : Math.min(Long.parseLong(hasta), longitud - 1);
+            }
+            if (inicio >= longitud || inicio > fin) {
+                return null;
+            }
+            return new long[]{inicio, fin};
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+}
@@ -1,14 +1,18 @@
 package com.example.AdoptaFacil.Controller;
 
+import com.example.AdoptaFacil.DTO.OrdenImagenesDTO;
+import com.example.AdoptaFacil.Entity.Person;
 import com.example.AdoptaFacil.Service.MascotasService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 /**
  * Controlador REST para gestión de imágenes de mascotas
- * Permite eliminar imágenes individuales de una mascota
+ * Permite eliminar imágenes individuales de una mascota y cambiar su orden
  */
 @RestController
 @RequestMapping("/api/mascotas/{mascotaId}/imagenes")
@@ -52,4 +56,38 @@ public class MascotaImagenesController {
                 .body("Error al eliminar la imagen");
         }
     }
+
+    /**
+     * Cambia el orden de las imágenes de una mascota; la primera pasa a ser la imagen principal
+     * Solo actualiza filas en BD (sin E/S de archivos)
+     * 
+     * @param mascotaId ID de la mascota
+     * @param orden IDs de todas las imágenes de la mascota en el orden deseado
+     * @return Respuesta con el resultado de la operación
+     */
+    @PutMapping("/orden")
+    public ResponseEntity<?> reordenarImagenes(
+            @PathVariable Long mascotaId,
+            @RequestBody OrdenImagenesDTO orden) {
+        try {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            if (authentication == null || !(authentication.getPrincipal() instanceof Person person)) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Usuario no autenticado");
+            }
+            
+            mascotasService.reordenarImagenes(mascotaId, orden.getImagenIds(), person);
+            return ResponseEntity.ok().body("Orden de imágenes actualizado");
+        } catch (IllegalArgumentException e) {
+            System.err.println("❌ Error: " + e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (SecurityException e) {
+            System.err.println("❌ Error de seguridad: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(e.getMessage());
+        } catch (Exception e) {
+            System.err.println("❌ Error inesperado: " + e.getMessage());
+            e.printStackTrace();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body("Error al reordenar las imágenes");
+        }
+    }
 }
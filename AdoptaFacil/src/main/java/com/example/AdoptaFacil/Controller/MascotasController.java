@@ -1,21 +1,32 @@
 package com.example.AdoptaFacil.Controller;
 
+import com.example.AdoptaFacil.DTO.FiltroMascotasDTO;
+import com.example.AdoptaFacil.DTO.MascotaResumenDTO;
 import com.example.AdoptaFacil.DTO.MascotasDTO;
+import com.example.AdoptaFacil.DTO.PaginaDTO;
+import com.example.AdoptaFacil.DTO.ResultadoFiltroDTO;
 import com.example.AdoptaFacil.Entity.Mascotas;
 import com.example.AdoptaFacil.Entity.Person;
 import com.example.AdoptaFacil.Entity.Role;
+import com.example.AdoptaFacil.Service.ExportacionMascotasService;
+import com.example.AdoptaFacil.Service.ExportacionMascotasService.FormatoExportacion;
 import com.example.AdoptaFacil.Service.MascotasService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Locale;
 
 /**
  * Controlador REST para la gestión de mascotas
@@ -24,6 +35,11 @@ import java.util.List;
  * - POST /api/mascotas - Crear nueva mascota con imágenes opcionales
  * - GET /api/mascotas/{id} - Obtener mascota por ID
  * - GET /api/mascotas - Listar todas las mascotas o buscar por nombre
+ * - GET /api/mascotas?q=texto - Búsqueda de texto en todo el catálogo (nombre, raza, ciudad, descripción)
+ * - GET /api/mascotas/resumen - Listado ligero paginado por cursor (solo datos básicos e imagen principal)
+ * - GET /api/mascotas/exportar?formato=ndjson|csv - Exportar el catálogo en streaming (ADMIN: todo o ?aliadoId; ALIADO: las suyas)
+ * - GET /api/mascotas/filtro - Filtrar por especie, sexo, ciudad, raza y edad con conteos por faceta
+ * - GET /api/mascotas/admin/pagina - Listar todas las mascotas paginadas por cursor (ADMIN)
  * - PUT /api/mascotas/{id} - Actualizar mascota existente con imágenes opcionales
  * - DELETE /api/mascotas/{id} - Eliminar mascota
  */
@@ -33,6 +49,7 @@ import java.util.List;
 public class MascotasController {
     
     private final MascotasService mascotasService;
+    private final ExportacionMascotasService exportacionMascotasService;
 
     /**
      * Crea una nueva mascota en el sistema
@@ -143,15 +160,27 @@ public class MascotasController {
     /**
      * Lista las mascotas del usuario autenticado (solo para ALIADOs)
      * Si se proporciona el parámetro 'nombre', filtra los resultados
+     * Si se proporciona el parámetro 'q', hace una búsqueda de texto en todo el catálogo
+     * (sin distinguir tildes ni mayúsculas) y devuelve los resultados ordenados por relevancia
      * 
      * @param nombre Nombre opcional para filtrar mascotas
-     * @return Lista de mascotas del usuario autenticado
+     * @param q Texto opcional para buscar en nombre, raza, ciudad y descripción
+     * @return Lista de mascotas del usuario autenticado o resultados de la búsqueda
      */
     @GetMapping
-    public ResponseEntity<?> listarMascotasDelUsuario(@RequestParam(required = false) String nombre) {
+    public ResponseEntity<?> listarMascotasDelUsuario(
+            @RequestParam(required = false) String nombre,
+            @RequestParam(required = false) String q) {
         try {
             System.out.println("\n=== LISTAR MASCOTAS DEL USUARIO - INICIO ===");
             
+            // Modo búsqueda: catálogo completo ordenado por relevancia
+            if (q != null && !q.trim().isEmpty()) {
+                List<MascotasDTO> resultados = mascotasService.buscarPorTexto(q.trim());
+                System.out.println("Resultados de búsqueda '" + q.trim() + "': " + resultados.size());
+                return ResponseEntity.ok(resultados);
+            }
+            
             // Obtener usuario autenticado
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
             if (authentication == null || authentication.getPrincipal() == null) {
@@ -190,6 +219,134 @@ public class MascotasController {
         }
     }
 
+    /**
+     * Listado ligero para vistas de lista: datos básicos e imagen principal de cada mascota
+     * No carga las imágenes de cada mascota (la imagen principal está desnormalizada)
+     * 
+     * @param propias Si es true, solo las mascotas del usuario autenticado
+     * @param cursor Cursor de la página anterior (vacío para la primera)
+     * @param tamano Número de mascotas por página
+     * @return Página de resúmenes con el cursor de la página siguiente
+     */
+    @GetMapping("/resumen")
+    public ResponseEntity<?> listarResumenes(
+            @RequestParam(defaultValue = "false") boolean propias,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int tamano) {
+        try {
+            Long aliadoId = null;
+            if (propias) {
+                Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+                if (authentication == null || !(authentication.getPrincipal() instanceof Person person)) {
+                    return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                        .body("Usuario no autenticado");
+                }
+                aliadoId = person.getIdPerson();
+            }
+            
+            PaginaDTO<MascotaResumenDTO> pagina = mascotasService.listarResumenes(aliadoId, cursor, tamano);
+            return ResponseEntity.ok(pagina);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            System.err.println("Error listando resúmenes de mascotas: " + e.getMessage());
+            e.printStackTrace();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body("Error interno del servidor");
+        }
+    }
+
+    /**
+     * Exporta el catálogo en NDJSON (una mascota por línea) o CSV
+     * La respuesta se escribe mientras se leen las filas (StreamingResponseBody), así que la
+     * memoria usada no depende del tamaño del catálogo
+     * 
+     * @param formato ndjson (por defecto) o csv
+     * @param aliadoId Propietario a exportar (solo ADMIN; sin él se exporta todo el catálogo)
+     * @return Archivo con las mascotas exportadas
+     */
+    @GetMapping("/exportar")
+    public ResponseEntity<?> exportarMascotas(
+            @RequestParam(defaultValue = "ndjson") String formato,
+            @RequestParam(required = false) Long aliadoId) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof Person person)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                .body("Usuario no autenticado");
+        }
+
+        FormatoExportacion tipo;
+        try {
+            tipo = FormatoExportacion.valueOf(formato.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Formato no soportado: " + formato + " (ndjson o csv)");
+        }
+
+        // ADMIN exporta todo o un propietario concreto; el resto, solo sus mascotas
+        boolean esAdmin = person.getRole() != null && person.getRole().getRoleType() == Role.RoleType.ADMIN;
+        if (!esAdmin) {
+            if (aliadoId != null && !aliadoId.equals(person.getIdPerson())) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body("Solo puedes exportar tus propias mascotas");
+            }
+            aliadoId = person.getIdPerson();
+        }
+
+        Long propietario = aliadoId;
+        StreamingResponseBody cuerpo = salida -> exportacionMascotasService.exportar(propietario, tipo, salida);
+        return ResponseEntity.ok()
+                .contentType(tipo == FormatoExportacion.CSV
+                        ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                        : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"mascotas." + tipo.name().toLowerCase(Locale.ROOT) + "\"")
+                .body(cuerpo);
+    }
+
+    /**
+     * Filtra el catálogo de mascotas y devuelve los conteos por faceta
+     * Los conteos (por especie, sexo, ciudad, raza y especie por ciudad) se calculan
+     * desde una caché en memoria que se invalida al crear, actualizar o eliminar mascotas
+     * 
+     * @param especie Especie opcional (Perro, Gato...)
+     * @param sexo Sexo opcional
+     * @param ciudad Ciudad opcional
+     * @param raza Raza opcional
+     * @param edadMin Edad mínima opcional (incluida)
+     * @param edadMax Edad máxima opcional (incluida)
+     * @param cursor Cursor de la página anterior (vacío para la primera)
+     * @param tamano Número de mascotas por página
+     * @return Página de mascotas filtradas y facetas
+     */
+    @GetMapping("/filtro")
+    public ResponseEntity<?> filtrarMascotas(
+            @RequestParam(required = false) String especie,
+            @RequestParam(required = false) String sexo,
+            @RequestParam(required = false) String ciudad,
+            @RequestParam(required = false) String raza,
+            @RequestParam(required = false) Integer edadMin,
+            @RequestParam(required = false) Integer edadMax,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int tamano) {
+        try {
+            if (edadMin != null && edadMax != null && edadMin > edadMax) {
+                return ResponseEntity.badRequest().body("edadMin no puede ser mayor que edadMax");
+            }
+            
+            FiltroMascotasDTO filtro = new FiltroMascotasDTO(
+                    vacioANull(especie), vacioANull(sexo), vacioANull(ciudad), vacioANull(raza), edadMin, edadMax);
+            ResultadoFiltroDTO resultado = mascotasService.filtrarMascotas(filtro, cursor, tamano);
+            return ResponseEntity.ok(resultado);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            System.err.println("Error filtrando mascotas: " + e.getMessage());
+            e.printStackTrace();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body("Error interno del servidor");
+        }
+    }
+
     /**
      * Lista TODAS las mascotas del sistema con información del propietario
      * Solo para usuarios ADMIN
@@ -239,6 +396,44 @@ public class MascotasController {
         }
     }
 
+    /**
+     * Lista las mascotas del sistema con su propietario usando paginación por cursor (keyset)
+     * Solo para usuarios ADMIN
+     * Cada página consulta las mascotas y sus imágenes con dos consultas acotadas,
+     * por lo que la memoria usada no depende del tamaño total del catálogo
+     * 
+     * @param cursor Cursor devuelto en 'siguienteCursor' de la página anterior (vacío para la primera)
+     * @param tamano Número de mascotas por página
+     * @return Página de mascotas con el cursor de la página siguiente
+     */
+    @GetMapping("/admin/pagina")
+    public ResponseEntity<?> listarMascotasPaginadas(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int tamano) {
+        try {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            if (authentication == null || !(authentication.getPrincipal() instanceof Person person)) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body("Usuario no autenticado");
+            }
+            
+            if (person.getRole() == null || person.getRole().getRoleType() != Role.RoleType.ADMIN) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body("Acceso denegado. Solo administradores pueden ver todas las mascotas.");
+            }
+            
+            PaginaDTO<MascotasDTO> pagina = mascotasService.listarMascotasConPropietarioPorCursor(cursor, tamano);
+            return ResponseEntity.ok(pagina);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            System.err.println("Error listando página de mascotas: " + e.getMessage());
+            e.printStackTrace();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body("Error interno del servidor");
+        }
+    }
+
     /**
      * Actualiza una mascota existente en el sistema
      * Permite actualizar datos y adjuntar nuevas imágenes
@@ -375,4 +570,11 @@ public class MascotasController {
                 .body("Error interno del servidor");
         }
     }
+
+    /**
+     * Convierte parámetros vacíos en null para que no se apliquen como filtro
+     */
+    private static String vacioANull(String valor) {
+        return valor == null || valor.trim().isEmpty() ? null : valor.trim();
+    }
 }
@@ -0,0 +1,198 @@
+package com.example.AdoptaFacil.Controller;
+
+import com.example.AdoptaFacil.DTO.CrearSesionSubidaDTO;
+import com.example.AdoptaFacil.DTO.MascotasDTO;
+import com.example.AdoptaFacil.DTO.SesionSubidaDTO;
+import com.example.AdoptaFacil.Entity.Person;
+import com.example.AdoptaFacil.Service.SubidasService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Controlador REST para subidas reanudables de imágenes de mascotas
+ * Pensado para clientes móviles: si la conexión se corta, se reanuda desde el último byte recibido
+ *
+ * Endpoints disponibles:
+ * - POST /api/mascotas/{mascotaId}/imagenes/subidas - Crear sesión ({nombreArchivo, tamano})
+ * - PUT /api/mascotas/{mascotaId}/imagenes/subidas/{id}?offset=N - Enviar fragmento (cuerpo binario)
+ * - GET /api/mascotas/{mascotaId}/imagenes/subidas/{id} - Consultar bytes recibidos
+ * - POST /api/mascotas/{mascotaId}/imagenes/subidas/{id}/finalizar - Añadir la imagen a la mascota
+ * - DELETE /api/mascotas/{mascotaId}/imagenes/subidas/{id} - Cancelar la subida
+ */
+@RestController
+@RequestMapping("/api/mascotas/{mascotaId}/imagenes/subidas")
+@RequiredArgsConstructor
+public class SubidasController {
+
+    private final SubidasService subidasService;
+
+    /**
+     * Crea una sesión de subida y preasigna el archivo
+     *
+     * @param mascotaId ID de la mascota
+     * @param datos Nombre del archivo y tamaño total en bytes
+     * @return Sesión creada (201)
+     */
+    @PostMapping
+    public ResponseEntity<?> crearSesion(@PathVariable Long mascotaId, @RequestBody CrearSesionSubidaDTO datos) {
+        try {
+            Person usuario = usuarioAutenticado();
+            if (usuario == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Usuario no autenticado");
+            }
+            long tamano = datos.getTamano() != null ? datos.getTamano() : 0L;
+            SesionSubidaDTO sesion = subidasService.crearSesion(mascotaId, datos.getNombreArchivo(), tamano, usuario);
+            return ResponseEntity.status(HttpStatus.CREATED).body(sesion);
+        } catch (IllegalArgumentException e) {
+            System.err.println("❌ Error: " + e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (SecurityException e) {
+            System.err.println("❌ Error de seguridad: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(e.getMessage());
+        } catch (Exception e) {
+            System.err.println("❌ Error inesperado creando sesión de subida: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error al crear la sesión de subida");
+        }
+    }
+
+    /**
+     * Recibe un fragmento del archivo en la posición indicada
+     * El cuerpo es binario (application/octet-stream); offset debe ser igual a los bytes ya recibidos
+     *
+     * @param offset Posición del fragmento dentro del archivo
+     * @return Estado de la sesión; 409 con los bytes recibidos si el offset no coincide
+     *         o si ya se está recibiendo otro fragmento de la misma sesión
+     */
+    @PutMapping("/{id}")
+    public ResponseEntity<?> escribirFragmento(@PathVariable Long mascotaId,
+                                               @PathVariable String id,
+                                               @RequestParam("offset") long offset,
+                                               HttpServletRequest request) {
+        try {
+            Person usuario = usuarioAutenticado();
+            if (usuario == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Usuario no autenticado");
+            }
+            SesionSubidaDTO sesion = subidasService.escribirFragmento(
+                    mascotaId, id, offset, request.getInputStream(), request.getContentLengthLong(), usuario);
+            return ResponseEntity.ok(sesion);
+        } catch (IllegalStateException e) {
+            System.err.println("⚠️ Conflicto en subida " + id + ": " + e.getMessage());
+            return conflicto(mascotaId, id, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            System.err.println("❌ Error: " + e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (SecurityException e) {
+            System.err.println("❌ Error de seguridad: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(e.getMessage());
+        } catch (IOException e) {
+            // Conexión cortada: lo recibido hasta aquí ya quedó registrado
+            System.err.println("⚠️ Fragmento interrumpido en subida " + id + ": " + e.getMessage());
+            return conflicto(mascotaId, id, "Fragmento interrumpido, reanudar desde los bytes recibidos");
+        } catch (Exception e) {
+            System.err.println("❌ Error inesperado escribiendo fragmento: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error al recibir el fragmento");
+        }
+    }
+
+    /**
+     * Estado de la sesión (bytes recibidos), para reanudar tras un corte
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<?> obtenerSesion(@PathVariable Long mascotaId, @PathVariable String id) {
+        try {
+            Person usuario = usuarioAutenticado();
+            if (usuario == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Usuario no autenticado");
+            }
+            return ResponseEntity.ok(subidasService.obtenerSesion(mascotaId, id, usuario));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (SecurityException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(e.getMessage());
+        } catch (Exception e) {
+            System.err.println("❌ Error inesperado consultando sesión de subida: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error al consultar la sesión de subida");
+        }
+    }
+
+    /**
+     * Finaliza la subida completa y añade la imagen a la mascota
+     *
+     * @return Mascota actualizada con la nueva imagen
+     */
+    @PostMapping("/{id}/finalizar")
+    public ResponseEntity<?> finalizar(@PathVariable Long mascotaId, @PathVariable String id) {
+        try {
+            Person usuario = usuarioAutenticado();
+            if (usuario == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Usuario no autenticado");
+            }
+            MascotasDTO mascota = subidasService.finalizar(mascotaId, id, usuario);
+            return ResponseEntity.ok(mascota);
+        } catch (IllegalStateException e) {
+            System.err.println("⚠️ No se pudo finalizar la subida " + id + ": " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            System.err.println("❌ Error: " + e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (SecurityException e) {
+            System.err.println("❌ Error de seguridad: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(e.getMessage());
+        } catch (Exception e) {
+            System.err.println("❌ Error inesperado finalizando subida: " + e.getMessage());
+            e.printStackTrace();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error al finalizar la subida");
+        }
+    }
+
+    /**
+     * Cancela la subida y elimina el archivo parcial
+     */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> cancelar(@PathVariable Long mascotaId, @PathVariable String id) {
+        try {
+            Person usuario = usuarioAutenticado();
+            if (usuario == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Usuario no autenticado");
+            }
+            subidasService.cancelar(mascotaId, id, usuario);
+            return ResponseEntity.noContent().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (SecurityException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(e.getMessage());
+        } catch (Exception e) {
+            System.err.println("❌ Error inesperado cancelando subida: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error al cancelar la subida");
+        }
+    }
+
+    /**
+     * 409 con el estado actual, para que el cliente sepa desde qué offset reanudar
+     */
+    private ResponseEntity<?> conflicto(Long mascotaId, String id, String mensaje) {
+        try {
+            SesionSubidaDTO sesion = subidasService.obtenerSesion(mascotaId, id, usuarioAutenticado());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", mensaje, "sesion", sesion));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(mensaje);
+        }
+    }
+
+    private static Person usuarioAutenticado() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof Person person)) {
+            return null;
+        }
+        return person;
+    }
+}
@@ -8,16 +8,21 @@ import com.example.AdoptaFacil.Entity.Person;
 import com.example.AdoptaFacil.Entity.Role;
 import com.example.AdoptaFacil.Repository.PersonRepository;
 import com.example.AdoptaFacil.Repository.RoleRepository;
+import com.example.AdoptaFacil.Security.PasswordHashingService;
 import com.example.AdoptaFacil.Util.JwtUtil;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Controlador de autenticación para AdoptaFácil
@@ -39,112 +44,148 @@ public class AuthController {
     @Autowired
     private RoleRepository roleRepository;
 
+    // BCrypt se ejecuta en un pool acotado, fuera de los hilos de Tomcat
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashingService passwordHashingService;
 
     @Autowired
     private JwtUtil jwtUtil;
 
+    // Lo que sigue al hash (BD, JWT) corre en el executor de tareas de Spring,
+    // no en el pool de hashing: así ese pool solo calcula BCrypt
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private Executor continuaciones;
+
     /**
      * Endpoint para iniciar sesión de usuario
      * Valida credenciales y genera token JWT si son correctas
+     * La respuesta es asíncrona: el hilo de Tomcat no espera a BCrypt (ver PasswordHashingService)
      * 
      * @param loginRequest Datos de inicio de sesión (email y contraseña)
      * @return Token JWT y datos del usuario si la autenticación es exitosa
      */
     @PostMapping("/login")
-    public ResponseEntity<?> login(@Valid @RequestBody LoginRequestDTO loginRequest) {
+    public CompletableFuture<ResponseEntity<?>> login(@Valid @RequestBody LoginRequestDTO loginRequest) {
+        long inicio = System.nanoTime();
         try {
             // Buscar usuario por email en la base de datos
             Optional<Person> personOpt = personRepository.findByEmail(loginRequest.getEmail());
             
             if (personOpt.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-                    .body("Credenciales inválidas");
+                registrarLatencia("login_credenciales_invalidas", inicio);
+                return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body("Credenciales inválidas"));
             }
 
             Person person = personOpt.get();
             
-            // Verificar que la contraseña coincida con el hash almacenado
-            if (!passwordEncoder.matches(loginRequest.getPassword(), person.getPassword())) {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-                    .body("Credenciales inválidas");
-            }
+            // Verificar que la contraseña coincida con el hash almacenado (pool de hashing)
+            return passwordHashingService.verificar(loginRequest.getPassword(), person.getPassword())
+                .<ResponseEntity<?>>thenApplyAsync(coincide -> {
+                    if (!coincide) {
+                        registrarLatencia("login_credenciales_invalidas", inicio);
+                        return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                            .body("Credenciales inválidas");
+                    }
 
-            // Generar token JWT con email y rol del usuario
-            String token = jwtUtil.generateToken(
-                person.getEmail(), 
-                person.getRole().getRoleType().name()
-            );
+                    // Recalcular el hash si se guardó con un coste distinto del configurado (sin esperarlo)
+                    rehashSiEsNecesario(person, loginRequest.getPassword());
 
-            // Crear respuesta con token y datos del usuario
-            PersonDTO personDTO = createPersonDTO(person);
-            AuthResponseDTO authResponse = new AuthResponseDTO(token, personDTO);
-            
-            return ResponseEntity.ok(authResponse);
+                    // Generar token JWT con email y rol del usuario
+                    String token = jwtUtil.generateToken(
+                        person.getEmail(), 
+                        person.getRole().getRoleType().name()
+                    );
+
+                    // Crear respuesta con token y datos del usuario
+                    PersonDTO personDTO = createPersonDTO(person);
+                    AuthResponseDTO authResponse = new AuthResponseDTO(token, personDTO);
+                    
+                    registrarLatencia("login_exito", inicio);
+                    return ResponseEntity.ok(authResponse);
+                }, continuaciones)
+                .exceptionally(e -> errorAsincrono(e, "login", inicio));
             
+        } catch (RejectedExecutionException e) {
+            // Pool de hashing saturado: rechazar rápido en vez de bloquear hilos de Tomcat
+            registrarLatencia("login_rechazado", inicio);
+            return CompletableFuture.completedFuture(servicioSaturado());
         } catch (Exception e) {
+            registrarLatencia("login_error", inicio);
             // Log del error y respuesta genérica para seguridad
             System.err.println("Error en login: " + e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body("Error interno del servidor");
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body("Error interno del servidor"));
         }
     }
 
     /**
      * Endpoint para registrar un nuevo usuario
      * Crea una nueva cuenta de usuario con el rol especificado
+     * La respuesta es asíncrona: el hilo de Tomcat no espera a BCrypt (ver PasswordHashingService)
      * 
      * @param registerRequest Datos de registro (nombre, apellido, email, contraseña, rol)
      * @return Token JWT y datos del usuario si el registro es exitoso
      */
     @PostMapping("/register")
-    public ResponseEntity<?> register(@Valid @RequestBody RegisterRequestDTO registerRequest) {
+    public CompletableFuture<ResponseEntity<?>> register(@Valid @RequestBody RegisterRequestDTO registerRequest) {
+        long inicio = System.nanoTime();
         try {
             // Verificar si el email ya está registrado
             if (personRepository.findByEmail(registerRequest.getEmail()).isPresent()) {
-                return ResponseEntity.status(HttpStatus.CONFLICT)
-                    .body("El email ya está registrado");
+                registrarLatencia("registro_conflicto", inicio);
+                return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body("El email ya está registrado"));
             }
 
             // Buscar el rol especificado en la base de datos
             Optional<Role> roleOpt = roleRepository.findByRoleType(registerRequest.getRole());
             if (roleOpt.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                    .body("Rol inválido");
+                return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Rol inválido"));
             }
 
             Role role = roleOpt.get();
 
-            // Crear nueva instancia de Person con los datos proporcionados
-            Person newPerson = new Person();
-            newPerson.setName(registerRequest.getName());
-            newPerson.setLastName(registerRequest.getLastName());
-            newPerson.setEmail(registerRequest.getEmail());
-            // Codificar la contraseña antes de guardarla
-            newPerson.setPassword(passwordEncoder.encode(registerRequest.getPassword()));
-            newPerson.setRole(role);
-
-            // Guardar el nuevo usuario en la base de datos
-            Person savedPerson = personRepository.save(newPerson);
-
-            // Generar token JWT para el usuario recién registrado
-            String token = jwtUtil.generateToken(
-                savedPerson.getEmail(), 
-                savedPerson.getRole().getRoleType().name()
-            );
-
-            // Crear respuesta con token y datos del usuario
-            PersonDTO personDTO = createPersonDTO(savedPerson);
-            AuthResponseDTO authResponse = new AuthResponseDTO(token, personDTO);
-            
-            return ResponseEntity.status(HttpStatus.CREATED).body(authResponse);
+            // Codificar la contraseña antes de guardarla (pool de hashing)
+            return passwordHashingService.codificar(registerRequest.getPassword())
+                .<ResponseEntity<?>>thenApplyAsync(hash -> {
+                    // Crear nueva instancia de Person con los datos proporcionados
+                    Person newPerson = new Person();
+                    newPerson.setName(registerRequest.getName());
+                    newPerson.setLastName(registerRequest.getLastName());
+                    newPerson.setEmail(registerRequest.getEmail());
+                    newPerson.setPassword(hash);
+                    newPerson.setRole(role);
+
+                    // Guardar el nuevo usuario en la base de datos
+                    Person savedPerson = personRepository.save(newPerson);
+
+                    // Generar token JWT para el usuario recién registrado
+                    String token = jwtUtil.generateToken(
+                        savedPerson.getEmail(), 
+                        savedPerson.getRole().getRoleType().name()
+                    );
+
+                    // Crear respuesta con token y datos del usuario
+                    PersonDTO personDTO = createPersonDTO(savedPerson);
+                    AuthResponseDTO authResponse = new AuthResponseDTO(token, personDTO);
+                    
+                    registrarLatencia("registro_exito", inicio);
+                    return ResponseEntity.status(HttpStatus.CREATED).body(authResponse);
+                }, continuaciones)
+                .exceptionally(e -> errorAsincrono(e, "registro", inicio));
             
+        } catch (RejectedExecutionException e) {
+            registrarLatencia("registro_rechazado", inicio);
+            return CompletableFuture.completedFuture(servicioSaturado());
         } catch (Exception e) {
+            registrarLatencia("registro_error", inicio);
             // Log del error y respuesta genérica para seguridad
             System.err.println("Error en registro: " + e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body("Error interno del servidor");
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body("Error interno del servidor"));
         }
     }
     
@@ -175,4 +216,62 @@ public class AuthController {
         personDTO.setRole(person.getRole());
         return personDTO;
     }
-}
\ No newline at end of file
+
+    /**
+     * Recalcula y guarda el hash de la contraseña si su coste no es el configurado
+     * Se hace en segundo plano: el login no espera al nuevo hash, y un fallo aquí no lo impide
+     * (se reintentará en el siguiente)
+     */
+    private void rehashSiEsNecesario(Person person, String contrasena) {
+        if (!passwordHashingService.necesitaRehash(person.getPassword())) {
+            return;
+        }
+        try {
+            passwordHashingService.codificar(contrasena)
+                .thenAcceptAsync(nuevoHash -> {
+                    personRepository.actualizarPassword(person.getIdPerson(), nuevoHash);
+                    System.out.println("🔐 Hash de contraseña actualizado al coste configurado para: " + person.getEmail());
+                }, continuaciones)
+                .exceptionally(e -> {
+                    System.err.println("⚠️ No se pudo recalcular el hash de la contraseña: " + causa(e).getMessage());
+                    return null;
+                });
+        } catch (RejectedExecutionException e) {
+            System.err.println("⚠️ No se pudo recalcular el hash de la contraseña: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Respuesta para un fallo en la parte asíncrona de login o registro:
+     * 503 si el pool de hashing estaba saturado, 500 en cualquier otro caso
+     */
+    private ResponseEntity<?> errorAsincrono(Throwable e, String operacion, long inicio) {
+        Throwable causa = causa(e);
+        if (causa instanceof RejectedExecutionException) {
+            registrarLatencia(operacion + "_rechazado", inicio);
+            return servicioSaturado();
+        }
+        registrarLatencia(operacion + "_error", inicio);
+        // Log del error y respuesta genérica para seguridad
+        System.err.println("Error en " + operacion + ": " + causa.getMessage());
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+            .body("Error interno del servidor");
+    }
+
+    private static Throwable causa(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+
+    /**
+     * Respuesta 503 con Retry-After cuando el pool de hashing está saturado
+     */
+    private ResponseEntity<?> servicioSaturado() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header("Retry-After", "1")
+            .body("Servicio ocupado, inténtalo de nuevo en unos segundos");
+    }
+
+    private void registrarLatencia(String resultado, long inicio) {
+        passwordHashingService.getLatencias().registrarDesde(resultado, inicio);
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.AdoptaFacil.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Fila del conteo agrupado de mascotas usado para calcular las facetas del filtro
+ * Cada fila representa una combinación distinta de ciudad, especie, sexo, raza y edad
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConteoFacetaDTO {
+    private String ciudad;
+    private String especie;
+    private String sexo;
+    private String raza;
+    private Integer edad;
+    private Long total;
+}
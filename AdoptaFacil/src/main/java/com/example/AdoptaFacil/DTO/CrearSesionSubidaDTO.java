@@ -0,0 +1,12 @@
+package com.example.AdoptaFacil.DTO;
+
+import lombok.Data;
+
+/**
+ * Datos para abrir una sesión de subida reanudable
+ */
+@Data
+public class CrearSesionSubidaDTO {
+    private String nombreArchivo;
+    private Long tamano; // tamaño total del archivo en bytes
+}
@@ -0,0 +1,20 @@
+package com.example.AdoptaFacil.DTO;
+
+import lombok.Data;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Conteos por faceta para la pantalla de filtros
+ * Cada faceta cuenta las mascotas que cumplen los demás filtros activos,
+ * de modo que cada chip muestra cuántos resultados habría al seleccionarlo
+ */
+@Data
+public class FacetasDTO {
+    private Map<String, Long> especie = new TreeMap<>();
+    private Map<String, Long> sexo = new TreeMap<>();
+    private Map<String, Long> ciudad = new TreeMap<>();
+    private Map<String, Long> raza = new TreeMap<>();
+    private Map<String, Map<String, Long>> especiePorCiudad = new TreeMap<>(); // ciudad -> especie -> total
+}
@@ -0,0 +1,20 @@
+package com.example.AdoptaFacil.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Criterios del filtro de mascotas; los campos null no filtran
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FiltroMascotasDTO {
+    private String especie;
+    private String sexo;
+    private String ciudad;
+    private String raza;
+    private Integer edadMin;
+    private Integer edadMax;
+}
@@ -9,6 +9,9 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 public class MascotaImageDTO {
     private Long id;
-    private String imagenPath;
+    private String imagenPath; // URL del original
     private Integer orden;
+    private String thumbnailUrl; // URL de la miniatura (listados); el original si aún no se generó
+    private String mediumUrl; // URL del tamaño medio (detalle)
+    private String fullUrl; // URL del tamaño completo recomprimido
 }
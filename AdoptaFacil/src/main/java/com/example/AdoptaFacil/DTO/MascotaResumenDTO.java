@@ -0,0 +1,23 @@
+package com.example.AdoptaFacil.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Vista ligera de una mascota para listados: solo columnas escalares e imagen principal
+ * Se consulta sin cargar la colección de imágenes ni el propietario
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MascotaResumenDTO {
+    private Long id;
+    private String nombre;
+    private String especie;
+    private String raza;
+    private Integer edad;
+    private String sexo;
+    private String ciudad;
+    private String imagen; // URL de la imagen principal (la consulta devuelve la clave)
+}
@@ -2,7 +2,9 @@ package com.example.AdoptaFacil.DTO;
 
 import lombok.Data;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 @Data
 public class MascotasDTO {
@@ -20,4 +22,39 @@ public class MascotasDTO {
     
     // Información del propietario (para vista de administrador)
     private PersonDTO person; // Datos del propietario que registró la mascota
+
+    /**
+     * Copia independiente (la lista de imágenes y el propietario también se copian)
+     * La usa la caché de mascotas: cada petición recibe su propio DTO
+     */
+    public MascotasDTO copia() {
+        MascotasDTO copia = new MascotasDTO();
+        copia.setId(id);
+        copia.setNombre(nombre);
+        copia.setEspecie(especie);
+        copia.setRaza(raza);
+        copia.setEdad(edad);
+        copia.setFechaNacimiento(fechaNacimiento);
+        copia.setSexo(sexo);
+        copia.setCiudad(ciudad);
+        copia.setDescripcion(descripcion);
+        copia.setImagen(imagen);
+        if (imagenes != null) {
+            copia.setImagenes(imagenes.stream()
+                    .map(i -> new MascotaImageDTO(i.getId(), i.getImagenPath(), i.getOrden(),
+                            i.getThumbnailUrl(), i.getMediumUrl(), i.getFullUrl()))
+                    .collect(Collectors.toCollection(ArrayList::new)));
+        }
+        if (person != null) {
+            PersonDTO propietario = new PersonDTO();
+            propietario.setIdPerson(person.getIdPerson());
+            propietario.setName(person.getName());
+            propietario.setLastName(person.getLastName());
+            propietario.setEmail(person.getEmail());
+            propietario.setPassword(person.getPassword());
+            propietario.setRole(person.getRole()); // datos de referencia de solo lectura
+            copia.setPerson(propietario);
+        }
+        return copia;
+    }
 }
@@ -0,0 +1,13 @@
+package com.example.AdoptaFacil.DTO;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Orden completo deseado de las imágenes de una mascota (la primera será la imagen principal)
+ */
+@Data
+public class OrdenImagenesDTO {
+    private List<Long> imagenIds;
+}
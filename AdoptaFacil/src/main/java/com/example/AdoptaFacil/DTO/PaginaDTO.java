@@ -0,0 +1,20 @@
+package com.example.AdoptaFacil.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Página de resultados paginada por cursor (keyset)
+ * El cliente debe enviar 'siguienteCursor' para pedir la página siguiente
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaginaDTO<T> {
+    private List<T> contenido;
+    private String siguienteCursor; // null cuando no hay más páginas
+    private boolean hayMas;
+}
@@ -0,0 +1,16 @@
+package com.example.AdoptaFacil.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Respuesta del filtro de mascotas: página de resultados más conteos por faceta
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoFiltroDTO {
+    private PaginaDTO<MascotasDTO> mascotas;
+    private FacetasDTO facetas;
+}
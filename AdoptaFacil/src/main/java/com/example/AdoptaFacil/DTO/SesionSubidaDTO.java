@@ -0,0 +1,22 @@
+package com.example.AdoptaFacil.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Estado de una sesión de subida reanudable
+ * El cliente debe enviar el siguiente fragmento con offset = 'recibido'
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SesionSubidaDTO {
+    private String id;
+    private Long mascotaId;
+    private String nombreArchivo;
+    private Long tamano;
+    private Long recibido;
+    private boolean completa;
+    private Integer tamanoFragmento; // tamaño de fragmento recomendado en bytes
+}
@@ -0,0 +1,30 @@
+package com.example.AdoptaFacil.Entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Archivo de imagen almacenado por contenido (nombre = hash SHA-256)
+ * Varias filas de MascotaImage pueden apuntar al mismo archivo; el archivo solo se
+ * borra del disco cuando 'referencias' llega a cero
+ */
+@Data
+@Entity
+@Table(name = "archivos_imagen")
+public class ArchivoImagen {
+
+    @Id
+    @Column(length = 64)
+    private String hash; // SHA-256 en hexadecimal
+
+    @Column(nullable = false)
+    private String ruta;
+
+    @Column(nullable = false)
+    private Integer referencias = 0;
+
+    @Column(name = "creado_en", nullable = false)
+    private LocalDateTime creadoEn;
+}
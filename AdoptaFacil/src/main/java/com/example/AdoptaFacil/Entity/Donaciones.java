@@ -11,7 +11,8 @@ import java.time.LocalDateTime;
 public class Donaciones {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "donaciones_seq")
+    @SequenceGenerator(name = "donaciones_seq", sequenceName = "donaciones_seq", allocationSize = 50)
     private Long id;
 
     // Relación con la persona que dona
@@ -3,6 +3,8 @@ package com.example.AdoptaFacil.Entity;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import lombok.Data;
 import lombok.ToString;
 
@@ -10,6 +12,9 @@ import java.util.Set;
 
 @Entity
 @Table(name = "role")
+// Datos de referencia (ADMIN, CLIENTE, ALIADO): caché de segundo nivel de solo lectura
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY, region = "roles")
 @Data
 @ToString(exclude = "person") // Excluir person del toString para evitar LazyInitializationException
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
@@ -0,0 +1,45 @@
+package com.example.AdoptaFacil.Entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Sesión de subida reanudable de una imagen de mascota
+ * El archivo se recibe por fragmentos en un archivo preasignado; 'recibido' es el
+ * desplazamiento desde el que el cliente debe continuar
+ */
+@Data
+@Entity
+@Table(name = "sesiones_subida")
+public class SesionSubida {
+
+    @Id
+    @Column(length = 36)
+    private String id; // UUID
+
+    @Column(name = "mascota_id", nullable = false)
+    private Long mascotaId;
+
+    @Column(name = "propietario_id", nullable = false)
+    private Long propietarioId; // usuario que creó la sesión
+
+    @Column(name = "nombre_archivo", nullable = false)
+    private String nombreArchivo;
+
+    @Column(nullable = false)
+    private Long tamano; // tamaño total declarado en bytes
+
+    @Column(nullable = false)
+    private Long recibido = 0L; // bytes contiguos ya escritos
+
+    @Column(nullable = false)
+    private String ruta; // archivo preasignado en upload.path/.subidas
+
+    @Column(name = "creada_en", nullable = false)
+    private LocalDateTime creadaEn;
+
+    @Column(name = "actualizada_en", nullable = false)
+    private LocalDateTime actualizadaEn;
+}
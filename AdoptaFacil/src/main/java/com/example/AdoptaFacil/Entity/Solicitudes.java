@@ -10,7 +10,8 @@ import jakarta.validation.constraints.NotBlank;
 @Data
 public class Solicitudes {
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "solicitudes_seq")
+	@SequenceGenerator(name = "solicitudes_seq", sequenceName = "solicitudes_seq", allocationSize = 50)
 	private Long id;
 
 	@ManyToOne(fetch = FetchType.LAZY)
@@ -80,7 +80,7 @@ public class DonacionesServiceImpl implements DonacionesService {
         Person donante = personRepository.findById(donanteId)
                 .orElseThrow(() -> new RuntimeException("Donante no encontrado"));
 
-        return donacionesRepository.findByDonante(donante).stream()
+        return donacionesRepository.findByDonanteOrderByFechaDonacionDesc(donante).stream()
                 .map(d -> new DonacionesDTO(
                         d.getId(),
                         d.getDonante().getIdPerson(),
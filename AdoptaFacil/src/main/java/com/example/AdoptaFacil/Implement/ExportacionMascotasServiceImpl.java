@@ -0,0 +1,183 @@
+package com.example.AdoptaFacil.Implement;
+
+import com.example.AdoptaFacil.Entity.Mascotas;
+import com.example.AdoptaFacil.Repository.MascotasRepository;
+import com.example.AdoptaFacil.Service.ExportacionMascotasService;
+import com.example.AdoptaFacil.Service.StorageService;
+import com.example.AdoptaFacil.Util.ClavesAlmacenamiento;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+
+/**
+ * Exportación del catálogo de mascotas sin cargarlo entero en memoria
+ *
+ * - Las filas llegan de un Stream<Mascotas> con fetch size JDBC (cursor en PostgreSQL)
+ * - Cada mascota se escribe y se separa de la sesión (detach): el contexto de persistencia no crece
+ * - Solo se leen columnas de 'mascotas' (la imagen principal está desnormalizada), sin consultas por fila
+ * - La sesión no usa la caché de segundo nivel: una exportación completa expulsaría las mascotas más consultadas
+ *
+ * Se ejecuta en el hilo de StreamingResponseBody, con su propia transacción de solo lectura.
+ */
+@Service
+public class ExportacionMascotasServiceImpl implements ExportacionMascotasService {
+
+    private static final String[] COLUMNAS = {
+            "id", "nombre", "especie", "raza", "edad", "fechaNacimiento", "sexo", "ciudad",
+            "descripcion", "imagen", "idPropietario"
+    };
+
+    private final MascotasRepository mascotasRepository;
+    private final StorageService storageService;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transaccionLectura;
+
+    public ExportacionMascotasServiceImpl(MascotasRepository mascotasRepository,
+                                          StorageService storageService,
+                                          EntityManager entityManager,
+                                          ObjectMapper objectMapper,
+                                          PlatformTransactionManager transactionManager) {
+        this.mascotasRepository = mascotasRepository;
+        this.storageService = storageService;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.transaccionLectura = new TransactionTemplate(transactionManager);
+        this.transaccionLectura.setReadOnly(true);
+    }
+
+    @Override
+    public long exportar(Long aliadoId, FormatoExportacion formato, OutputStream salida) throws IOException {
+        System.out.println("\n=== EXPORT: Exportando mascotas en " + formato + (aliadoId != null ? " del propietario " + aliadoId : "") + " ===");
+        long inicio = System.nanoTime();
+
+        Writer escritor = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8), 64 * 1024);
+        JsonGenerator json = null;
+        if (formato == FormatoExportacion.NDJSON) {
+            // Cada flush solo vuelca el generador al buffer; el salto de línea separa los objetos
+            json = objectMapper.getFactory().createGenerator(escritor)
+                    .disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+            json.setRootValueSeparator(null);
+        }
+        if (formato == FormatoExportacion.CSV) {
+            escritor.write(String.join(",", COLUMNAS));
+            escritor.write("\r\n");
+        }
+
+        JsonGenerator generador = json;
+        Long total;
+        try {
+            total = transaccionLectura.execute(status -> {
+                long filas = 0;
+                // En la sesión y no como hint de la consulta: con un Stream, Hibernate restaura el modo
+                // de caché de la consulta antes de leer las filas
+                entityManager.unwrap(Session.class).setCacheMode(CacheMode.IGNORE);
+                try (Stream<Mascotas> mascotas = mascotasRepository.streamCatalogo(aliadoId)) {
+                    for (Mascotas mascota : (Iterable<Mascotas>) mascotas::iterator) {
+                        if (generador != null) {
+                            escribirJson(generador, mascota);
+                            generador.flush();
+                            escritor.write('\n');
+                        } else {
+                            escribirCsv(escritor, mascota);
+                        }
+                        // Sin esto, la sesión retendría todas las entidades leídas hasta el final
+                        entityManager.detach(mascota);
+                        filas++;
+                    }
+                } catch (IOException e) {
+                    // El cliente cerró la conexión: se cierra el cursor y se aborta la transacción
+                    throw new UncheckedIOException(e);
+                }
+                return filas;
+            });
+        } catch (UncheckedIOException e) {
+            System.err.println("⚠️ Exportación interrumpida: " + e.getCause().getMessage());
+            throw e.getCause();
+        }
+        escritor.flush();
+
+        System.out.println("✅ Mascotas exportadas: " + total + " en " + (System.nanoTime() - inicio) / 1_000_000 + " ms");
+        return total != null ? total : 0L;
+    }
+
+    private void escribirJson(JsonGenerator json, Mascotas m) throws IOException {
+        json.writeStartObject();
+        json.writeObjectField("id", m.getId());
+        json.writeStringField("nombre", m.getNombre());
+        json.writeStringField("especie", m.getEspecie());
+        json.writeStringField("raza", m.getRaza());
+        json.writeObjectField("edad", m.getEdad());
+        json.writeStringField("fechaNacimiento", m.getFechaNacimiento() != null ? m.getFechaNacimiento().toString() : null);
+        json.writeStringField("sexo", m.getSexo());
+        json.writeStringField("ciudad", m.getCiudad());
+        json.writeStringField("descripcion", m.getDescripcion());
+        json.writeStringField("imagen", urlImagen(m));
+        json.writeObjectField("idPropietario", idPropietario(m));
+        json.writeEndObject();
+    }
+
+    private void escribirCsv(Writer escritor, Mascotas m) throws IOException {
+        Object[] valores = {
+                m.getId(), m.getNombre(), m.getEspecie(), m.getRaza(), m.getEdad(), m.getFechaNacimiento(),
+                m.getSexo(), m.getCiudad(), m.getDescripcion(), urlImagen(m), idPropietario(m)
+        };
+        for (int i = 0; i < valores.length; i++) {
+            if (i > 0) {
+                escritor.write(',');
+            }
+            if (valores[i] != null) {
+                escritor.write(campoCsv(valores[i].toString()));
+            }
+        }
+        escritor.write("\r\n");
+    }
+
+    /**
+     * Campo CSV (RFC 4180): entre comillas si lleva separadores, comillas o saltos de línea
+     * Los textos que empiezan por =, +, - o @ se prefijan con ' para que una hoja de cálculo
+     * no los interprete como fórmulas
+     */
+    private static String campoCsv(String valor) {
+        if (!valor.isEmpty() && "=+-@".indexOf(valor.charAt(0)) >= 0 && !esNumero(valor)) {
+            valor = "'" + valor;
+        }
+        boolean comillas = valor.indexOf(',') >= 0 || valor.indexOf('"') >= 0
+                || valor.indexOf('\n') >= 0 || valor.indexOf('\r') >= 0;
+        return comillas ? "\"" + valor.replace("\"", "\"\"") + "\"" : valor;
+    }
+
+    private static boolean esNumero(String valor) {
+        for (int i = 1; i < valor.length(); i++) {
+            if (!Character.isDigit(valor.charAt(i))) {
+                return false;
+            }
+        }
+        return valor.length() > 1;
+    }
+
+    private String urlImagen(Mascotas m) {
+        return m.getImagen() != null && !m.getImagen().isEmpty()
+                ? storageService.url(ClavesAlmacenamiento.normalizar(m.getImagen()))
+                : null;
+    }
+
+    // El ID del proxy lazy se lee sin inicializarlo (no consulta 'person')
+    private static Long idPropietario(Mascotas m) {
+        return m.getALIADO() != null ? m.getALIADO().getIdPerson() : null;
+    }
+}
@@ -0,0 +1,302 @@
+package com.example.AdoptaFacil.Implement;
+
+import com.example.AdoptaFacil.Config.EnrutamientoLecturas;
+import com.example.AdoptaFacil.Service.ImagenesHuerfanasService;
+import com.example.AdoptaFacil.Util.ClavesAlmacenamiento;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Recolector de imágenes huérfanas del almacenamiento local
+ *
+ * Los archivos se escriben antes o después de la transacción y los borrados que fallan solo
+ * se registran, así que upload.path acumula archivos sin ninguna fila que los referencie.
+ * Periódicamente se recorre el árbol con Files.walkFileTree y:
+ * - Se ignoran los directorios ocultos (.staging, .subidas) y los archivos más recientes que el periodo de gracia
+ *   (una subida o una variante puede estar a medio confirmar)
+ * - Las claves se comprueban contra la BD por lotes ordenados de tamaño fijo: la memoria no depende
+ *   del número de archivos ni de filas
+ * - Las claves se consultan en la primaria: en una réplica atrasada faltarían las filas recientes
+ *   y se borrarían archivos en uso
+ * - Los archivos por contenido (<sha256>.<ext> y sus variantes) se vuelven a comprobar uno a uno
+ *   con el bloqueo por hash que toman ArchivoImagenRepository.sumarReferencia y el borrado de
+ *   MascotasServiceImpl: una subida del mismo contenido reutiliza el archivo sin cambiar su fecha,
+ *   así que el periodo de gracia no la protege. Si archivos_imagen o mascota_images lo referencian, se conserva
+ * - Con simulacion=true solo se cuentan los huérfanos y los bytes que se recuperarían
+ */
+@Service
+public class ImagenesHuerfanasServiceImpl implements ImagenesHuerfanasService {
+
+    // Claves del lote que siguen referenciadas (cada columna usa su índice)
+    private static final String CLAVES_REFERENCIADAS =
+            "SELECT imagen_path FROM mascota_images WHERE imagen_path = ANY(?) "
+                    + "UNION SELECT thumbnail_path FROM mascota_images WHERE thumbnail_path = ANY(?) "
+                    + "UNION SELECT medium_path FROM mascota_images WHERE medium_path = ANY(?) "
+                    + "UNION SELECT full_path FROM mascota_images WHERE full_path = ANY(?) "
+                    + "UNION SELECT imagen FROM mascotas WHERE imagen = ANY(?)";
+
+    // Mismo bloqueo que ArchivoImagenRepository.sumarReferencia (hasta el fin de la transacción)
+    private static final String BLOQUEO_HASH = "SELECT pg_advisory_xact_lock(hashtext(?))";
+    private static final String HASH_REGISTRADO = "SELECT EXISTS (SELECT 1 FROM archivos_imagen WHERE hash = ?)";
+
+    // <sha256>.<ext> o una de sus variantes (<sha256>_thumb.jpg...)
+    private static final Pattern NOMBRE_POR_HASH = Pattern.compile("^([0-9a-f]{64})(_[a-z]+)?\\.[a-z0-9]{1,5}$");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EnrutamientoLecturas enrutamiento;
+    private final Path uploadDir;
+    private final Duration gracia;
+    private final int tamanoLote;
+    private final boolean habilitado;
+    private final boolean simulacionProgramada;
+
+    private final AtomicBoolean enEjecucion = new AtomicBoolean();
+    private final LongAdder ejecuciones = new LongAdder();
+    private final LongAdder eliminadosTotal = new LongAdder();
+    private final LongAdder bytesRecuperadosTotal = new LongAdder();
+    private volatile Map<String, Object> ultimaEjecucion;
+
+    public ImagenesHuerfanasServiceImpl(JdbcTemplate jdbcTemplate,
+                                        TransactionTemplate transactionTemplate,
+                                        EnrutamientoLecturas enrutamiento,
+                                        @Value("${upload.path}") String uploadPath,
+                                        @Value("${imagenes.huerfanas.gracia-horas:24}") long graciaHoras,
+                                        @Value("${imagenes.huerfanas.lote:1000}") int tamanoLote,
+                                        @Value("${imagenes.huerfanas.habilitado:true}") boolean habilitado,
+                                        @Value("${imagenes.huerfanas.simulacion:false}") boolean simulacionProgramada) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.enrutamiento = enrutamiento;
+        this.uploadDir = Paths.get(uploadPath).toAbsolutePath().normalize();
+        this.gracia = Duration.ofHours(graciaHoras);
+        this.tamanoLote = tamanoLote;
+        this.habilitado = habilitado;
+        this.simulacionProgramada = simulacionProgramada;
+    }
+
+    /**
+     * Ejecución periódica (en modo simulación si imagenes.huerfanas.simulacion=true)
+     */
+    @Scheduled(initialDelayString = "${imagenes.huerfanas.retraso-inicial-ms:600000}",
+            fixedDelayString = "${imagenes.huerfanas.intervalo-ms:86400000}")
+    public void recolectarProgramado() {
+        if (!habilitado) {
+            return;
+        }
+        try {
+            recolectar(simulacionProgramada);
+        } catch (IllegalStateException e) {
+            System.out.println("⏭️ Recolección de huérfanas omitida: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public Map<String, Object> recolectar(boolean simulacion) {
+        if (!enEjecucion.compareAndSet(false, true)) {
+            throw new IllegalStateException("Ya hay una recolección de imágenes huérfanas en curso");
+        }
+        try {
+            System.out.println("\n=== GC: Buscando imágenes huérfanas en " + uploadDir + (simulacion ? " (simulación)" : "") + " ===");
+            long inicio = System.nanoTime();
+            Recorrido recorrido = new Recorrido(simulacion, Instant.now().minus(gracia));
+            if (Files.isDirectory(uploadDir)) {
+                Files.walkFileTree(uploadDir, recorrido);
+                recorrido.procesarLote();
+            }
+
+            Map<String, Object> resultado = new LinkedHashMap<>();
+            resultado.put("fecha", LocalDateTime.now().toString());
+            resultado.put("simulacion", simulacion);
+            resultado.put("revisados", recorrido.revisados);
+            resultado.put("enPeriodoDeGracia", recorrido.recientes);
+            resultado.put("huerfanos", recorrido.huerfanos);
+            resultado.put("bytesHuerfanos", recorrido.bytesHuerfanos);
+            resultado.put("eliminados", recorrido.eliminados);
+            resultado.put("bytesRecuperados", recorrido.bytesRecuperados);
+            resultado.put("errores", recorrido.errores);
+            resultado.put("duracionMs", Duration.ofNanos(System.nanoTime() - inicio).toMillis());
+
+            ejecuciones.increment();
+            eliminadosTotal.add(recorrido.eliminados);
+            bytesRecuperadosTotal.add(recorrido.bytesRecuperados);
+            ultimaEjecucion = resultado;
+
+            System.out.println("🧹 Huérfanas: " + recorrido.huerfanos + " de " + recorrido.revisados + " archivos, "
+                    + recorrido.eliminados + " eliminadas (" + recorrido.bytesRecuperados + " bytes recuperados)");
+            return resultado;
+        } catch (IOException e) {
+            System.err.println("❌ Error recorriendo el directorio de uploads: " + e.getMessage());
+            throw new IllegalStateException("Error recorriendo el directorio de uploads: " + e.getMessage());
+        } finally {
+            enEjecucion.set(false);
+        }
+    }
+
+    @Override
+    public Map<String, Object> estadisticas() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("habilitado", habilitado);
+        stats.put("enEjecucion", enEjecucion.get());
+        stats.put("graciaHoras", gracia.toHours());
+        stats.put("ejecuciones", ejecuciones.sum());
+        stats.put("eliminados", eliminadosTotal.sum());
+        stats.put("bytesRecuperados", bytesRecuperadosTotal.sum());
+        stats.put("ultimaEjecucion", ultimaEjecucion);
+        return stats;
+    }
+
+    /**
+     * Recorre el árbol acumulando candidatos (archivos fuera del periodo de gracia)
+     * y los contrasta con la BD cada 'tamanoLote' archivos
+     */
+    private class Recorrido extends SimpleFileVisitor<Path> {
+
+        private final boolean simulacion;
+        private final Instant limite;
+        // Ordenado por clave: cada consulta recorre los índices en orden
+        private final TreeMap<String, Candidato> lote = new TreeMap<>();
+
+        private long revisados;
+        private long recientes;
+        private long huerfanos;
+        private long bytesHuerfanos;
+        private long eliminados;
+        private long bytesRecuperados;
+        private long errores;
+
+        Recorrido(boolean simulacion, Instant limite) {
+            this.simulacion = simulacion;
+            this.limite = limite;
+        }
+
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+            // .staging y .subidas tienen su propia limpieza
+            if (!dir.equals(uploadDir) && dir.getFileName().toString().startsWith(".")) {
+                return FileVisitResult.SKIP_SUBTREE;
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path archivo, BasicFileAttributes attrs) {
+            if (!attrs.isRegularFile()) {
+                return FileVisitResult.CONTINUE;
+            }
+            revisados++;
+            if (!attrs.lastModifiedTime().toInstant().isBefore(limite)) {
+                recientes++;
+                return FileVisitResult.CONTINUE;
+            }
+            String clave = uploadDir.relativize(archivo).toString().replace('\\', '/');
+            if (!ClavesAlmacenamiento.esValida(clave)) {
+                return FileVisitResult.CONTINUE;
+            }
+            lote.put(clave, new Candidato(archivo, attrs.size()));
+            if (lote.size() >= tamanoLote) {
+                procesarLote();
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path archivo, IOException e) {
+            errores++;
+            System.err.println("⚠️ No se pudo leer " + archivo + ": " + e.getMessage());
+            return FileVisitResult.CONTINUE;
+        }
+
+        void procesarLote() {
+            if (lote.isEmpty()) {
+                return;
+            }
+            String[] claves = lote.keySet().toArray(String[]::new);
+            Set<String> referenciadas = new HashSet<>(enrutamiento.enPrimaria(() -> jdbcTemplate.queryForList(
+                    CLAVES_REFERENCIADAS, String.class, claves, claves, claves, claves, claves)));
+
+            for (Map.Entry<String, Candidato> entrada : lote.entrySet()) {
+                if (referenciadas.contains(entrada.getKey())) {
+                    continue;
+                }
+                String hash = hashDelNombre(entrada.getKey());
+                if (hash == null) {
+                    registrarHuerfano(entrada.getKey(), entrada.getValue());
+                    continue;
+                }
+                // Contenido deduplicado: se comprueba de nuevo y se borra con el bloqueo por hash tomado
+                // (las transacciones de escritura van siempre a la primaria)
+                transactionTemplate.executeWithoutResult(status -> {
+                    jdbcTemplate.query(BLOQUEO_HASH, rs -> null, hash);
+                    // En sentencias aparte: su instantánea ya incluye lo confirmado antes de obtener el bloqueo
+                    if (!sigueReferenciado(hash, entrada.getKey())) {
+                        registrarHuerfano(entrada.getKey(), entrada.getValue());
+                    }
+                });
+            }
+            lote.clear();
+        }
+
+        /**
+         * Cuenta el archivo como huérfano y, fuera de la simulación, lo elimina
+         */
+        private void registrarHuerfano(String clave, Candidato candidato) {
+            huerfanos++;
+            bytesHuerfanos += candidato.tamano();
+            if (simulacion) {
+                return;
+            }
+            try {
+                if (Files.deleteIfExists(candidato.ruta())) {
+                    eliminados++;
+                    bytesRecuperados += candidato.tamano();
+                }
+            } catch (IOException e) {
+                errores++;
+                System.err.println("⚠️ No se pudo eliminar la imagen huérfana " + clave + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Hash del contenido si el nombre del archivo lo lleva; null en los nombres por UUID o antiguos
+     */
+    private static String hashDelNombre(String clave) {
+        Matcher m = NOMBRE_POR_HASH.matcher(ClavesAlmacenamiento.nombre(clave));
+        return m.matches() ? m.group(1) : null;
+    }
+
+    private boolean sigueReferenciado(String hash, String clave) {
+        if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(HASH_REGISTRADO, Boolean.class, hash))) {
+            return true;
+        }
+        String[] claves = {clave};
+        return !jdbcTemplate.queryForList(CLAVES_REFERENCIADAS, String.class, claves, claves, claves, claves, claves).isEmpty();
+    }
+
+    private record Candidato(Path ruta, long tamano) {
+    }
+}
@@ -0,0 +1,574 @@
+package com.example.AdoptaFacil.Implement;
+
+import com.example.AdoptaFacil.Cache.FacetasMascotasCache;
+import com.example.AdoptaFacil.Entity.Mascotas;
+import com.example.AdoptaFacil.Service.ImportacionMascotasService;
+import com.example.AdoptaFacil.Util.ClavesAlmacenamiento;
+import com.example.AdoptaFacil.Util.EstadisticasLatencia;
+import com.example.AdoptaFacil.Util.TextoUtil;
+import com.example.AdoptaFacil.Util.TransaccionUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.util.UriUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Importación masiva de mascotas desde CSV
+ *
+ * - El cuerpo se lee registro a registro: cada fila se valida al llegar y en memoria solo
+ *   está el lote en curso ('mascotas.importacion.lote' filas)
+ * - Los IDs se reservan de mascotas_seq por bloques, como hace Hibernate (Mascotas.IDS_POR_RESERVA)
+ * - Cada lote se inserta con un único batch JDBC y en su propia transacción; si el batch falla,
+ *   ese lote se reintenta fila a fila para señalar exactamente qué filas no se pudieron insertar
+ * - Los propietarios se comprueban con una consulta por lote (los ya vistos no se vuelven a consultar)
+ * - El informe devuelve, por número de línea, el motivo de cada fila rechazada (hasta 'max-errores')
+ *
+ * Formatos aceptados:
+ * - Con cabecera: nombres de columna como los de la exportación (nombre, especie, raza, edad,
+ *   fechaNacimiento, sexo, ciudad, descripcion, imagen, idPropietario) en cualquier orden
+ * - Sin cabecera: el volcado de la tabla (database/adoptafacil_db.csv): id, ciudad, descripcion,
+ *   edad, especie, fecha_nacimiento, imagen, nombre, raza, sexo, id_person
+ * El id de la fila, si viene, se ignora: la BD asigna uno nuevo.
+ */
+@Service
+public class ImportacionMascotasServiceImpl implements ImportacionMascotasService {
+
+    private static final String INSERTAR = "INSERT INTO mascotas (id_mascota, nombre, especie, raza, edad, fecha_nacimiento, "
+            + "sexo, ciudad, descripcion, imagen, busqueda, id_person) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // Cada nextval reserva el bloque (v - IDS_POR_RESERVA, v], igual que el optimizador pooled de Hibernate
+    private static final String RESERVAR_IDS = "SELECT nextval('mascotas_seq') FROM generate_series(1, ?)";
+
+    private static final String PROPIETARIOS_EXISTENTES = "SELECT id_person FROM person WHERE id_person = ANY(?)";
+
+    // Columnas de destino (nombres normalizados: minúsculas y sin separadores)
+    private static final String ID = "id";
+    private static final String NOMBRE = "nombre";
+    private static final String ESPECIE = "especie";
+    private static final String RAZA = "raza";
+    private static final String EDAD = "edad";
+    private static final String FECHA_NACIMIENTO = "fechanacimiento";
+    private static final String SEXO = "sexo";
+    private static final String CIUDAD = "ciudad";
+    private static final String DESCRIPCION = "descripcion";
+    private static final String IMAGEN = "imagen";
+    private static final String PROPIETARIO = "idpropietario";
+
+    private static final List<String> COLUMNAS = List.of(ID, NOMBRE, ESPECIE, RAZA, EDAD, FECHA_NACIMIENTO,
+            SEXO, CIUDAD, DESCRIPCION, IMAGEN, PROPIETARIO);
+    private static final List<String> OBLIGATORIAS = List.of(NOMBRE, ESPECIE, RAZA, EDAD);
+
+    // Orden de columnas del volcado de la tabla, sin cabecera
+    private static final List<String> COLUMNAS_VOLCADO = List.of(ID, CIUDAD, DESCRIPCION, EDAD, ESPECIE,
+            FECHA_NACIMIENTO, IMAGEN, NOMBRE, RAZA, SEXO, PROPIETARIO);
+
+    private static final Map<String, String> ALIAS = Map.of(
+            "idmascota", ID,
+            "idperson", PROPIETARIO,
+            "aliado", PROPIETARIO,
+            "propietario", PROPIETARIO);
+
+    // Las URLs de la exportación con almacenamiento local llevan la clave tras este prefijo
+    private static final String PREFIJO_URL_IMAGEN = "/api/imagenes/";
+
+    private static final int MAX_EDAD = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final FacetasMascotasCache facetasCache;
+    private final TransactionTemplate transaccion;
+    private final int tamanoLote;
+    private final int maxErrores;
+    private final int maxCaracteresRegistro;
+
+    private final EstadisticasLatencia latenciasLote = new EstadisticasLatencia();
+
+    public ImportacionMascotasServiceImpl(JdbcTemplate jdbcTemplate,
+                                          FacetasMascotasCache facetasCache,
+                                          PlatformTransactionManager transactionManager,
+                                          @Value("${mascotas.importacion.lote:500}") int tamanoLote,
+                                          @Value("${mascotas.importacion.max-errores:1000}") int maxErrores,
+                                          @Value("${mascotas.importacion.max-caracteres-registro:65536}") int maxCaracteresRegistro) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.facetasCache = facetasCache;
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.tamanoLote = Math.max(1, tamanoLote);
+        this.maxErrores = maxErrores;
+        this.maxCaracteresRegistro = maxCaracteresRegistro;
+    }
+
+    @Override
+    public Map<String, Object> importar(InputStream entrada, Long aliadoId) throws IOException {
+        System.out.println("\n=== IMPORT: Importando mascotas desde CSV (lotes de " + tamanoLote + ") ===");
+        long inicio = System.nanoTime();
+
+        LectorCsv lector = new LectorCsv(new BufferedReader(
+                new InputStreamReader(entrada, StandardCharsets.UTF_8), 64 * 1024), maxCaracteresRegistro);
+        Importacion importacion = new Importacion(aliadoId);
+
+        List<String> registro = lector.leer();
+        if (registro == null) {
+            throw new IllegalArgumentException("El CSV está vacío");
+        }
+        Map<String, Integer> indices = indicesCabecera(registro);
+        boolean conCabecera = indices != null;
+        if (!conCabecera) {
+            indices = new HashMap<>();
+            for (int i = 0; i < COLUMNAS_VOLCADO.size(); i++) {
+                indices.put(COLUMNAS_VOLCADO.get(i), i);
+            }
+        }
+        int columnas = conCabecera ? registro.size() : COLUMNAS_VOLCADO.size();
+
+        String abortada = null;
+        try {
+            if (!conCabecera) {
+                importacion.procesar(lector.lineaInicio(), registro, indices, columnas);
+            }
+            while ((registro = lector.leer()) != null) {
+                importacion.procesar(lector.lineaInicio(), registro, indices, columnas);
+            }
+        } catch (IllegalArgumentException e) {
+            // CSV mal formado a partir de aquí: se insertan las filas válidas ya leídas y se informa
+            abortada = e.getMessage();
+            System.err.println("❌ Importación detenida: " + abortada);
+        }
+        importacion.insertarLote();
+
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        resultado.put("cabecera", conCabecera);
+        resultado.put("filasLeidas", importacion.leidas);
+        resultado.put("insertadas", importacion.insertadas);
+        resultado.put("rechazadas", importacion.rechazadas);
+        resultado.put("lotes", importacion.lotes);
+        resultado.put("duracionMs", Duration.ofNanos(System.nanoTime() - inicio).toMillis());
+        resultado.put("abortada", abortada);
+        resultado.put("errores", importacion.errores);
+        resultado.put("erroresOmitidos", Math.max(0, importacion.rechazadas - importacion.errores.size()));
+        resultado.put("latenciasLote", latenciasLote.estadisticas());
+
+        System.out.println("✅ Importación: " + importacion.insertadas + " insertadas, " + importacion.rechazadas
+                + " rechazadas de " + importacion.leidas + " filas en " + resultado.get("duracionMs") + " ms");
+        return resultado;
+    }
+
+    /**
+     * Interpreta el primer registro como cabecera si contiene la columna 'nombre'
+     *
+     * @return Índice de cada columna conocida, o null si el registro es una fila de datos
+     * @throws IllegalArgumentException si la cabecera tiene columnas desconocidas, repetidas o le faltan obligatorias
+     */
+    private static Map<String, Integer> indicesCabecera(List<String> registro) {
+        List<String> nombres = new ArrayList<>(registro.size());
+        for (String campo : registro) {
+            String nombre = TextoUtil.normalizar(campo).replaceAll("[^a-z0-9]", "");
+            nombres.add(ALIAS.getOrDefault(nombre, nombre));
+        }
+        if (!nombres.contains(NOMBRE)) {
+            return null;
+        }
+        Map<String, Integer> indices = new HashMap<>();
+        for (int i = 0; i < nombres.size(); i++) {
+            String nombre = nombres.get(i);
+            if (!COLUMNAS.contains(nombre)) {
+                throw new IllegalArgumentException("Columna desconocida en la cabecera: " + registro.get(i));
+            }
+            if (indices.put(nombre, i) != null) {
+                throw new IllegalArgumentException("Columna repetida en la cabecera: " + registro.get(i));
+            }
+        }
+        for (String obligatoria : OBLIGATORIAS) {
+            if (!indices.containsKey(obligatoria)) {
+                throw new IllegalArgumentException("Falta la columna obligatoria: " + obligatoria);
+            }
+        }
+        return indices;
+    }
+
+    /**
+     * Estado de una importación: lote en curso, propietarios ya comprobados e informe de errores
+     */
+    private class Importacion {
+
+        private final Long aliadoPorDefecto;
+        private final List<FilaValida> lote = new ArrayList<>();
+        private final Set<Long> propietariosExistentes = new HashSet<>();
+        private final Set<Long> propietariosInexistentes = new HashSet<>();
+        private final List<Map<String, Object>> errores = new ArrayList<>();
+
+        private long leidas;
+        private long insertadas;
+        private long rechazadas;
+        private long lotes;
+
+        Importacion(Long aliadoPorDefecto) {
+            this.aliadoPorDefecto = aliadoPorDefecto;
+        }
+
+        void procesar(long linea, List<String> campos, Map<String, Integer> indices, int columnas) {
+            leidas++;
+            if (campos.size() != columnas) {
+                rechazar(linea, "Se esperaban " + columnas + " columnas y hay " + campos.size());
+                return;
+            }
+            try {
+                lote.add(new FilaValida(linea, validar(campos, indices)));
+            } catch (IllegalArgumentException e) {
+                rechazar(linea, e.getMessage());
+                return;
+            }
+            if (lote.size() >= tamanoLote) {
+                insertarLote();
+            }
+        }
+
+        /**
+         * Convierte los campos en los parámetros del INSERT
+         *
+         * @throws IllegalArgumentException con el motivo si la fila no es válida
+         */
+        private Object[] validar(List<String> campos, Map<String, Integer> indices) {
+            String nombre = texto(campos, indices, NOMBRE, 100, true);
+            String especie = texto(campos, indices, ESPECIE, 50, true);
+            String raza = texto(campos, indices, RAZA, 50, true);
+            String sexo = texto(campos, indices, SEXO, 255, false);
+            String ciudad = texto(campos, indices, CIUDAD, 255, false);
+            String descripcion = texto(campos, indices, DESCRIPCION, Integer.MAX_VALUE, false);
+
+            String valorEdad = texto(campos, indices, EDAD, 10, true);
+            int edad;
+            try {
+                edad = Integer.parseInt(valorEdad);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Edad no numérica: " + valorEdad);
+            }
+            if (edad < 0 || edad > MAX_EDAD) {
+                throw new IllegalArgumentException("Edad fuera de rango (0-" + MAX_EDAD + "): " + edad);
+            }
+
+            String valorFecha = texto(campos, indices, FECHA_NACIMIENTO, 10, false);
+            Date fechaNacimiento = null;
+            if (valorFecha != null) {
+                try {
+                    LocalDate fecha = LocalDate.parse(valorFecha);
+                    if (fecha.isAfter(LocalDate.now())) {
+                        throw new IllegalArgumentException("Fecha de nacimiento futura: " + valorFecha);
+                    }
+                    fechaNacimiento = Date.valueOf(fecha);
+                } catch (DateTimeParseException e) {
+                    throw new IllegalArgumentException("Fecha de nacimiento no válida (AAAA-MM-DD): " + valorFecha);
+                }
+            }
+
+            String imagen = clave(texto(campos, indices, IMAGEN, 512, false));
+
+            String valorPropietario = texto(campos, indices, PROPIETARIO, 20, false);
+            Long propietario = aliadoPorDefecto;
+            if (valorPropietario != null) {
+                try {
+                    propietario = Long.parseLong(valorPropietario);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("ID de propietario no numérico: " + valorPropietario);
+                }
+            }
+            if (propietario == null) {
+                throw new IllegalArgumentException("Falta el propietario (columna idPropietario o parámetro aliadoId)");
+            }
+            if (propietariosInexistentes.contains(propietario)) {
+                throw new IllegalArgumentException("El propietario " + propietario + " no existe");
+            }
+
+            // El ID (posición 0) se asigna al insertar el lote
+            return new Object[]{null, nombre, especie, raza, edad, fechaNacimiento, sexo, ciudad, descripcion, imagen,
+                    TextoUtil.textoBusqueda(nombre, raza, ciudad, descripcion), propietario};
+        }
+
+        /**
+         * Inserta el lote en curso en una transacción; si el batch falla, fila a fila
+         */
+        void insertarLote() {
+            if (lote.isEmpty()) {
+                return;
+            }
+            long inicio = System.nanoTime();
+            comprobarPropietarios();
+            if (lote.isEmpty()) {
+                return;
+            }
+
+            List<Long> ids = reservarIds(lote.size());
+            List<Object[]> parametros = new ArrayList<>(lote.size());
+            for (int i = 0; i < lote.size(); i++) {
+                Object[] valores = lote.get(i).parametros();
+                valores[0] = ids.get(i);
+                parametros.add(valores);
+            }
+            try {
+                transaccion.executeWithoutResult(status -> {
+                    jdbcTemplate.batchUpdate(INSERTAR, parametros);
+                    TransaccionUtil.despuesDelCommit(facetasCache::invalidar);
+                });
+                insertadas += lote.size();
+                latenciasLote.registrarDesde("batch", inicio);
+            } catch (DataAccessException e) {
+                System.err.println("⚠️ Falló el lote de la línea " + lote.get(0).linea() + ", reintentando fila a fila: "
+                        + e.getMostSpecificCause().getMessage());
+                for (FilaValida fila : lote) {
+                    try {
+                        transaccion.executeWithoutResult(status -> {
+                            jdbcTemplate.update(INSERTAR, fila.parametros());
+                            TransaccionUtil.despuesDelCommit(facetasCache::invalidar);
+                        });
+                        insertadas++;
+                    } catch (DataAccessException ex) {
+                        rechazar(fila.linea(), "Error al insertar: " + ex.getMostSpecificCause().getMessage());
+                    }
+                }
+                latenciasLote.registrarDesde("filaAFila", inicio);
+            }
+            lotes++;
+            lote.clear();
+        }
+
+        /**
+         * Reserva al menos 'cantidad' IDs con una sola consulta (un nextval por cada bloque)
+         */
+        private List<Long> reservarIds(int cantidad) {
+            int bloques = (cantidad + Mascotas.IDS_POR_RESERVA - 1) / Mascotas.IDS_POR_RESERVA;
+            List<Long> ids = new ArrayList<>(bloques * Mascotas.IDS_POR_RESERVA);
+            for (Long valor : jdbcTemplate.queryForList(RESERVAR_IDS, Long.class, bloques)) {
+                for (long id = valor - Mascotas.IDS_POR_RESERVA + 1; id <= valor; id++) {
+                    ids.add(id);
+                }
+            }
+            return ids;
+        }
+
+        /**
+         * Una consulta por lote para los propietarios aún no vistos; las filas de propietarios inexistentes se rechazan
+         */
+        private void comprobarPropietarios() {
+            Set<Long> nuevos = new HashSet<>();
+            for (FilaValida fila : lote) {
+                Long propietario = fila.propietario();
+                if (!propietariosExistentes.contains(propietario)) {
+                    nuevos.add(propietario);
+                }
+            }
+            if (nuevos.isEmpty()) {
+                return;
+            }
+            List<Long> encontrados = jdbcTemplate.queryForList(PROPIETARIOS_EXISTENTES, Long.class,
+                    (Object) nuevos.toArray(Long[]::new));
+            propietariosExistentes.addAll(encontrados);
+            nuevos.removeAll(encontrados);
+            propietariosInexistentes.addAll(nuevos);
+            if (nuevos.isEmpty()) {
+                return;
+            }
+            lote.removeIf(fila -> {
+                if (nuevos.contains(fila.propietario())) {
+                    rechazar(fila.linea(), "El propietario " + fila.propietario() + " no existe");
+                    return true;
+                }
+                return false;
+            });
+        }
+
+        private void rechazar(long linea, String motivo) {
+            rechazadas++;
+            if (errores.size() < maxErrores) {
+                Map<String, Object> error = new LinkedHashMap<>();
+                error.put("linea", linea);
+                error.put("error", motivo);
+                errores.add(error);
+            }
+        }
+    }
+
+    /**
+     * Fila validada, con los parámetros del INSERT en el orden de INSERTAR (el ID se rellena al insertar)
+     */
+    private record FilaValida(long linea, Object[] parametros) {
+        Long propietario() {
+            return (Long) parametros[parametros.length - 1];
+        }
+    }
+
+    /**
+     * Campo de texto recortado; null si la columna no existe o viene vacía
+     */
+    private static String texto(List<String> campos, Map<String, Integer> indices, String columna,
+                                int longitudMaxima, boolean obligatorio) {
+        Integer indice = indices.get(columna);
+        String valor = indice != null ? campos.get(indice).trim() : "";
+        // La exportación antepone ' a los textos que empiezan por =, +, - o @
+        if (valor.length() > 1 && valor.charAt(0) == '\'' && "=+-@".indexOf(valor.charAt(1)) >= 0) {
+            valor = valor.substring(1);
+        }
+        if (valor.isEmpty()) {
+            if (obligatorio) {
+                throw new IllegalArgumentException("El campo " + columna + " es obligatorio");
+            }
+            return null;
+        }
+        if (valor.length() > longitudMaxima) {
+            throw new IllegalArgumentException("El campo " + columna + " supera " + longitudMaxima + " caracteres");
+        }
+        return valor;
+    }
+
+    /**
+     * Clave de almacenamiento de la imagen; acepta también la URL local de la exportación
+     * No comprueba que el archivo exista: las imágenes pueden copiarse después
+     */
+    private static String clave(String imagen) {
+        if (imagen == null) {
+            return null;
+        }
+        int prefijo = imagen.indexOf(PREFIJO_URL_IMAGEN);
+        if (prefijo >= 0) {
+            imagen = UriUtils.decode(imagen.substring(prefijo + PREFIJO_URL_IMAGEN.length()), StandardCharsets.UTF_8);
+        }
+        String clave = ClavesAlmacenamiento.normalizar(imagen);
+        if (!ClavesAlmacenamiento.esValida(clave)) {
+            throw new IllegalArgumentException("Imagen no válida: " + imagen);
+        }
+        return clave;
+    }
+
+    /**
+     * Lector CSV (RFC 4180) por registros: campos entre comillas con "" como escape y saltos de línea
+     * dentro de las comillas. Ignora el BOM inicial y las líneas vacías.
+     */
+    private static class LectorCsv {
+
+        private final Reader entrada;
+        private final int maxCaracteres;
+        private long linea = 1;
+        private long lineaInicio;
+        private boolean primero = true;
+        private int pendiente = -2;
+
+        LectorCsv(Reader entrada, int maxCaracteres) {
+            this.entrada = entrada;
+            this.maxCaracteres = maxCaracteres;
+        }
+
+        /**
+         * Línea en la que empieza el último registro leído
+         */
+        long lineaInicio() {
+            return lineaInicio;
+        }
+
+        /**
+         * @return Campos del siguiente registro, o null al final del CSV
+         * @throws IllegalArgumentException si el registro es demasiado largo o tiene comillas sin cerrar
+         */
+        List<String> leer() throws IOException {
+            List<String> campos = new ArrayList<>();
+            StringBuilder campo = new StringBuilder();
+            boolean entreComillas = false;
+            boolean vacio = true;
+            int caracteres = 0;
+            lineaInicio = linea;
+
+            while (true) {
+                int c = siguiente();
+                if (c < 0) {
+                    if (entreComillas) {
+                        throw new IllegalArgumentException("Comillas sin cerrar en el registro de la línea " + lineaInicio);
+                    }
+                    if (vacio) {
+                        return null;
+                    }
+                    campos.add(campo.toString());
+                    return campos;
+                }
+                if (++caracteres > maxCaracteres) {
+                    throw new IllegalArgumentException("El registro de la línea " + lineaInicio
+                            + " supera " + maxCaracteres + " caracteres (¿comillas sin cerrar?)");
+                }
+                if (entreComillas) {
+                    if (c == '"') {
+                        int d = siguiente();
+                        if (d == '"') {
+                            campo.append('"');
+                        } else {
+                            entreComillas = false;
+                            pendiente = d;
+                        }
+                    } else {
+                        if (c == '\n') {
+                            linea++;
+                        }
+                        campo.append((char) c);
+                    }
+                    continue;
+                }
+                if (c == '\r' || c == '\n') {
+                    if (c == '\r') {
+                        int d = siguiente();
+                        if (d != '\n') {
+                            pendiente = d;
+                        }
+                    }
+                    linea++;
+                    if (vacio) {
+                        lineaInicio = linea; // línea vacía
+                        caracteres = 0;
+                        continue;
+                    }
+                    campos.add(campo.toString());
+                    return campos;
+                }
+                vacio = false;
+                if (c == ',') {
+                    campos.add(campo.toString());
+                    campo.setLength(0);
+                } else if (c == '"' && campo.isEmpty()) {
+                    entreComillas = true;
+                } else {
+                    campo.append((char) c);
+                }
+            }
+        }
+
+        private int siguiente() throws IOException {
+            if (pendiente != -2) {
+                int c = pendiente;
+                pendiente = -2;
+                return c;
+            }
+            int c = entrada.read();
+            if (primero) {
+                primero = false;
+                if (c == '\uFEFF') {
+                    c = entrada.read();
+                }
+            }
+            return c;
+        }
+    }
+}
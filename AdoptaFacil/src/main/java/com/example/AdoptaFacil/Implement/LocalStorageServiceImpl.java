@@ -0,0 +1,93 @@
+package com.example.AdoptaFacil.Implement;
+
+import com.example.AdoptaFacil.Service.StorageService;
+import com.example.AdoptaFacil.Util.ClavesAlmacenamiento;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.UriUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+
+/**
+ * Almacenamiento en disco local bajo upload.path
+ * Las claves nuevas llevan dos niveles de subdirectorio (ab/cd/archivo) para no acumular
+ * millones de archivos en un solo directorio; las antiguas siguen en el directorio plano.
+ * Las imágenes se sirven por /api/imagenes/{clave} (ImagenesController).
+ */
+@Service
+@ConditionalOnProperty(name = "storage.tipo", havingValue = "local", matchIfMissing = true)
+public class LocalStorageServiceImpl implements StorageService {
+
+    private final Path uploadDir;
+    private final String urlBase;
+
+    public LocalStorageServiceImpl(@Value("${upload.path}") String uploadPath,
+                                   @Value("${server.host:10.0.2.2}") String serverHost,
+                                   @Value("${server.port:8080}") String serverPort) {
+        this.uploadDir = Paths.get(uploadPath).toAbsolutePath().normalize();
+        this.urlBase = "http://" + serverHost + ":" + serverPort + "/api/imagenes/";
+    }
+
+    @Override
+    public void guardar(String clave, Path origen) throws IOException {
+        Path destino = resolver(clave);
+        Files.createDirectories(destino.getParent());
+        try {
+            Files.move(origen, destino, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(origen, destino, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    @Override
+    public boolean existe(String clave) {
+        return Files.exists(resolver(clave));
+    }
+
+    @Override
+    public boolean eliminar(String clave) throws IOException {
+        return Files.deleteIfExists(resolver(clave));
+    }
+
+    @Override
+    public InputStream abrir(String clave) throws IOException {
+        return Files.newInputStream(resolver(clave));
+    }
+
+    @Override
+    public Optional<Path> rutaLocal(String clave) {
+        if (!ClavesAlmacenamiento.esValida(clave)) {
+            return Optional.empty();
+        }
+        Path ruta = resolver(clave);
+        return Files.isRegularFile(ruta) ? Optional.of(ruta) : Optional.empty();
+    }
+
+    @Override
+    public String url(String clave) {
+        return urlBase + UriUtils.encodePath(clave, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Ruta en disco de la clave, rechazando claves que salgan de upload.path
+     */
+    private Path resolver(String clave) {
+        if (!ClavesAlmacenamiento.esValida(clave)) {
+            throw new IllegalArgumentException("Clave de almacenamiento inválida: " + clave);
+        }
+        Path ruta = uploadDir.resolve(clave).normalize();
+        if (!ruta.startsWith(uploadDir)) {
+            throw new IllegalArgumentException("Clave de almacenamiento inválida: " + clave);
+        }
+        return ruta;
+    }
+}
@@ -1,39 +1,91 @@
 package com.example.AdoptaFacil.Implement;
 
+import com.example.AdoptaFacil.Cache.CacheAcotada;
+import com.example.AdoptaFacil.Cache.CacheSegundoNivel;
+import com.example.AdoptaFacil.Cache.FacetasMascotasCache;
+import com.example.AdoptaFacil.Config.EnrutamientoLecturas;
+import com.example.AdoptaFacil.DTO.ConteoFacetaDTO;
+import com.example.AdoptaFacil.DTO.FacetasDTO;
+import com.example.AdoptaFacil.DTO.FiltroMascotasDTO;
+import com.example.AdoptaFacil.DTO.MascotaResumenDTO;
 import com.example.AdoptaFacil.DTO.MascotasDTO;
+import com.example.AdoptaFacil.DTO.PaginaDTO;
+import com.example.AdoptaFacil.DTO.ResultadoFiltroDTO;
 import com.example.AdoptaFacil.Entity.MascotaImage;
 import com.example.AdoptaFacil.Entity.Mascotas;
 import com.example.AdoptaFacil.Entity.Person;
 import com.example.AdoptaFacil.Entity.Role;
+import com.example.AdoptaFacil.Repository.ArchivoImagenRepository;
+import com.example.AdoptaFacil.Repository.MascotaImageRepository;
 import com.example.AdoptaFacil.Repository.MascotasRepository;
 import com.example.AdoptaFacil.Service.MascotasService;
+import com.example.AdoptaFacil.Service.ProcesamientoImagenesService;
+import com.example.AdoptaFacil.Service.StorageService;
+import com.example.AdoptaFacil.Util.ClavesAlmacenamiento;
+import com.example.AdoptaFacil.Util.CursorUtil;
+import com.example.AdoptaFacil.Util.EstadisticasLatencia;
 import com.example.AdoptaFacil.Util.MascotaMapper;
+import com.example.AdoptaFacil.Util.PreparacionImagenes;
+import com.example.AdoptaFacil.Util.PreparacionImagenes.ImagenPreparada;
+import com.example.AdoptaFacil.Util.TextoUtil;
+import com.example.AdoptaFacil.Util.TransaccionUtil;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class MascotasServiceImpl implements MascotasService {
 
     private final MascotasRepository mascotasRepository;
+    private final MascotaImageRepository mascotaImageRepository;
+    private final ArchivoImagenRepository archivoImagenRepository;
     private final MascotaMapper mascotaMapper;
+    private final FacetasMascotasCache facetasCache;
+    private final CacheAcotada<Long, MascotasDTO> cacheMascotas;
+    private final CacheSegundoNivel cacheSegundoNivel;
+    private final ProcesamientoImagenesService procesamientoImagenes;
+    private final PreparacionImagenes preparacionImagenes;
+    private final StorageService storageService;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final EnrutamientoLecturas enrutamiento;
+
+    // Transacción de solo lectura para consultas que no pueden ir anotadas con @Transactional
+    private TransactionTemplate transaccionLectura;
+
+    // Tiempo que cada escritura retiene la conexión JDBC (duración de la transacción)
+    private final EstadisticasLatencia latenciasTransaccion = new EstadisticasLatencia();
     
-    @Value("${upload.path}")
-    private String uploadPath;
+    @Value("${mascotas.pagina.tamano-maximo:100}")
+    private int tamanoMaximoPagina;
+
+    @Value("${mascotas.busqueda.limite:50}")
+    private int limiteBusqueda;
+
+    @PostConstruct
+    void init() {
+        transaccionLectura = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        transaccionLectura.setReadOnly(true);
+    }
 
     @Override
-    @Transactional
     public MascotasDTO crearMascota(Mascotas mascota, List<MultipartFile> imagenes) {
         System.out.println("\n=== SERVICE: Creando mascota ===");
         
@@ -41,69 +93,65 @@ public class MascotasServiceImpl implements MascotasService {
             throw new IllegalArgumentException("Máximo 3 imágenes permitidas");
         }
 
-        // Guardar la mascota primero para obtener el ID
-        Mascotas nuevaMascota = mascotasRepository.save(mascota);
-        System.out.println("✅ Mascota guardada con ID: " + nuevaMascota.getId());
+        // Fase 1: escribir las imágenes en disco antes de abrir la transacción
+        List<ImagenPreparada> preparadas = preparacionImagenes.preparar(imagenes);
+        List<MascotaImage> nuevasImagenes = new ArrayList<>();
 
-        // Procesar y guardar imágenes si se proporcionan
-        if (imagenes != null && !imagenes.isEmpty()) {
-            try {
-                // Crear el directorio si no existe
-                Path uploadDir = Paths.get(uploadPath);
-                if (!Files.exists(uploadDir)) {
-                    Files.createDirectories(uploadDir);
-                    System.out.println("✅ Directorio de uploads creado: " + uploadDir.toAbsolutePath());
-                }
-                
+        MascotasDTO dto;
+        try {
+            // Fase 2: la transacción solo guarda metadatos
+            dto = enTransaccion("crear", status -> {
                 int orden = 1;
-                for (MultipartFile file : imagenes) {
-                    try {
-                        String fileName = UUID.randomUUID() + "_" + file.getOriginalFilename();
-                        Path destinoPath = uploadDir.resolve(fileName);
-                        File destino = destinoPath.toFile();
-                        
-                        file.transferTo(destino);
-                        System.out.println("✅ Imagen guardada: " + destino.getAbsolutePath());
-
-                        MascotaImage img = new MascotaImage();
-                        img.setImagenPath(destino.getAbsolutePath());
-                        img.setOrden(orden++);
-                        img.setMascota(nuevaMascota);
-                        nuevaMascota.getImagenes().add(img);
-
-                    } catch (IOException e) {
-                        System.err.println("❌ Error guardando imagen: " + e.getMessage());
-                        throw new IllegalArgumentException("Error al guardar imagen: " + e.getMessage());
-                    }
+                for (ImagenPreparada preparada : preparadas) {
+                    MascotaImage img = nuevaImagen(preparada, mascota, orden++);
+                    mascota.getImagenes().add(img);
+                    nuevasImagenes.add(img);
                 }
-            } catch (IOException e) {
-                System.err.println("❌ Error creando directorio de uploads: " + e.getMessage());
-                throw new IllegalArgumentException("Error al crear directorio de uploads: " + e.getMessage());
-            }
-            
-            // Guardar nuevamente para persistir las imágenes
-            nuevaMascota = mascotasRepository.save(nuevaMascota);
-            System.out.println("✅ Imágenes asociadas a la mascota");
+                mascota.actualizarImagenPrincipal();
+
+                // Un solo save: la cascada persiste también las imágenes
+                Mascotas nuevaMascota = mascotasRepository.save(mascota);
+                System.out.println("✅ Mascota guardada con ID: " + nuevaMascota.getId());
+
+                TransaccionUtil.despuesDelCommit(facetasCache::invalidar);
+
+                // Convertir a DTO para evitar problemas de lazy loading
+                return mascotaMapper.toDTO(nuevaMascota);
+            });
+        } catch (RuntimeException e) {
+            preparacionImagenes.descartar(preparadas);
+            throw e;
         }
 
+        // Fase 3: tras el commit, mover los archivos a su ruta final y generar variantes
+        preparacionImagenes.confirmar(preparadas);
+        programarVariantes(dto.getId(), nuevasImagenes);
         System.out.println("=== SERVICE: Mascota creada exitosamente ===\n");
         
-        // Convertir a DTO para evitar problemas de lazy loading
-        return mascotaMapper.toDTO(nuevaMascota);
+        return dto;
     }
 
     @Override
-    @Transactional(readOnly = true)
     public MascotasDTO obtenerMascota(Long id) {
         System.out.println("\n=== SERVICE: Obteniendo mascota ID " + id + " ===");
         
-        // Usar consulta con JOIN FETCH para cargar imágenes
-        Mascotas mascota = mascotasRepository.findByIdWithImages(id)
-                .orElseThrow(() -> new IllegalArgumentException("Mascota no encontrada con ID: " + id));
+        // Primero la caché de DTOs; solo en un fallo se consulta la BD (sin abrir transacción propia)
+        // La carga va a la primaria: un DTO leído de una réplica atrasada quedaría cacheado para todos
+        MascotasDTO dto = cacheMascotas.obtener(id, clave -> enrutamiento.enPrimaria(() -> cargarMascotaDTO(clave)));
         
-        System.out.println("✅ Mascota encontrada: " + mascota.getNombre());
+        System.out.println("✅ Mascota encontrada: " + dto.getNombre());
         System.out.println("=== SERVICE: FIN obtención ===\n");
         
+        return dto;
+    }
+
+    /**
+     * Carga una mascota con sus imágenes y la convierte a DTO
+     * La consulta usa JOIN FETCH, así que el mapeo no necesita sesión abierta
+     */
+    private MascotasDTO cargarMascotaDTO(Long id) {
+        Mascotas mascota = mascotasRepository.findByIdWithImages(id)
+                .orElseThrow(() -> new IllegalArgumentException("Mascota no encontrada con ID: " + id));
         return mascotaMapper.toDTO(mascota);
     }
 
@@ -134,110 +182,207 @@ public class MascotasServiceImpl implements MascotasService {
     }
 
     @Override
-    @Transactional
-    public MascotasDTO actualizarMascota(Long id, Mascotas mascotaActualizada, List<MultipartFile> imagenes) {
-        System.out.println("\n=== SERVICE: Actualizando mascota ID " + id + " ===");
-        
-        // Buscar la mascota existente
-        Mascotas mascotaExistente = mascotasRepository.findById(id)
-                .orElseThrow(() -> new IllegalArgumentException("Mascota no encontrada con ID: " + id));
+    @Transactional(readOnly = true)
+    public List<MascotasDTO> buscarPorTexto(String texto) {
+        System.out.println("\n=== SERVICE: Búsqueda de texto: " + texto + " ===");
 
-        System.out.println("✅ Mascota encontrada: " + mascotaExistente.getNombre());
-        
-        // Verificar permisos: ADMIN puede editar todas, ALIADO solo las suyas
-        if (mascotaActualizada.getALIADO() != null) {
-            Long idUsuarioActual = mascotaActualizada.getALIADO().getIdPerson();
-            Long idDueno = mascotaExistente.getALIADO().getIdPerson();
-            
-            // Verificar si el usuario es ADMIN
-            boolean esAdmin = mascotaActualizada.getALIADO().getRole() != null && 
-                            mascotaActualizada.getALIADO().getRole().getRoleType() == Role.RoleType.ADMIN;
-            
-            if (!esAdmin && !idDueno.equals(idUsuarioActual)) {
-                System.err.println("❌ Usuario " + idUsuarioActual + " no es el dueño de la mascota (dueño: " + idDueno + ")");
-                throw new SecurityException("No tienes permisos para actualizar esta mascota");
-            }
-            System.out.println("✅ Usuario autorizado" + (esAdmin ? " (ADMIN)" : " (dueño)"));
+        String normalizado = TextoUtil.normalizar(texto);
+        if (normalizado.isEmpty()) {
+            return List.of();
         }
+
+        // Búsqueda indexada sobre la columna normalizada, ordenada por relevancia
+        List<Mascotas> mascotas = mascotasRepository.buscarPorTexto(normalizado, TextoUtil.escaparLike(normalizado), limiteBusqueda);
+        Map<Long, List<MascotaImage>> imagenesPorMascota = cargarImagenesPorMascota(mascotas);
+
+        System.out.println("✅ Se encontraron " + mascotas.size() + " mascotas");
+        System.out.println("=== SERVICE: FIN búsqueda de texto ===\n");
+
+        return mascotas.stream()
+                .map(m -> mascotaMapper.toDTO(m, imagenesPorMascota.getOrDefault(m.getId(), List.of())))
+                .toList();
+    }
+
+    @Override
+    public ResultadoFiltroDTO filtrarMascotas(FiltroMascotasDTO filtro, String cursor, int tamano) {
+        long despuesDeId = CursorUtil.decodificar(cursor);
+        int limite = Math.max(1, Math.min(tamano, tamanoMaximoPagina));
+        System.out.println("\n=== SERVICE: Filtrando mascotas " + filtro + " ===");
+
+        // Las facetas salen del conteo agrupado en caché (una consulta solo tras cada invalidación)
+        // La caché no expira: se carga de la primaria y fuera de la transacción de la página,
+        // que puede ir a la réplica; un conteo atrasado quedaría para todos hasta la siguiente escritura
+        FacetasDTO facetas = calcularFacetas(
+                facetasCache.obtener(() -> enrutamiento.enPrimaria(mascotasRepository::contarPorFacetas)), filtro);
+
+        PaginaDTO<MascotasDTO> pagina = transaccionLectura.execute(status -> {
+            List<Mascotas> mascotas = mascotasRepository.filtrar(
+                    filtro.getEspecie(), filtro.getSexo(), filtro.getCiudad(), filtro.getRaza(),
+                    filtro.getEdadMin(), filtro.getEdadMax(), despuesDeId, PageRequest.of(0, limite + 1));
+            boolean hayMas = mascotas.size() > limite;
+            if (hayMas) {
+                mascotas = mascotas.subList(0, limite);
+            }
+
+            Map<Long, List<MascotaImage>> imagenesPorMascota = cargarImagenesPorMascota(mascotas);
+            List<MascotasDTO> contenido = mascotas.stream()
+                    .map(m -> mascotaMapper.toDTO(m, imagenesPorMascota.getOrDefault(m.getId(), List.of())))
+                    .toList();
+            String siguienteCursor = hayMas ? CursorUtil.codificar(mascotas.get(mascotas.size() - 1).getId()) : null;
+            return new PaginaDTO<>(contenido, siguienteCursor, hayMas);
+        });
+
+        System.out.println("✅ Mascotas en la página: " + pagina.getContenido().size());
+        System.out.println("=== SERVICE: FIN filtro ===\n");
+
+        return new ResultadoFiltroDTO(pagina, facetas);
+    }
+
+    @Override
+    public MascotasDTO actualizarMascota(Long id, Mascotas mascotaActualizada, List<MultipartFile> imagenes) {
+        System.out.println("\n=== SERVICE: Actualizando mascota ID " + id + " ===");
         
         // Validar número máximo de imágenes si se proporcionan nuevas
         if (imagenes != null && imagenes.size() > 3) {
             throw new IllegalArgumentException("Máximo 3 imágenes permitidas");
         }
 
-        // Actualizar campos básicos
-        mascotaExistente.setNombre(mascotaActualizada.getNombre());
-        mascotaExistente.setEspecie(mascotaActualizada.getEspecie());
-        mascotaExistente.setRaza(mascotaActualizada.getRaza());
-        mascotaExistente.setEdad(mascotaActualizada.getEdad());
-        
-        // Actualizar campos opcionales si se proporcionan
-        if (mascotaActualizada.getSexo() != null) {
-            mascotaExistente.setSexo(mascotaActualizada.getSexo());
-        }
-        if (mascotaActualizada.getCiudad() != null) {
-            mascotaExistente.setCiudad(mascotaActualizada.getCiudad());
-        }
-        if (mascotaActualizada.getDescripcion() != null) {
-            mascotaExistente.setDescripcion(mascotaActualizada.getDescripcion());
-        }
-        if (mascotaActualizada.getFechaNacimiento() != null) {
-            mascotaExistente.setFechaNacimiento(mascotaActualizada.getFechaNacimiento());
-        }
+        // Fase 1: escribir las imágenes nuevas en disco antes de abrir la transacción
+        List<ImagenPreparada> preparadas = preparacionImagenes.preparar(imagenes);
+        List<MascotaImage> nuevasImagenes = new ArrayList<>();
 
-        System.out.println("✅ Campos actualizados");
+        MascotasDTO dto;
+        try {
+            // Fase 2: la transacción solo actualiza metadatos
+            dto = enTransaccion("actualizar", status -> {
+                // Buscar la mascota existente
+                Mascotas mascotaExistente = mascotasRepository.findById(id)
+                        .orElseThrow(() -> new IllegalArgumentException("Mascota no encontrada con ID: " + id));
 
-        // Procesar nuevas imágenes si se proporcionan
-        if (imagenes != null && !imagenes.isEmpty()) {
-            try {
-                // Crear el directorio si no existe
-                Path uploadDir = Paths.get(uploadPath);
-                if (!Files.exists(uploadDir)) {
-                    Files.createDirectories(uploadDir);
-                    System.out.println("✅ Directorio de uploads creado: " + uploadDir.toAbsolutePath());
+                System.out.println("✅ Mascota encontrada: " + mascotaExistente.getNombre());
+
+                // Verificar permisos: ADMIN puede editar todas, ALIADO solo las suyas
+                if (mascotaActualizada.getALIADO() != null) {
+                    Long idUsuarioActual = mascotaActualizada.getALIADO().getIdPerson();
+                    Long idDueno = mascotaExistente.getALIADO().getIdPerson();
+
+                    // Verificar si el usuario es ADMIN
+                    boolean esAdmin = mascotaActualizada.getALIADO().getRole() != null && 
+                                    mascotaActualizada.getALIADO().getRole().getRoleType() == Role.RoleType.ADMIN;
+
+                    if (!esAdmin && !idDueno.equals(idUsuarioActual)) {
+                        System.err.println("❌ Usuario " + idUsuarioActual + " no es el dueño de la mascota (dueño: " + idDueno + ")");
+                        throw new SecurityException("No tienes permisos para actualizar esta mascota");
+                    }
+                    System.out.println("✅ Usuario autorizado" + (esAdmin ? " (ADMIN)" : " (dueño)"));
                 }
-                
+
+                // Actualizar campos básicos
+                mascotaExistente.setNombre(mascotaActualizada.getNombre());
+                mascotaExistente.setEspecie(mascotaActualizada.getEspecie());
+                mascotaExistente.setRaza(mascotaActualizada.getRaza());
+                mascotaExistente.setEdad(mascotaActualizada.getEdad());
+
+                // Actualizar campos opcionales si se proporcionan
+                if (mascotaActualizada.getSexo() != null) {
+                    mascotaExistente.setSexo(mascotaActualizada.getSexo());
+                }
+                if (mascotaActualizada.getCiudad() != null) {
+                    mascotaExistente.setCiudad(mascotaActualizada.getCiudad());
+                }
+                if (mascotaActualizada.getDescripcion() != null) {
+                    mascotaExistente.setDescripcion(mascotaActualizada.getDescripcion());
+                }
+                if (mascotaActualizada.getFechaNacimiento() != null) {
+                    mascotaExistente.setFechaNacimiento(mascotaActualizada.getFechaNacimiento());
+                }
+
+                System.out.println("✅ Campos actualizados");
+
+                // Registrar las nuevas imágenes
                 int orden = mascotaExistente.getImagenes().size() + 1;
-                
-                for (MultipartFile file : imagenes) {
-                    try {
-                        String fileName = UUID.randomUUID() + "_" + file.getOriginalFilename();
-                        Path destinoPath = uploadDir.resolve(fileName);
-                        File destino = destinoPath.toFile();
-                        
-                        file.transferTo(destino);
-                        System.out.println("✅ Nueva imagen guardada: " + destino.getAbsolutePath());
-
-                        MascotaImage img = new MascotaImage();
-                        img.setImagenPath(destino.getAbsolutePath());
-                        img.setOrden(orden++);
-                        img.setMascota(mascotaExistente);
-                        mascotaExistente.getImagenes().add(img);
-
-                    } catch (IOException e) {
-                        System.err.println("❌ Error guardando imagen: " + e.getMessage());
-                        throw new IllegalArgumentException("Error al guardar imagen: " + e.getMessage());
-                    }
+                for (ImagenPreparada preparada : preparadas) {
+                    MascotaImage img = nuevaImagen(preparada, mascotaExistente, orden++);
+                    mascotaExistente.getImagenes().add(img);
+                    nuevasImagenes.add(img);
                 }
-            } catch (IOException e) {
-                System.err.println("❌ Error creando directorio de uploads: " + e.getMessage());
-                throw new IllegalArgumentException("Error al crear directorio de uploads: " + e.getMessage());
-            }
+                // Persistir las imágenes nuevas directamente para que el save de la mascota no las copie
+                mascotaImageRepository.saveAll(nuevasImagenes);
+                mascotaExistente.actualizarImagenPrincipal();
+
+                // Guardar y retornar la mascota actualizada
+                Mascotas mascotaGuardada = mascotasRepository.save(mascotaExistente);
+                TransaccionUtil.despuesDelCommit(() -> {
+                    facetasCache.invalidar();
+                    cacheMascotas.invalidar(id);
+                });
+                return mascotaMapper.toDTO(mascotaGuardada);
+            });
+        } catch (RuntimeException e) {
+            preparacionImagenes.descartar(preparadas);
+            throw e;
         }
 
-        // Guardar y retornar la mascota actualizada
-        Mascotas mascotaGuardada = mascotasRepository.save(mascotaExistente);
+        // Fase 3: tras el commit, mover los archivos a su ruta final y generar variantes
+        preparacionImagenes.confirmar(preparadas);
+        programarVariantes(id, nuevasImagenes);
         System.out.println("✅ Mascota actualizada exitosamente");
         System.out.println("=== SERVICE: FIN actualización ===\n");
         
-        return mascotaMapper.toDTO(mascotaGuardada);
+        return dto;
     }
 
     @Override
-    @Transactional
     public void eliminarMascota(Long id) {
         System.out.println("\n=== SERVICE: Eliminando mascota ID " + id + " (SIN validación de usuario) ===");
+
+        List<MascotaImage> archivos = enTransaccion("eliminar", status -> eliminarRegistroMascota(id));
+
+        // Los archivos se borran solo después del commit: un rollback no deja filas sin imagen
+        eliminarArchivos(archivos);
+        System.out.println("=== SERVICE: FIN eliminación ===\n");
+    }
+
+    @Override
+    public void eliminarMascotaPorUsuario(Long id, Person usuario) {
+        System.out.println("\n=== SERVICE: Eliminando mascota ID " + id + " por usuario " + usuario.getIdPerson() + " ===");
+        
+        List<MascotaImage> archivos = enTransaccion("eliminar", status -> {
+            // Buscar la mascota para validar permisos
+            Mascotas mascota = mascotasRepository.findById(id)
+                    .orElseThrow(() -> new IllegalArgumentException("Mascota no encontrada con ID: " + id));
+        
+            System.out.println("✅ Mascota encontrada: " + mascota.getNombre());
+            System.out.println("👤 Dueño de la mascota: " + mascota.getALIADO().getEmail());
+            System.out.println("👤 Usuario solicitante: " + usuario.getEmail());
+        
+            // Verificar permisos: ADMIN puede eliminar todas, ALIADO solo las suyas
+            boolean esAdmin = usuario.getRole() != null && 
+                            usuario.getRole().getRoleType() == Role.RoleType.ADMIN;
+        
+            Long idDueno = mascota.getALIADO().getIdPerson();
+            Long idUsuarioActual = usuario.getIdPerson();
+        
+            if (!esAdmin && !idDueno.equals(idUsuarioActual)) {
+                System.err.println("❌ Usuario " + idUsuarioActual + " no es el dueño de la mascota (dueño: " + idDueno + ")");
+                throw new SecurityException("No tienes permisos para eliminar esta mascota");
+            }
         
+            System.out.println("✅ Usuario autorizado para eliminar" + (esAdmin ? " (ADMIN)" : " (dueño)"));
+
+            // Llamar al método principal de eliminación
+            return eliminarRegistroMascota(id);
+        });
+
+        eliminarArchivos(archivos);
+        System.out.println("=== SERVICE: FIN eliminación ===\n");
+    }
+
+    /**
+     * Elimina la mascota de la BD (dentro de la transacción) y devuelve las imágenes cuyos
+     * archivos deben borrarse del disco tras el commit
+     */
+    private List<MascotaImage> eliminarRegistroMascota(Long id) {
         // Buscar la mascota para obtener sus imágenes
         Mascotas mascota = mascotasRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Mascota no encontrada con ID: " + id));
@@ -245,109 +390,178 @@ public class MascotasServiceImpl implements MascotasService {
         System.out.println("✅ Mascota encontrada: " + mascota.getNombre());
         System.out.println("📸 Imágenes asociadas: " + mascota.getImagenes().size());
         
-        // Eliminar archivos físicos de imágenes
+        List<MascotaImage> archivos = new ArrayList<>();
         for (MascotaImage img : mascota.getImagenes()) {
-            try {
-                File archivo = new File(img.getImagenPath());
-                if (archivo.exists()) {
-                    boolean eliminado = archivo.delete();
-                    if (eliminado) {
-                        System.out.println("✅ Imagen eliminada: " + img.getImagenPath());
-                    } else {
-                        System.err.println("⚠️ No se pudo eliminar: " + img.getImagenPath());
-                    }
-                } else {
-                    System.out.println("ℹ️ Archivo no existe: " + img.getImagenPath());
-                }
-            } catch (Exception e) {
-                System.err.println("❌ Error eliminando imagen: " + e.getMessage());
+            if (liberarArchivo(img)) {
+                archivos.add(img);
             }
         }
         
         // Eliminar la mascota de la base de datos (cascade eliminará las referencias de imágenes)
         mascotasRepository.deleteById(id);
+        TransaccionUtil.despuesDelCommit(() -> {
+            facetasCache.invalidar();
+            cacheMascotas.invalidar(id);
+        });
         
         System.out.println("✅ Mascota eliminada de la BD");
-        System.out.println("=== SERVICE: FIN eliminación ===\n");
+        return archivos;
     }
 
     @Override
-    @Transactional
-    public void eliminarMascotaPorUsuario(Long id, Person usuario) {
-        System.out.println("\n=== SERVICE: Eliminando mascota ID " + id + " por usuario " + usuario.getIdPerson() + " ===");
-        
-        // Buscar la mascota para validar permisos
-        Mascotas mascota = mascotasRepository.findById(id)
-                .orElseThrow(() -> new IllegalArgumentException("Mascota no encontrada con ID: " + id));
-        
-        System.out.println("✅ Mascota encontrada: " + mascota.getNombre());
-        System.out.println("👤 Dueño de la mascota: " + mascota.getALIADO().getEmail());
-        System.out.println("👤 Usuario solicitante: " + usuario.getEmail());
-        
-        // Verificar permisos: ADMIN puede eliminar todas, ALIADO solo las suyas
-        boolean esAdmin = usuario.getRole() != null && 
-                        usuario.getRole().getRoleType() == Role.RoleType.ADMIN;
-        
-        Long idDueno = mascota.getALIADO().getIdPerson();
-        Long idUsuarioActual = usuario.getIdPerson();
+    public void eliminarImagen(Long mascotaId, Long imagenId) {
+        System.out.println("\n=== SERVICE: Eliminando imagen ID " + imagenId + " de mascota ID " + mascotaId + " ===");
         
-        if (!esAdmin && !idDueno.equals(idUsuarioActual)) {
-            System.err.println("❌ Usuario " + idUsuarioActual + " no es el dueño de la mascota (dueño: " + idDueno + ")");
-            throw new SecurityException("No tienes permisos para eliminar esta mascota");
+        List<MascotaImage> archivos = enTransaccion("eliminarImagen", status -> {
+            // Buscar la mascota
+            Mascotas mascota = mascotasRepository.findById(mascotaId)
+                    .orElseThrow(() -> new IllegalArgumentException("Mascota no encontrada con ID: " + mascotaId));
+            
+            System.out.println("✅ Mascota encontrada: " + mascota.getNombre());
+            System.out.println("📸 Total de imágenes: " + mascota.getImagenes().size());
+            
+            // Buscar la imagen específica
+            MascotaImage imagenAEliminar = mascota.getImagenes().stream()
+                    .filter(img -> img.getId().equals(imagenId))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Imagen no encontrada con ID: " + imagenId));
+            
+            System.out.println("✅ Imagen encontrada: " + imagenAEliminar.getImagenPath());
+            
+            // Remover imagen de la lista de la mascota
+            mascota.getImagenes().remove(imagenAEliminar);
+            mascota.actualizarImagenPrincipal();
+            
+            // Guardar cambios (cascade eliminará el registro de la BD)
+            mascotasRepository.save(mascota);
+            TransaccionUtil.despuesDelCommit(() -> cacheMascotas.invalidar(mascotaId));
+            
+            System.out.println("✅ Imagen eliminada de la BD");
+            System.out.println("📸 Imágenes restantes: " + mascota.getImagenes().size());
+            // El archivo solo se borra si ninguna otra imagen comparte su contenido
+            return liberarArchivo(imagenAEliminar) ? List.of(imagenAEliminar) : List.<MascotaImage>of();
+        });
+        
+        // Eliminar archivo físico (y sus variantes) tras el commit
+        eliminarArchivos(archivos);
+        System.out.println("=== SERVICE: FIN eliminación de imagen ===\n");
+    }
+
+    @Override
+    public MascotasDTO agregarImagen(Long mascotaId, ImagenPreparada imagen, Person usuario) {
+        System.out.println("\n=== SERVICE: Agregando imagen subida a mascota ID " + mascotaId + " ===");
+
+        List<MascotaImage> nuevasImagenes = new ArrayList<>();
+        MascotasDTO dto;
+        try {
+            dto = enTransaccion("agregarImagen", status -> {
+                Mascotas mascota = mascotasRepository.findById(mascotaId)
+                        .orElseThrow(() -> new IllegalArgumentException("Mascota no encontrada con ID: " + mascotaId));
+
+                // Verificar permisos: ADMIN puede editar todas, ALIADO solo las suyas
+                boolean esAdmin = usuario.getRole() != null &&
+                                usuario.getRole().getRoleType() == Role.RoleType.ADMIN;
+                if (!esAdmin && !mascota.getALIADO().getIdPerson().equals(usuario.getIdPerson())) {
+                    throw new SecurityException("No tienes permisos para actualizar esta mascota");
+                }
+
+                if (mascota.getImagenes().size() >= 3) {
+                    throw new IllegalArgumentException("Máximo 3 imágenes permitidas");
+                }
+
+                // La nueva imagen va después de la última
+                int orden = mascota.getImagenes().stream()
+                        .map(MascotaImage::getOrden)
+                        .filter(Objects::nonNull)
+                        .max(Integer::compare)
+                        .orElse(0) + 1;
+                MascotaImage img = nuevaImagen(imagen, mascota, orden);
+                mascota.getImagenes().add(img);
+                nuevasImagenes.add(mascotaImageRepository.save(img));
+                mascota.actualizarImagenPrincipal();
+
+                TransaccionUtil.despuesDelCommit(() -> cacheMascotas.invalidar(mascotaId));
+                return mascotaMapper.toDTO(mascota);
+            });
+        } catch (RuntimeException e) {
+            preparacionImagenes.descartar(List.of(imagen));
+            throw e;
         }
-        
-        System.out.println("✅ Usuario autorizado para eliminar" + (esAdmin ? " (ADMIN)" : " (dueño)"));
-        
-        // Llamar al método principal de eliminación
-        eliminarMascota(id);
+
+        preparacionImagenes.confirmar(List.of(imagen));
+        programarVariantes(mascotaId, nuevasImagenes);
+        System.out.println("=== SERVICE: FIN imagen agregada ===\n");
+        return dto;
     }
 
     @Override
-    @Transactional
-    public void eliminarImagen(Long mascotaId, Long imagenId) {
-        System.out.println("\n=== SERVICE: Eliminando imagen ID " + imagenId + " de mascota ID " + mascotaId + " ===");
-        
-        // Buscar la mascota
-        Mascotas mascota = mascotasRepository.findById(mascotaId)
-                .orElseThrow(() -> new IllegalArgumentException("Mascota no encontrada con ID: " + mascotaId));
-        
-        System.out.println("✅ Mascota encontrada: " + mascota.getNombre());
-        System.out.println("📸 Total de imágenes: " + mascota.getImagenes().size());
-        
-        // Buscar la imagen específica
-        MascotaImage imagenAEliminar = mascota.getImagenes().stream()
-                .filter(img -> img.getId().equals(imagenId))
-                .findFirst()
-                .orElseThrow(() -> new IllegalArgumentException("Imagen no encontrada con ID: " + imagenId));
-        
-        System.out.println("✅ Imagen encontrada: " + imagenAEliminar.getImagenPath());
-        
-        // Eliminar archivo físico
+    public void reordenarImagenes(Long mascotaId, List<Long> imagenIds, Person usuario) {
+        System.out.println("\n=== SERVICE: Reordenando imágenes de mascota ID " + mascotaId + ": " + imagenIds + " ===");
+
+        if (imagenIds == null || imagenIds.isEmpty()) {
+            throw new IllegalArgumentException("Debe indicar el orden de las imágenes");
+        }
+        if (new HashSet<>(imagenIds).size() != imagenIds.size()) {
+            throw new IllegalArgumentException("El orden contiene imágenes repetidas");
+        }
+        boolean esAdmin = usuario.getRole() != null &&
+                        usuario.getRole().getRoleType() == Role.RoleType.ADMIN;
+
         try {
-            File archivo = new File(imagenAEliminar.getImagenPath());
-            if (archivo.exists()) {
-                boolean eliminado = archivo.delete();
-                if (eliminado) {
-                    System.out.println("✅ Archivo físico eliminado: " + imagenAEliminar.getImagenPath());
-                } else {
-                    System.err.println("⚠️ No se pudo eliminar el archivo: " + imagenAEliminar.getImagenPath());
+            enTransaccion("reordenarImagenes", status -> {
+                // El SQL directo no pasa por Hibernate: la caché de segundo nivel se invalida a mano,
+                // antes de las sentencias y otra vez tras el commit (una carga concurrente pudo volver
+                // a guardar las filas antiguas); solo las entradas afectadas
+                cacheSegundoNivel.invalidarMascota(mascotaId, imagenIds);
+
+                // 1) Un lote de UPDATE (una ida y vuelta); el JOIN con mascotas comprueba el dueño en la misma sentencia
+                int[] filas = jdbcTemplate.batchUpdate(
+                        "UPDATE mascota_images i SET orden = ? FROM mascotas m "
+                                + "WHERE i.id_mascota_image = ? AND i.mascota_id = ? AND m.id_mascota = i.mascota_id "
+                                + "AND (? OR m.id_person = ?)",
+                        imagenIds, imagenIds.size(),
+                        (ps, imagenId) -> {
+                            ps.setInt(1, imagenIds.indexOf(imagenId) + 1);
+                            ps.setLong(2, imagenId);
+                            ps.setLong(3, mascotaId);
+                            ps.setBoolean(4, esAdmin);
+                            ps.setLong(5, usuario.getIdPerson());
+                        })[0];
+                for (int actualizadas : filas) {
+                    if (actualizadas == 0) {
+                        throw new IllegalStateException("Imagen ajena, inexistente o sin permisos");
+                    }
+                }
+
+                // 2) Nueva imagen principal; RETURNING comprueba que el orden incluya todas las imágenes
+                Long total = jdbcTemplate.queryForObject(
+                        "UPDATE mascotas m SET imagen = (SELECT imagen_path FROM mascota_images "
+                                + "WHERE mascota_id = m.id_mascota ORDER BY orden, id_mascota_image LIMIT 1) "
+                                + "WHERE m.id_mascota = ? "
+                                + "RETURNING (SELECT COUNT(*) FROM mascota_images WHERE mascota_id = m.id_mascota)",
+                        Long.class, mascotaId);
+                if (total == null || total != imagenIds.size()) {
+                    throw new IllegalArgumentException("El orden debe incluir todas las imágenes de la mascota (" + total + ")");
                 }
-            } else {
-                System.out.println("ℹ️ Archivo físico no existe: " + imagenAEliminar.getImagenPath());
+
+                TransaccionUtil.despuesDelCommit(() -> {
+                    cacheMascotas.invalidar(mascotaId);
+                    cacheSegundoNivel.invalidarMascota(mascotaId, imagenIds);
+                });
+                return null;
+            });
+        } catch (IllegalStateException e) {
+            // Solo en el caso de error se distingue el motivo (404 o 403)
+            Long idDueno = mascotasRepository.findIdPropietario(mascotaId)
+                    .orElseThrow(() -> new IllegalArgumentException("Mascota no encontrada con ID: " + mascotaId));
+            if (!esAdmin && !idDueno.equals(usuario.getIdPerson())) {
+                throw new SecurityException("No tienes permisos para modificar esta mascota");
             }
-        } catch (Exception e) {
-            System.err.println("❌ Error eliminando archivo físico: " + e.getMessage());
+            throw new IllegalArgumentException("Alguna imagen no pertenece a la mascota ID " + mascotaId);
         }
-        
-        // Remover imagen de la lista de la mascota
-        mascota.getImagenes().remove(imagenAEliminar);
-        
-        // Guardar cambios (cascade eliminará el registro de la BD)
-        mascotasRepository.save(mascota);
-        
-        System.out.println("✅ Imagen eliminada de la BD");
-        System.out.println("📸 Imágenes restantes: " + mascota.getImagenes().size());
-        System.out.println("=== SERVICE: FIN eliminación de imagen ===\n");
+
+        System.out.println("✅ Imágenes reordenadas");
+        System.out.println("=== SERVICE: FIN reordenación ===\n");
     }
 
     @Override
@@ -402,8 +616,224 @@ public class MascotasServiceImpl implements MascotasService {
         System.out.println("=== SERVICE: FIN listado completo ===\n");
         return resultado;
     }
-}
 
+    @Override
+    @Transactional(readOnly = true)
+    public PaginaDTO<MascotasDTO> listarMascotasConPropietarioPorCursor(String cursor, int tamano) {
+        long despuesDeId = CursorUtil.decodificar(cursor);
+        int limite = Math.max(1, Math.min(tamano, tamanoMaximoPagina));
+        System.out.println("\n=== SERVICE: Página de mascotas con propietario (después de ID " + despuesDeId + ", tamaño " + limite + ") ===");
 
+        // Se pide un registro extra para saber si existe una página siguiente
+        List<Mascotas> mascotas = mascotasRepository.findPaginaConPropietario(despuesDeId, PageRequest.of(0, limite + 1));
+        boolean hayMas = mascotas.size() > limite;
+        if (hayMas) {
+            mascotas = mascotas.subList(0, limite);
+        }
 
+        // Cargar las imágenes de toda la página con una sola consulta IN
+        Map<Long, List<MascotaImage>> imagenesPorMascota = cargarImagenesPorMascota(mascotas);
 
+        List<MascotasDTO> contenido = mascotas.stream()
+                .map(m -> mascotaMapper.toDTOConPropietario(m, imagenesPorMascota.getOrDefault(m.getId(), List.of())))
+                .toList();
+
+        String siguienteCursor = hayMas ? CursorUtil.codificar(mascotas.get(mascotas.size() - 1).getId()) : null;
+        System.out.println("✅ Mascotas en la página: " + contenido.size() + (hayMas ? " (hay más)" : " (última página)"));
+        System.out.println("=== SERVICE: FIN página ===\n");
+
+        return new PaginaDTO<>(contenido, siguienteCursor, hayMas);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public PaginaDTO<MascotaResumenDTO> listarResumenes(Long aliadoId, String cursor, int tamano) {
+        long despuesDeId = CursorUtil.decodificar(cursor);
+        int limite = Math.max(1, Math.min(tamano, tamanoMaximoPagina));
+
+        // Una sola consulta sobre 'mascotas': la imagen principal ya está en la fila
+        List<MascotaResumenDTO> resumenes = mascotasRepository.findResumenes(aliadoId, despuesDeId, PageRequest.of(0, limite + 1));
+        boolean hayMas = resumenes.size() > limite;
+        if (hayMas) {
+            resumenes = resumenes.subList(0, limite);
+        }
+
+        List<MascotaResumenDTO> contenido = resumenes.stream()
+                .map(mascotaMapper::conUrlImagen)
+                .toList();
+        String siguienteCursor = hayMas ? CursorUtil.codificar(contenido.get(contenido.size() - 1).getId()) : null;
+        return new PaginaDTO<>(contenido, siguienteCursor, hayMas);
+    }
+
+    /**
+     * Ejecuta la acción en una transacción corta y mide cuánto tiempo se retuvo la conexión
+     */
+    private <T> T enTransaccion(String operacion, TransactionCallback<T> accion) {
+        long inicio = System.nanoTime();
+        try {
+            T resultado = transactionTemplate.execute(accion);
+            latenciasTransaccion.registrarDesde(operacion, inicio);
+            return resultado;
+        } catch (RuntimeException e) {
+            latenciasTransaccion.registrarDesde(operacion + "_rollback", inicio);
+            throw e;
+        }
+    }
+
+    /**
+     * Programa la generación de variantes de las imágenes recién confirmadas
+     */
+    private void programarVariantes(Long mascotaId, List<MascotaImage> nuevasImagenes) {
+        List<Long> ids = nuevasImagenes.stream()
+                .filter(img -> MascotaImage.ESTADO_PENDIENTE.equals(img.getEstadoVariantes()))
+                .map(MascotaImage::getId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        if (!ids.isEmpty()) {
+            procesamientoImagenes.programar(mascotaId, ids);
+        }
+    }
+
+    /**
+     * Crea la fila de una imagen recién subida
+     * Si el archivo está deduplicado, suma una referencia al contenido y, si otra imagen con el
+     * mismo contenido ya tiene variantes generadas, las reutiliza en lugar de volver a generarlas
+     */
+    private MascotaImage nuevaImagen(ImagenPreparada preparada, Mascotas mascota, int orden) {
+        MascotaImage img = new MascotaImage();
+        img.setImagenPath(preparada.clave());
+        img.setOrden(orden);
+        img.setMascota(mascota);
+
+        if (preparada.deduplicada()) {
+            img.setHashContenido(preparada.hash());
+            archivoImagenRepository.sumarReferencia(preparada.hash(), img.getImagenPath());
+            mascotaImageRepository.findFirstByHashContenidoAndEstadoVariantes(preparada.hash(), MascotaImage.ESTADO_LISTO)
+                    .ifPresent(existente -> {
+                        img.setThumbnailPath(existente.getThumbnailPath());
+                        img.setMediumPath(existente.getMediumPath());
+                        img.setFullPath(existente.getFullPath());
+                        img.setEstadoVariantes(MascotaImage.ESTADO_LISTO);
+                    });
+        }
+        return img;
+    }
+
+    /**
+     * Resta la referencia de la imagen a su archivo (dentro de la transacción)
+     * @return true si el archivo ya no tiene referencias y puede borrarse del disco tras el commit
+     */
+    private boolean liberarArchivo(MascotaImage img) {
+        if (img.getHashContenido() == null) {
+            return true; // archivo propio (sin deduplicar)
+        }
+        archivoImagenRepository.restarReferencia(img.getHashContenido());
+        return archivoImagenRepository.eliminarSinReferencias(img.getHashContenido()) > 0;
+    }
+
+    /**
+     * Elimina del almacenamiento los originales y sus variantes (miniatura, media y completa)
+     *
+     * Los archivos deduplicados se borran con el bloqueo de su hash (el mismo que toma sumarReferencia):
+     * - Si una subida del mismo contenido ya confirmó su referencia, el archivo se conserva
+     * - Si no, esa subida espera al bloqueo hasta que termine el borrado y, al confirmar,
+     *   ve que falta el archivo y guarda su copia
+     */
+    private void eliminarArchivos(List<MascotaImage> imagenes) {
+        for (MascotaImage img : imagenes) {
+            if (img.getHashContenido() == null) {
+                eliminarDelAlmacenamiento(img);
+                continue;
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.query("SELECT pg_advisory_xact_lock(hashtext(?))", rs -> null, img.getHashContenido());
+                // En una sentencia aparte: su instantánea ya incluye lo confirmado antes de obtener el bloqueo
+                if (archivoImagenRepository.existsById(img.getHashContenido())) {
+                    System.out.println("♻️ Contenido reutilizado, no se elimina: " + img.getImagenPath());
+                    return;
+                }
+                eliminarDelAlmacenamiento(img);
+            });
+        }
+    }
+
+    private void eliminarDelAlmacenamiento(MascotaImage img) {
+        String clave = ClavesAlmacenamiento.normalizar(img.getImagenPath());
+        List<String> claves = new ArrayList<>();
+        claves.add(clave);
+        claves.addAll(procesamientoImagenes.rutasVariantes(clave));
+        for (String c : claves) {
+            try {
+                if (storageService.eliminar(c)) {
+                    System.out.println("✅ Archivo eliminado: " + c);
+                } else {
+                    System.out.println("ℹ️ Archivo no existe: " + c);
+                }
+            } catch (IOException | RuntimeException e) {
+                System.err.println("⚠️ No se pudo eliminar: " + c);
+            }
+        }
+    }
+
+    @Override
+    public Map<String, Object> estadisticasTransacciones() {
+        return latenciasTransaccion.estadisticas();
+    }
+
+    /**
+     * Consulta con un solo IN las imágenes de un lote de mascotas, agrupadas por ID de mascota
+     */
+    private Map<Long, List<MascotaImage>> cargarImagenesPorMascota(List<Mascotas> mascotas) {
+        if (mascotas.isEmpty()) {
+            return Map.of();
+        }
+        return mascotaImageRepository.findByMascotaIds(mascotas.stream().map(Mascotas::getId).toList())
+                .stream()
+                .collect(Collectors.groupingBy(img -> img.getMascota().getId()));
+    }
+
+    /**
+     * Calcula las facetas a partir del conteo agrupado
+     * Cada faceta aplica todos los filtros activos excepto el suyo propio
+     */
+    private FacetasDTO calcularFacetas(List<ConteoFacetaDTO> conteos, FiltroMascotasDTO filtro) {
+        FacetasDTO facetas = new FacetasDTO();
+        for (ConteoFacetaDTO conteo : conteos) {
+            boolean especie = coincide(filtro.getEspecie(), conteo.getEspecie());
+            boolean sexo = coincide(filtro.getSexo(), conteo.getSexo());
+            boolean ciudad = coincide(filtro.getCiudad(), conteo.getCiudad());
+            boolean raza = coincide(filtro.getRaza(), conteo.getRaza());
+            boolean edad = (filtro.getEdadMin() == null || conteo.getEdad() >= filtro.getEdadMin())
+                    && (filtro.getEdadMax() == null || conteo.getEdad() <= filtro.getEdadMax());
+            long total = conteo.getTotal();
+
+            if (sexo && ciudad && raza && edad) {
+                sumar(facetas.getEspecie(), conteo.getEspecie(), total);
+            }
+            if (especie && ciudad && raza && edad) {
+                sumar(facetas.getSexo(), conteo.getSexo(), total);
+            }
+            if (especie && sexo && raza && edad) {
+                sumar(facetas.getCiudad(), conteo.getCiudad(), total);
+            }
+            if (especie && sexo && ciudad && edad) {
+                sumar(facetas.getRaza(), conteo.getRaza(), total);
+            }
+            if (sexo && raza && edad && conteo.getCiudad() != null) {
+                sumar(facetas.getEspeciePorCiudad().computeIfAbsent(conteo.getCiudad(), c -> new TreeMap<>()),
+                        conteo.getEspecie(), total);
+            }
+        }
+        return facetas;
+    }
+
+    private static boolean coincide(String filtro, String valor) {
+        return filtro == null || filtro.equals(valor);
+    }
+
+    private static void sumar(Map<String, Long> faceta, String valor, long total) {
+        if (valor != null) {
+            faceta.merge(valor, total, Long::sum);
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package com.example.AdoptaFacil.Implement;
 
+import com.example.AdoptaFacil.Cache.CacheAcotada;
 import com.example.AdoptaFacil.DTO.PersonDTO;
 import com.example.AdoptaFacil.Entity.Person;
 import com.example.AdoptaFacil.Repository.PersonRepository;
+import com.example.AdoptaFacil.Security.UsuarioAutenticado;
 import com.example.AdoptaFacil.Service.PersonService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -17,6 +19,9 @@ public class PersonServiceImpl implements PersonService {
     @Autowired
     private PersonRepository personRepository;
 
+    @Autowired
+    private CacheAcotada<String, UsuarioAutenticado> cachePrincipales;
+
     // 🔹 Convertir Entity a DTO
     private PersonDTO convertToDTO(Person person) {
         PersonDTO dto = new PersonDTO();
@@ -89,6 +94,7 @@ public class PersonServiceImpl implements PersonService {
 
         if (existingPerson.isPresent()) {
             Person person = existingPerson.get();
+            String emailAnterior = person.getEmail();
             person.setName(personDTO.getName());
             person.setLastName(personDTO.getLastName());
             person.setEmail(personDTO.getEmail());
@@ -96,6 +102,9 @@ public class PersonServiceImpl implements PersonService {
             person.setRole(personDTO.getRole());
 
             Person updated = personRepository.save(person);
+            // Invalidar el principal en caché (email anterior y nuevo)
+            cachePrincipales.invalidar(emailAnterior);
+            cachePrincipales.invalidar(updated.getEmail());
             return convertToDTO(updated);
         }
         return null;
@@ -103,6 +112,10 @@ public class PersonServiceImpl implements PersonService {
 
     @Override
     public void deletePerson(Long personId) {
-        personRepository.deleteById(personId);
+        personRepository.findById(personId).ifPresent(person -> {
+            personRepository.delete(person);
+            // El usuario eliminado no debe seguir autenticándose desde la caché
+            cachePrincipales.invalidar(person.getEmail());
+        });
     }
 }
@@ -0,0 +1,291 @@
+package com.example.AdoptaFacil.Implement;
+
+import com.example.AdoptaFacil.Cache.CacheAcotada;
+import com.example.AdoptaFacil.Config.EnrutamientoLecturas;
+import com.example.AdoptaFacil.DTO.MascotasDTO;
+import com.example.AdoptaFacil.Entity.MascotaImage;
+import com.example.AdoptaFacil.Repository.MascotaImageRepository;
+import com.example.AdoptaFacil.Service.ProcesamientoImagenesService;
+import com.example.AdoptaFacil.Service.StorageService;
+import com.example.AdoptaFacil.Util.ClavesAlmacenamiento;
+import com.example.AdoptaFacil.Util.EstadisticasLatencia;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Genera en segundo plano las variantes de cada imagen subida:
+ * - thumb: miniatura para listados
+ * - medium: tamaño medio para el detalle
+ * - full: tamaño completo recomprimido
+ *
+ * Cada original se lee del StorageService y se decodifica una sola vez; las variantes se escriben como JPEG nuevos,
+ * sin metadatos (se descarta el EXIF, incluida la ubicación GPS de la foto).
+ * Se ejecuta en un pool acotado; si la cola está llena, la imagen queda PENDIENTE y
+ * la revisión periódica la vuelve a programar.
+ * Las lecturas de estos hilos van siempre a la primaria: una réplica atrasada aún no tendría
+ * la imagen recién subida y esta quedaría PENDIENTE.
+ */
+@Service
+public class ProcesamientoImagenesServiceImpl implements ProcesamientoImagenesService {
+
+    private static final String FORMATO_SALIDA = "jpg";
+
+    private final MascotaImageRepository mascotaImageRepository;
+    private final CacheAcotada<Long, MascotasDTO> cacheMascotas;
+    private final StorageService storageService;
+    private final EnrutamientoLecturas enrutamiento;
+    private final Path temporalesDir;
+    private final ThreadPoolExecutor executor;
+    private final Set<Long> enProceso = ConcurrentHashMap.newKeySet();
+
+    private final int ladoThumbnail;
+    private final int ladoMedium;
+    private final int ladoFull;
+    private final float calidadJpeg;
+    private final long maxPixeles;
+
+    private final LongAdder procesadas = new LongAdder();
+    private final LongAdder fallidas = new LongAdder();
+    private final LongAdder rechazadas = new LongAdder();
+    private final EstadisticasLatencia latencias = new EstadisticasLatencia();
+
+    public ProcesamientoImagenesServiceImpl(MascotaImageRepository mascotaImageRepository,
+                                            CacheAcotada<Long, MascotasDTO> cacheMascotas,
+                                            StorageService storageService,
+                                            EnrutamientoLecturas enrutamiento,
+                                            @Value("${upload.path}") String uploadPath,
+                                            @Value("${imagenes.variantes.hilos:2}") int hilos,
+                                            @Value("${imagenes.variantes.cola:200}") int capacidadCola,
+                                            @Value("${imagenes.variantes.thumbnail:320}") int ladoThumbnail,
+                                            @Value("${imagenes.variantes.medium:800}") int ladoMedium,
+                                            @Value("${imagenes.variantes.full:1600}") int ladoFull,
+                                            @Value("${imagenes.variantes.calidad:0.82}") float calidadJpeg,
+                                            @Value("${imagenes.max-pixeles:40000000}") long maxPixeles) {
+        this.mascotaImageRepository = mascotaImageRepository;
+        this.cacheMascotas = cacheMascotas;
+        this.storageService = storageService;
+        this.enrutamiento = enrutamiento;
+        this.temporalesDir = Paths.get(uploadPath).resolve(".staging");
+        this.ladoThumbnail = ladoThumbnail;
+        this.ladoMedium = ladoMedium;
+        this.ladoFull = ladoFull;
+        this.calidadJpeg = calidadJpeg;
+        this.maxPixeles = maxPixeles;
+
+        AtomicInteger contador = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                hilos, hilos,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidadCola),
+                r -> {
+                    Thread t = new Thread(r, "imagenes-variantes-" + contador.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Override
+    public void programar(Long mascotaId, List<Long> imagenIds) {
+        for (Long imagenId : imagenIds) {
+            if (!enProceso.add(imagenId)) {
+                continue; // ya está en cola
+            }
+            try {
+                executor.execute(() -> {
+                    try {
+                        procesar(mascotaId, imagenId);
+                    } finally {
+                        enProceso.remove(imagenId);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Queda PENDIENTE: la revisión periódica la reprogramará
+                enProceso.remove(imagenId);
+                rechazadas.increment();
+                System.err.println("⚠️ Cola de procesamiento de imágenes llena, imagen " + imagenId + " queda pendiente");
+            }
+        }
+    }
+
+    @Override
+    public List<String> rutasVariantes(String clave) {
+        return List.of(
+                ClavesAlmacenamiento.variante(clave, "thumb", FORMATO_SALIDA),
+                ClavesAlmacenamiento.variante(clave, "medium", FORMATO_SALIDA),
+                ClavesAlmacenamiento.variante(clave, "full", FORMATO_SALIDA));
+    }
+
+    /**
+     * Revisa periódicamente las imágenes que quedaron pendientes (cola llena, reinicio, imágenes antiguas)
+     */
+    @Scheduled(initialDelayString = "${imagenes.variantes.revision-inicial-ms:60000}",
+               fixedDelayString = "${imagenes.variantes.revision-ms:300000}")
+    public void revisarPendientes() {
+        int libres = executor.getQueue().remainingCapacity();
+        if (libres == 0) {
+            return;
+        }
+        List<Long> pendientes = enrutamiento.enPrimaria(() ->
+                mascotaImageRepository.findIdsPendientesDeVariantes(PageRequest.of(0, Math.min(libres, 50))));
+        for (Long imagenId : pendientes) {
+            programar(null, List.of(imagenId));
+        }
+    }
+
+    private void procesar(Long mascotaId, Long imagenId) {
+        long inicio = System.nanoTime();
+        MascotaImage imagen = enrutamiento.enPrimaria(() -> mascotaImageRepository.findById(imagenId)).orElse(null);
+        if (imagen == null) {
+            return; // la imagen se eliminó antes de procesarla
+        }
+        Long idMascota = mascotaId != null ? mascotaId : imagen.getMascota().getId();
+
+        try {
+            String clave = ClavesAlmacenamiento.normalizar(imagen.getImagenPath());
+            BufferedImage fuente = decodificar(clave);
+
+            String thumb = escribirVariante(fuente, ladoThumbnail, ClavesAlmacenamiento.variante(clave, "thumb", FORMATO_SALIDA));
+            String medium = escribirVariante(fuente, ladoMedium, ClavesAlmacenamiento.variante(clave, "medium", FORMATO_SALIDA));
+            String full = escribirVariante(fuente, ladoFull, ClavesAlmacenamiento.variante(clave, "full", FORMATO_SALIDA));
+            fuente.flush();
+
+            mascotaImageRepository.actualizarVariantes(imagenId, thumb, medium, full, MascotaImage.ESTADO_LISTO);
+            procesadas.increment();
+            latencias.registrarDesde("exito", inicio);
+            System.out.println("✅ Variantes generadas para imagen " + imagenId);
+        } catch (Exception e) {
+            mascotaImageRepository.actualizarVariantes(imagenId, null, null, null, MascotaImage.ESTADO_ERROR);
+            fallidas.increment();
+            latencias.registrarDesde("error", inicio);
+            System.err.println("❌ Error generando variantes de la imagen " + imagenId + ": " + e.getMessage());
+        }
+
+        // El DTO en caché aún apunta al original
+        cacheMascotas.invalidar(idMascota);
+    }
+
+    /**
+     * Decodifica el original una sola vez, comprobando antes sus dimensiones en la cabecera
+     */
+    private BufferedImage decodificar(String clave) throws IOException {
+        try (InputStream datos = storageService.abrir(clave);
+             ImageInputStream entrada = ImageIO.createImageInputStream(datos)) {
+            if (entrada == null) {
+                throw new IOException("No se pudo abrir " + clave);
+            }
+            Iterator<ImageReader> lectores = ImageIO.getImageReaders(entrada);
+            if (!lectores.hasNext()) {
+                throw new IOException("Formato de imagen no soportado: " + clave);
+            }
+            ImageReader lector = lectores.next();
+            try {
+                lector.setInput(entrada, true, true); // ignorar metadatos (EXIF)
+                long pixeles = (long) lector.getWidth(0) * lector.getHeight(0);
+                if (pixeles > maxPixeles) {
+                    throw new IOException("Imagen demasiado grande: " + pixeles + " píxeles");
+                }
+                return lector.read(0);
+            } finally {
+                lector.dispose();
+            }
+        }
+    }
+
+    /**
+     * Escala la imagen para que su lado mayor no supere 'ladoMaximo' (sin ampliar)
+     * y la escribe como JPEG sin metadatos
+     * @return Clave de la variante guardada
+     */
+    private String escribirVariante(BufferedImage fuente, int ladoMaximo, String clave) throws IOException {
+        int ancho = fuente.getWidth();
+        int alto = fuente.getHeight();
+        double escala = Math.min(1.0, (double) ladoMaximo / Math.max(ancho, alto));
+        int nuevoAncho = Math.max(1, (int) Math.round(ancho * escala));
+        int nuevoAlto = Math.max(1, (int) Math.round(alto * escala));
+
+        // JPEG no admite transparencia: se pinta sobre fondo blanco en RGB
+        BufferedImage variante = new BufferedImage(nuevoAncho, nuevoAlto, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = variante.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, nuevoAncho, nuevoAlto);
+            g.drawImage(fuente, 0, 0, nuevoAncho, nuevoAlto, null);
+        } finally {
+            g.dispose();
+        }
+
+        // Escribir en un temporal y guardarlo completo, para no servir nunca un archivo a medio escribir
+        Files.createDirectories(temporalesDir);
+        Path temporal = temporalesDir.resolve(UUID.randomUUID() + "." + FORMATO_SALIDA);
+        ImageWriter escritor = ImageIO.getImageWritersByFormatName(FORMATO_SALIDA).next();
+        try (ImageOutputStream salida = ImageIO.createImageOutputStream(temporal.toFile())) {
+            ImageWriteParam parametros = escritor.getDefaultWriteParam();
+            parametros.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            parametros.setCompressionQuality(calidadJpeg);
+            escritor.setOutput(salida);
+            escritor.write(null, new IIOImage(variante, null, null), parametros);
+        } finally {
+            escritor.dispose();
+            variante.flush();
+        }
+        try {
+            storageService.guardar(clave, temporal);
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+        return clave;
+    }
+
+    @Override
+    public Map<String, Object> estadisticas() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("activos", executor.getActiveCount());
+        stats.put("enCola", executor.getQueue().size());
+        stats.put("procesadas", procesadas.sum());
+        stats.put("fallidas", fallidas.sum());
+        stats.put("rechazadas", rechazadas.sum());
+        stats.put("latencias", latencias.estadisticas());
+        return stats;
+    }
+
+    @PreDestroy
+    void cerrar() {
+        executor.shutdownNow();
+    }
+}
@@ -1,14 +1,15 @@
 package com.example.AdoptaFacil.Implement;
 
+import com.example.AdoptaFacil.Cache.CacheAcotada;
 import com.example.AdoptaFacil.DTO.RoleDTO;
 import com.example.AdoptaFacil.Entity.Role;
 import com.example.AdoptaFacil.Repository.RoleRepository;
+import com.example.AdoptaFacil.Security.UsuarioAutenticado;
 import com.example.AdoptaFacil.Service.RoleService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
-import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
@@ -17,6 +18,9 @@ public class RoleServiceImpl implements RoleService {
     @Autowired
     private RoleRepository roleRepository;
 
+    @Autowired
+    private CacheAcotada<String, UsuarioAutenticado> cachePrincipales;
+
     // 🔹 Convertir Entity a DTO
     private RoleDTO convertToDTO(Role role) {
         RoleDTO dto = new RoleDTO();
@@ -56,12 +60,11 @@ public class RoleServiceImpl implements RoleService {
 
     @Override
     public RoleDTO updateRole(Long idRole, RoleDTO roleDTO) {
-        Optional<Role> existingRole = roleRepository.findById(idRole);
-        if (existingRole.isPresent()) {
-            Role role = existingRole.get();
-            role.setRoleType(roleDTO.getRoleType());
-            Role updated = roleRepository.save(role);
-            return convertToDTO(updated);
+        // Role está en una región de caché de solo lectura: no se modifica la entidad sino con UPDATE
+        if (roleRepository.actualizarTipo(idRole, roleDTO.getRoleType()) > 0) {
+            // Los principales en caché guardan el tipo de rol
+            cachePrincipales.invalidarTodo();
+            return getRoleById(idRole);
         }
         return null;
     }
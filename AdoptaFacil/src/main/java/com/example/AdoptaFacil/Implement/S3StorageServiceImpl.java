@@ -0,0 +1,152 @@
+package com.example.AdoptaFacil.Implement;
+
+import com.example.AdoptaFacil.Service.StorageService;
+import com.example.AdoptaFacil.Util.ClavesAlmacenamiento;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.UriUtils;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Almacenamiento en un bucket compatible con S3 (AWS S3, MinIO, LocalStack...)
+ * Todos los nodos de la aplicación ven los mismos objetos, y los clientes descargan
+ * las imágenes directamente desde storage.s3.url-publica (bucket o CDN).
+ *
+ * Para probarlo en local con MinIO:
+ *   docker run -p 9000:9000 -e MINIO_ROOT_USER=minio -e MINIO_ROOT_PASSWORD=minio123 minio/minio server /data
+ *   storage.tipo=s3, storage.s3.endpoint=http://localhost:9000, storage.s3.path-style=true,
+ *   storage.s3.access-key=minio, storage.s3.secret-key=minio123
+ */
+@Service
+@ConditionalOnProperty(name = "storage.tipo", havingValue = "s3")
+public class S3StorageServiceImpl implements StorageService {
+
+    // Objetos nombrados por su hash: su contenido nunca cambia
+    private static final Pattern NOMBRE_POR_HASH = Pattern.compile("^[0-9a-f]{64}(_[a-z]+)?\\.[a-z0-9]{1,5}$");
+
+    private final S3Client s3;
+    private final String bucket;
+    private final String urlPublica;
+
+    public S3StorageServiceImpl(@Value("${storage.s3.bucket}") String bucket,
+                                @Value("${storage.s3.region:us-east-1}") String region,
+                                @Value("${storage.s3.endpoint:}") String endpoint,
+                                @Value("${storage.s3.path-style:false}") boolean pathStyle,
+                                @Value("${storage.s3.access-key:}") String accessKey,
+                                @Value("${storage.s3.secret-key:}") String secretKey,
+                                @Value("${storage.s3.url-publica:}") String urlPublica) {
+        S3ClientBuilder builder = S3Client.builder()
+                .region(Region.of(region))
+                .forcePathStyle(pathStyle);
+        if (!endpoint.isBlank()) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        // Sin credenciales explícitas se usa la cadena por defecto (variables de entorno, perfil, rol IAM)
+        builder.credentialsProvider(accessKey.isBlank()
+                ? DefaultCredentialsProvider.builder().build()
+                : StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey)));
+
+        this.s3 = builder.build();
+        this.bucket = bucket;
+        if (!urlPublica.isBlank()) {
+            this.urlPublica = urlPublica.endsWith("/") ? urlPublica : urlPublica + "/";
+        } else if (!endpoint.isBlank()) {
+            this.urlPublica = endpoint + "/" + bucket + "/";
+        } else {
+            this.urlPublica = "https://" + bucket + ".s3." + region + ".amazonaws.com/";
+        }
+        System.out.println("✅ Almacenamiento S3: bucket " + bucket + (endpoint.isBlank() ? "" : " en " + endpoint));
+    }
+
+    @Override
+    public void guardar(String clave, Path origen) throws IOException {
+        String nombre = ClavesAlmacenamiento.nombre(clave);
+        PutObjectRequest.Builder peticion = PutObjectRequest.builder()
+                .bucket(bucket)
+                .key(clave)
+                .contentType(MediaTypeFactory.getMediaType(nombre).orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+        if (NOMBRE_POR_HASH.matcher(nombre).matches()) {
+            peticion.cacheControl("public, max-age=31536000, immutable");
+        }
+        try {
+            s3.putObject(peticion.build(), RequestBody.fromFile(origen));
+        } catch (S3Exception e) {
+            throw new IOException("Error subiendo " + clave + " a S3: " + e.getMessage(), e);
+        }
+        Files.deleteIfExists(origen);
+    }
+
+    @Override
+    public boolean existe(String clave) {
+        try {
+            s3.headObject(HeadObjectRequest.builder().bucket(bucket).key(clave).build());
+            return true;
+        } catch (NoSuchKeyException e) {
+            return false;
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean eliminar(String clave) throws IOException {
+        try {
+            s3.deleteObject(DeleteObjectRequest.builder().bucket(bucket).key(clave).build());
+            return true;
+        } catch (S3Exception e) {
+            throw new IOException("Error eliminando " + clave + " de S3: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public InputStream abrir(String clave) throws IOException {
+        try {
+            return s3.getObject(GetObjectRequest.builder().bucket(bucket).key(clave).build());
+        } catch (S3Exception e) {
+            throw new IOException("Error leyendo " + clave + " de S3: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Optional<Path> rutaLocal(String clave) {
+        return Optional.empty();
+    }
+
+    @Override
+    public String url(String clave) {
+        return urlPublica + UriUtils.encodePath(clave, StandardCharsets.UTF_8);
+    }
+
+    @PreDestroy
+    void cerrar() {
+        s3.close();
+    }
+}
@@ -0,0 +1,282 @@
+package com.example.AdoptaFacil.Implement;
+
+import com.example.AdoptaFacil.Config.EnrutamientoLecturas;
+import com.example.AdoptaFacil.DTO.MascotasDTO;
+import com.example.AdoptaFacil.DTO.SesionSubidaDTO;
+import com.example.AdoptaFacil.Entity.Person;
+import com.example.AdoptaFacil.Entity.Role;
+import com.example.AdoptaFacil.Entity.SesionSubida;
+import com.example.AdoptaFacil.Repository.MascotaImageRepository;
+import com.example.AdoptaFacil.Repository.MascotasRepository;
+import com.example.AdoptaFacil.Repository.SesionSubidaRepository;
+import com.example.AdoptaFacil.Service.MascotasService;
+import com.example.AdoptaFacil.Service.SubidasService;
+import com.example.AdoptaFacil.Util.PreparacionImagenes;
+import com.example.AdoptaFacil.Util.PreparacionImagenes.ImagenPreparada;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Subidas reanudables de imágenes de mascotas
+ *
+ * Flujo:
+ * 1. crearSesion: se preasigna un archivo del tamaño declarado en upload.path/.subidas
+ * 2. escribirFragmento: cada fragmento se escribe con FileChannel.transferFrom directamente
+ *    desde el cuerpo de la petición a su posición en el archivo (sin copias intermedias).
+ *    Solo se recibe un fragmento a la vez por sesión: un segundo fragmento concurrente recibe 409
+ *    antes de escribir nada, en lugar de sobrescribir la misma zona del archivo
+ * 3. finalizar: el archivo completo pasa por el mismo flujo en dos fases que las subidas
+ *    multipart y se añade como MascotaImage al final del 'orden' de la mascota
+ *
+ * El progreso ('recibido') se guarda en BD, así que una sesión sobrevive a un reinicio.
+ */
+@Service
+public class SubidasServiceImpl implements SubidasService {
+
+    private static final int MAXIMO_IMAGENES = 3;
+
+    private final SesionSubidaRepository sesionSubidaRepository;
+    private final MascotasRepository mascotasRepository;
+    private final MascotaImageRepository mascotaImageRepository;
+    private final MascotasService mascotasService;
+    private final PreparacionImagenes preparacionImagenes;
+    private final EnrutamientoLecturas enrutamiento;
+    private final Path subidasDir;
+    private final long tamanoMaximo;
+    private final int tamanoFragmento;
+    private final Duration expiracion;
+    // Sesiones con un fragmento recibiéndose en esta instancia
+    private final Set<String> fragmentosEnCurso = ConcurrentHashMap.newKeySet();
+
+    public SubidasServiceImpl(SesionSubidaRepository sesionSubidaRepository,
+                              MascotasRepository mascotasRepository,
+                              MascotaImageRepository mascotaImageRepository,
+                              MascotasService mascotasService,
+                              PreparacionImagenes preparacionImagenes,
+                              EnrutamientoLecturas enrutamiento,
+                              @Value("${upload.path}") String uploadPath,
+                              @Value("${upload.subidas.tamano-maximo-bytes:10485760}") long tamanoMaximo,
+                              @Value("${upload.subidas.tamano-fragmento-bytes:1048576}") int tamanoFragmento,
+                              @Value("${upload.subidas.expiracion-horas:24}") long expiracionHoras) {
+        this.sesionSubidaRepository = sesionSubidaRepository;
+        this.mascotasRepository = mascotasRepository;
+        this.mascotaImageRepository = mascotaImageRepository;
+        this.mascotasService = mascotasService;
+        this.preparacionImagenes = preparacionImagenes;
+        this.enrutamiento = enrutamiento;
+        this.subidasDir = Paths.get(uploadPath).resolve(".subidas");
+        this.tamanoMaximo = tamanoMaximo;
+        this.tamanoFragmento = tamanoFragmento;
+        this.expiracion = Duration.ofHours(expiracionHoras);
+    }
+
+    @Override
+    public SesionSubidaDTO crearSesion(Long mascotaId, String nombreArchivo, long tamano, Person usuario) {
+        System.out.println("\n=== SERVICE: Creando sesión de subida para mascota ID " + mascotaId + " ===");
+
+        if (nombreArchivo == null || nombreArchivo.isBlank()) {
+            throw new IllegalArgumentException("El nombre del archivo es obligatorio");
+        }
+        if (tamano <= 0 || tamano > tamanoMaximo) {
+            throw new IllegalArgumentException("El tamaño debe estar entre 1 y " + tamanoMaximo + " bytes");
+        }
+
+        Long idDueno = mascotasRepository.findIdPropietario(mascotaId)
+                .orElseThrow(() -> new IllegalArgumentException("Mascota no encontrada con ID: " + mascotaId));
+        verificarPermiso(idDueno, usuario);
+
+        if (mascotaImageRepository.countByMascota_Id(mascotaId) >= MAXIMO_IMAGENES) {
+            throw new IllegalArgumentException("Máximo " + MAXIMO_IMAGENES + " imágenes permitidas");
+        }
+
+        // Archivo preasignado con el tamaño final: cada fragmento se escribe en su posición
+        String id = UUID.randomUUID().toString();
+        Path ruta = subidasDir.resolve(id + ".part");
+        try {
+            Files.createDirectories(subidasDir);
+            try (RandomAccessFile archivo = new RandomAccessFile(ruta.toFile(), "rw")) {
+                archivo.setLength(tamano);
+            }
+        } catch (IOException e) {
+            System.err.println("❌ Error preasignando archivo de subida: " + e.getMessage());
+            throw new IllegalArgumentException("Error al crear la sesión de subida: " + e.getMessage());
+        }
+
+        LocalDateTime ahora = LocalDateTime.now();
+        SesionSubida sesion = new SesionSubida();
+        sesion.setId(id);
+        sesion.setMascotaId(mascotaId);
+        sesion.setPropietarioId(usuario.getIdPerson());
+        sesion.setNombreArchivo(Paths.get(nombreArchivo).getFileName().toString());
+        sesion.setTamano(tamano);
+        sesion.setRuta(ruta.toAbsolutePath().toString());
+        sesion.setCreadaEn(ahora);
+        sesion.setActualizadaEn(ahora);
+        sesionSubidaRepository.save(sesion);
+
+        System.out.println("✅ Sesión de subida creada: " + id + " (" + tamano + " bytes)");
+        return toDTO(sesion);
+    }
+
+    @Override
+    public SesionSubidaDTO escribirFragmento(Long mascotaId, String sesionId, long offset,
+                                             InputStream datos, long longitud, Person usuario) throws IOException {
+        // Reclamar la sesión antes de leer su estado: dos fragmentos a la vez escribirían en la misma posición
+        if (!fragmentosEnCurso.add(sesionId)) {
+            throw new IllegalStateException("Ya se está recibiendo otro fragmento de esta sesión");
+        }
+        try {
+            SesionSubida sesion = buscarSesion(mascotaId, sesionId, usuario);
+
+            if (offset != sesion.getRecibido()) {
+                // El cliente debe reanudar desde 'recibido' (consultando el estado de la sesión)
+                throw new IllegalStateException("Offset " + offset + " no coincide con los bytes recibidos: " + sesion.getRecibido());
+            }
+            long restante = sesion.getTamano() - offset;
+            if (longitud > restante) {
+                throw new IllegalArgumentException("El fragmento excede el tamaño declarado del archivo");
+            }
+
+            // Sin Content-Length (chunked) se acepta como máximo lo que falta
+            long maximo = longitud >= 0 ? longitud : restante;
+            long escritos = 0;
+            IOException corte = null;
+            ReadableByteChannel origen = Channels.newChannel(datos);
+            try (FileChannel destino = FileChannel.open(Paths.get(sesion.getRuta()), StandardOpenOption.WRITE)) {
+                while (escritos < maximo) {
+                    long n = destino.transferFrom(origen, offset + escritos, maximo - escritos);
+                    if (n <= 0) {
+                        break; // fin del cuerpo
+                    }
+                    escritos += n;
+                }
+            } catch (IOException e) {
+                corte = e;
+            }
+
+            // Aunque la conexión se corte, lo ya escrito es contiguo y cuenta como recibido
+            if (escritos > 0 && sesionSubidaRepository.avanzar(sesionId, offset, offset + escritos, LocalDateTime.now()) == 0) {
+                // La sesión se canceló o expiró mientras se recibía el fragmento
+                IllegalStateException conflicto = new IllegalStateException("La sesión cambió mientras se recibía el fragmento");
+                if (corte != null) {
+                    conflicto.addSuppressed(corte);
+                }
+                throw conflicto;
+            }
+            if (corte != null) {
+                throw corte;
+            }
+
+            sesion.setRecibido(offset + escritos);
+            return toDTO(sesion);
+        } finally {
+            fragmentosEnCurso.remove(sesionId);
+        }
+    }
+
+    @Override
+    public SesionSubidaDTO obtenerSesion(Long mascotaId, String sesionId, Person usuario) {
+        return toDTO(buscarSesion(mascotaId, sesionId, usuario));
+    }
+
+    @Override
+    public MascotasDTO finalizar(Long mascotaId, String sesionId, Person usuario) {
+        System.out.println("\n=== SERVICE: Finalizando sesión de subida " + sesionId + " ===");
+
+        SesionSubida sesion = buscarSesion(mascotaId, sesionId, usuario);
+        if (!sesion.getRecibido().equals(sesion.getTamano())) {
+            throw new IllegalStateException("Subida incompleta: " + sesion.getRecibido() + " de " + sesion.getTamano() + " bytes");
+        }
+        // Solo una petición puede finalizar la sesión
+        if (sesionSubidaRepository.reclamarCompleta(sesionId) == 0) {
+            throw new IllegalStateException("La sesión ya se finalizó o está incompleta");
+        }
+
+        ImagenPreparada preparada = preparacionImagenes.prepararArchivo(Paths.get(sesion.getRuta()), sesion.getNombreArchivo());
+        MascotasDTO dto = mascotasService.agregarImagen(mascotaId, preparada, usuario);
+
+        System.out.println("✅ Subida finalizada y asociada a la mascota ID " + mascotaId);
+        return dto;
+    }
+
+    @Override
+    public void cancelar(Long mascotaId, String sesionId, Person usuario) {
+        SesionSubida sesion = buscarSesion(mascotaId, sesionId, usuario);
+        sesionSubidaRepository.deleteById(sesionId);
+        eliminarArchivo(sesion);
+        System.out.println("🗑️ Sesión de subida cancelada: " + sesionId);
+    }
+
+    /**
+     * Elimina las sesiones abandonadas y sus archivos preasignados
+     * (leídas en la primaria: en una réplica atrasada una sesión activa parecería abandonada)
+     */
+    @Scheduled(fixedDelayString = "${upload.subidas.limpieza-ms:3600000}")
+    public void limpiarExpiradas() {
+        List<SesionSubida> expiradas = enrutamiento.enPrimaria(() ->
+                sesionSubidaRepository.findByActualizadaEnBefore(LocalDateTime.now().minus(expiracion)));
+        for (SesionSubida sesion : expiradas) {
+            sesionSubidaRepository.deleteById(sesion.getId());
+            eliminarArchivo(sesion);
+        }
+        if (!expiradas.isEmpty()) {
+            System.out.println("🧹 Sesiones de subida expiradas eliminadas: " + expiradas.size());
+        }
+    }
+
+    private SesionSubida buscarSesion(Long mascotaId, String sesionId, Person usuario) {
+        SesionSubida sesion = sesionSubidaRepository.findById(sesionId)
+                .filter(s -> s.getMascotaId().equals(mascotaId))
+                .orElseThrow(() -> new IllegalArgumentException("Sesión de subida no encontrada: " + sesionId));
+        verificarPermiso(sesion.getPropietarioId(), usuario);
+        return sesion;
+    }
+
+    /**
+     * ADMIN puede operar sobre todas las mascotas, ALIADO solo sobre las suyas
+     */
+    private static void verificarPermiso(Long idDueno, Person usuario) {
+        boolean esAdmin = usuario.getRole() != null &&
+                        usuario.getRole().getRoleType() == Role.RoleType.ADMIN;
+        if (!esAdmin && !idDueno.equals(usuario.getIdPerson())) {
+            throw new SecurityException("No tienes permisos para subir imágenes a esta mascota");
+        }
+    }
+
+    private static void eliminarArchivo(SesionSubida sesion) {
+        try {
+            Files.deleteIfExists(Paths.get(sesion.getRuta()));
+        } catch (IOException e) {
+            System.err.println("⚠️ No se pudo eliminar el archivo de subida: " + sesion.getRuta());
+        }
+    }
+
+    private SesionSubidaDTO toDTO(SesionSubida sesion) {
+        return new SesionSubidaDTO(
+                sesion.getId(),
+                sesion.getMascotaId(),
+                sesion.getNombreArchivo(),
+                sesion.getTamano(),
+                sesion.getRecibido(),
+                sesion.getRecibido().equals(sesion.getTamano()),
+                tamanoFragmento);
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.AdoptaFacil.Repository;
+
+import com.example.AdoptaFacil.Entity.ArchivoImagen;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+public interface ArchivoImagenRepository extends JpaRepository<ArchivoImagen, String> {
+
+    /**
+     * Registra una referencia al archivo: lo crea con 1 referencia o suma una si ya existe
+     * (upsert atómico, seguro frente a subidas concurrentes del mismo contenido)
+     * Toma antes el bloqueo por hash (pg_advisory_xact_lock, hasta el fin de la transacción) que también
+     * toma el borrado del archivo físico: si hay un borrado en curso, espera a que termine
+     * Declara la tabla afectada: sin ella Hibernate vaciaría toda la caché de segundo nivel
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "archivos_imagen"))
+    @Query(value = "WITH bloqueo AS (SELECT pg_advisory_xact_lock(hashtext(:hash))) "
+            + "INSERT INTO archivos_imagen (hash, ruta, referencias, creado_en) "
+            + "SELECT :hash, :ruta, 1, now() FROM bloqueo "
+            + "ON CONFLICT (hash) DO UPDATE SET referencias = archivos_imagen.referencias + 1",
+            nativeQuery = true)
+    int sumarReferencia(@Param("hash") String hash, @Param("ruta") String ruta);
+
+    @Modifying
+    @Query("UPDATE ArchivoImagen a SET a.referencias = a.referencias - 1 WHERE a.hash = :hash")
+    int restarReferencia(@Param("hash") String hash);
+
+    /**
+     * Elimina el registro si ya no tiene referencias
+     * @return 1 si se eliminó (el archivo físico puede borrarse tras el commit), 0 si sigue en uso
+     */
+    @Modifying
+    @Query("DELETE FROM ArchivoImagen a WHERE a.hash = :hash AND a.referencias <= 0")
+    int eliminarSinReferencias(@Param("hash") String hash);
+}
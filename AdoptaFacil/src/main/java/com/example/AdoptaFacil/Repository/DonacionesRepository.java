@@ -10,8 +10,9 @@ import java.util.List;
 @Repository
 public interface DonacionesRepository extends JpaRepository<Donaciones, Long> {
 
-    // Buscar donaciones por persona (donante)
-    List<Donaciones> findByDonante(Person donante);
+    // Buscar donaciones por persona (donante), de la más reciente a la más antigua
+    // Usa el índice (person_id, fecha_donacion)
+    List<Donaciones> findByDonanteOrderByFechaDonacionDesc(Person donante);
 
     // Buscar donaciones mayores a un monto específico
 
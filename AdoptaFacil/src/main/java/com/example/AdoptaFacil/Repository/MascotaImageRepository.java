@@ -3,10 +3,50 @@ package com.example.AdoptaFacil.Repository;
 
 import com.example.AdoptaFacil.Entity.MascotaImage;
 import com.example.AdoptaFacil.Entity.Mascotas;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface MascotaImageRepository extends JpaRepository<MascotaImage, Long> {
     List<MascotaImage> findByMascotaOrderByOrden(Mascotas mascota);
+
+    /**
+     * Carga en una sola consulta (IN) las imágenes de un lote de mascotas
+     */
+    @Query("SELECT i FROM MascotaImage i WHERE i.mascota.id IN :mascotaIds ORDER BY i.mascota.id, i.orden")
+    List<MascotaImage> findByMascotaIds(@Param("mascotaIds") Collection<Long> mascotaIds);
+
+    /**
+     * Guarda las rutas de las variantes generadas y su estado
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE MascotaImage i SET i.thumbnailPath = :thumbnail, i.mediumPath = :medium, "
+            + "i.fullPath = :full, i.estadoVariantes = :estado WHERE i.id = :id")
+    int actualizarVariantes(@Param("id") Long id,
+                            @Param("thumbnail") String thumbnail,
+                            @Param("medium") String medium,
+                            @Param("full") String full,
+                            @Param("estado") String estado);
+
+    /**
+     * Imágenes cuyas variantes aún no se generaron (pendientes o anteriores al procesamiento)
+     */
+    @Query("SELECT i.id FROM MascotaImage i WHERE i.estadoVariantes IS NULL OR i.estadoVariantes = 'PENDIENTE' ORDER BY i.id")
+    List<Long> findIdsPendientesDeVariantes(Pageable limite);
+
+    /**
+     * Otra imagen con el mismo contenido (deduplicado) cuyas variantes ya se generaron
+     */
+    Optional<MascotaImage> findFirstByHashContenidoAndEstadoVariantes(String hashContenido, String estadoVariantes);
+
+    // Número de imágenes de una mascota
+    long countByMascota_Id(Long mascotaId);
 }
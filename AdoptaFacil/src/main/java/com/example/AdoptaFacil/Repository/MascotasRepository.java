@@ -1,13 +1,20 @@
 package com.example.AdoptaFacil.Repository;
 
+import com.example.AdoptaFacil.DTO.ConteoFacetaDTO;
+import com.example.AdoptaFacil.DTO.MascotaResumenDTO;
 import com.example.AdoptaFacil.Entity.Mascotas;
 import com.example.AdoptaFacil.Entity.Person;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface MascotasRepository extends JpaRepository<Mascotas, Long> {
     List<Mascotas> findByNombreContainingIgnoreCase(String nombre);
@@ -33,13 +40,93 @@ public interface MascotasRepository extends JpaRepository<Mascotas, Long> {
     @Query("SELECT DISTINCT m FROM Mascotas m LEFT JOIN FETCH m.imagenes LEFT JOIN FETCH m.ALIADO")
     List<Mascotas> findAllWithImagesAndOwner();
     
+    /**
+     * Página de mascotas con propietario usando paginación keyset sobre id_mascota
+     * No carga la colección de imágenes (se consulta aparte por lotes) para que
+     * el LIMIT se aplique en la base de datos y no en memoria
+     */
+    @Query("SELECT m FROM Mascotas m LEFT JOIN FETCH m.ALIADO WHERE m.id > :despuesDeId ORDER BY m.id")
+    List<Mascotas> findPaginaConPropietario(@Param("despuesDeId") Long despuesDeId, Pageable limite);
+    
+    /**
+     * Página de resúmenes (keyset sobre id_mascota) leyendo solo columnas de 'mascotas'
+     * La imagen principal está desnormalizada en m.imagen: no hay JOIN con mascota_images
+     * aliadoId null = catálogo completo
+     */
+    @Query("SELECT new com.example.AdoptaFacil.DTO.MascotaResumenDTO(m.id, m.nombre, m.especie, m.raza, m.edad, m.sexo, m.ciudad, m.imagen) "
+            + "FROM Mascotas m WHERE m.id > :despuesDeId AND (:aliadoId IS NULL OR m.ALIADO.idPerson = :aliadoId) ORDER BY m.id")
+    List<MascotaResumenDTO> findResumenes(@Param("aliadoId") Long aliadoId,
+                                          @Param("despuesDeId") Long despuesDeId,
+                                          Pageable limite);
+    
+    /**
+     * Recorre el catálogo (o el de un propietario) para exportarlo sin cargarlo en memoria
+     * Con fetch size el driver de PostgreSQL usa un cursor y trae las filas por bloques;
+     * debe consumirse dentro de una transacción y cerrarse al terminar
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT m FROM Mascotas m WHERE (:aliadoId IS NULL OR m.ALIADO.idPerson = :aliadoId) ORDER BY m.id")
+    Stream<Mascotas> streamCatalogo(@Param("aliadoId") Long aliadoId);
+    
     /**
      * Encuentra una mascota por ID con imágenes cargadas
      */
     @Query("SELECT m FROM Mascotas m LEFT JOIN FETCH m.imagenes WHERE m.id = :id")
     Optional<Mascotas> findByIdWithImages(@Param("id") Long id);
     
+    /**
+     * Búsqueda de texto sobre la columna normalizada 'busqueda' (nombre, raza, ciudad, descripción)
+     * Usa los índices GIN de trigramas (LIKE) y tsvector (@@) y ordena por relevancia
+     * El parámetro debe llegar normalizado con TextoUtil.normalizar
+     */
+    @Query(value = """
+            SELECT m.* FROM mascotas m
+            WHERE m.busqueda LIKE CONCAT('%', :patron, '%')
+               OR to_tsvector('simple', COALESCE(m.busqueda, '')) @@ plainto_tsquery('simple', :texto)
+            ORDER BY ts_rank(to_tsvector('simple', COALESCE(m.busqueda, '')), plainto_tsquery('simple', :texto)) DESC,
+                     similarity(m.busqueda, :texto) DESC,
+                     m.id_mascota
+            LIMIT :limite
+            """, nativeQuery = true)
+    List<Mascotas> buscarPorTexto(@Param("texto") String texto, @Param("patron") String patron, @Param("limite") int limite);
+    
+    /**
+     * Filtra mascotas por especie, sexo, ciudad, raza y rango de edad con paginación keyset
+     * Los parámetros null no se aplican
+     */
+    @Query("SELECT m FROM Mascotas m WHERE m.id > :despuesDeId "
+            + "AND (:especie IS NULL OR m.especie = :especie) "
+            + "AND (:sexo IS NULL OR m.sexo = :sexo) "
+            + "AND (:ciudad IS NULL OR m.ciudad = :ciudad) "
+            + "AND (:raza IS NULL OR m.raza = :raza) "
+            + "AND (:edadMin IS NULL OR m.edad >= :edadMin) "
+            + "AND (:edadMax IS NULL OR m.edad <= :edadMax) "
+            + "ORDER BY m.id")
+    List<Mascotas> filtrar(@Param("especie") String especie,
+                           @Param("sexo") String sexo,
+                           @Param("ciudad") String ciudad,
+                           @Param("raza") String raza,
+                           @Param("edadMin") Integer edadMin,
+                           @Param("edadMax") Integer edadMax,
+                           @Param("despuesDeId") Long despuesDeId,
+                           Pageable limite);
+    
+    /**
+     * Conteo agrupado por todas las dimensiones del filtro
+     * Una sola consulta agregada de la que se derivan todas las facetas en memoria
+     */
+    @Query("SELECT new com.example.AdoptaFacil.DTO.ConteoFacetaDTO(m.ciudad, m.especie, m.sexo, m.raza, m.edad, COUNT(m)) "
+            + "FROM Mascotas m GROUP BY m.ciudad, m.especie, m.sexo, m.raza, m.edad")
+    List<ConteoFacetaDTO> contarPorFacetas();
+    
     // Mantener los métodos originales para compatibilidad (aunque no se recomienda usarlos)
     List<Mascotas> findByALIADO(Person aliado);
     List<Mascotas> findByNombreContainingIgnoreCaseAndALIADO(String nombre, Person aliado);
+
+    // ID del dueño de la mascota (sin cargar la entidad)
+    @Query("SELECT m.ALIADO.idPerson FROM Mascotas m WHERE m.id = :id")
+    Optional<Long> findIdPropietario(@Param("id") Long id);
 }
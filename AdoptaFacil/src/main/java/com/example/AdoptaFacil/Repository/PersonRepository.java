@@ -3,6 +3,10 @@ package com.example.AdoptaFacil.Repository;
 import com.example.AdoptaFacil.Entity.Person;
 import com.example.AdoptaFacil.Entity.Role;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -14,5 +18,11 @@ public interface PersonRepository extends JpaRepository<Person, Long> {
 
     // Buscar personas por rol (usando el tipo enum)
     List<Person> findByRole_RoleType(Role.RoleType roleType);
+
+    // Actualizar solo el hash de la contraseña (rehash tras login con coste distinto)
+    @Modifying
+    @Transactional
+    @Query("UPDATE Person p SET p.password = :password WHERE p.idPerson = :idPerson")
+    int actualizarPassword(@Param("idPerson") Long idPerson, @Param("password") String password);
 }
     
\ No newline at end of file
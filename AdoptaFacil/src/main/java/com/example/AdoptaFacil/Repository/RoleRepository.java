@@ -1,13 +1,30 @@
-
 package com.example.AdoptaFacil.Repository;
 
 import com.example.AdoptaFacil.Entity.Role;
 import com.example.AdoptaFacil.Entity.Role.RoleType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
 public interface RoleRepository extends JpaRepository<Role, Long> {
-    // Buscar un rol por su tipo
+    // Buscar un rol por su tipo (caché de consultas: el registro no vuelve a consultar la BD)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "roles_por_tipo")
+    })
     Optional<Role> findByRoleType(RoleType roleType);
+
+    // Cambiar el tipo de un rol; la región "roles" es de solo lectura, así que se hace
+    // con un UPDATE masivo, que la invalida junto con la caché de consultas de roles
+    @Modifying
+    @Transactional
+    @Query("UPDATE Role r SET r.roleType = :roleType WHERE r.idRole = :idRole")
+    int actualizarTipo(@Param("idRole") Long idRole, @Param("roleType") RoleType roleType);
 }
@@ -0,0 +1,37 @@
+package com.example.AdoptaFacil.Repository;
+
+import com.example.AdoptaFacil.Entity.SesionSubida;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface SesionSubidaRepository extends JpaRepository<SesionSubida, String> {
+
+    /**
+     * Avanza el desplazamiento solo si sigue siendo 'desde'
+     * (dos fragmentos concurrentes con el mismo offset no pueden avanzar ambos)
+     * @return 1 si se actualizó, 0 si otro fragmento se adelantó
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE SesionSubida s SET s.recibido = :hasta, s.actualizadaEn = :ahora "
+            + "WHERE s.id = :id AND s.recibido = :desde")
+    int avanzar(@Param("id") String id, @Param("desde") long desde,
+                @Param("hasta") long hasta, @Param("ahora") LocalDateTime ahora);
+
+    /**
+     * Reclama la sesión para finalizarla: la elimina solo si el archivo está completo
+     * @return 1 si esta petición la finaliza, 0 si está incompleta o ya se finalizó
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM SesionSubida s WHERE s.id = :id AND s.recibido = s.tamano")
+    int reclamarCompleta(@Param("id") String id);
+
+    List<SesionSubida> findByActualizadaEnBefore(LocalDateTime limite);
+}
@@ -1,5 +1,7 @@
 package com.example.AdoptaFacil.Security;
 
+import com.example.AdoptaFacil.Cache.CacheAcotada;
+import com.example.AdoptaFacil.Util.JwtClaims;
 import com.example.AdoptaFacil.Util.JwtUtil;
 import com.example.AdoptaFacil.Repository.PersonRepository;
 import com.example.AdoptaFacil.Entity.Person;
@@ -34,6 +36,10 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private PersonRepository personRepository;
 
+    // Caché de principales por email: evita consultar person + role en cada petición
+    @Autowired
+    private CacheAcotada<String, UsuarioAutenticado> cachePrincipales;
+
     /**
      * Ejecuta el filtro para cada petición HTTP
      * Extrae y valida el token JWT del header Authorization
@@ -47,9 +53,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             // Extraer token JWT del header Authorization
             String jwt = extractJwtFromRequest(request);
             
-            // Validar token y configurar contexto de seguridad si es válido
-            if (jwt != null && jwtUtil.validateToken(jwt) && !jwtUtil.isTokenExpired(jwt)) {
-                authenticateUser(jwt, request);
+            // Verificar el token una sola vez (firma + expiración) y autenticar si es válido
+            if (jwt != null) {
+                Optional<JwtClaims> claims = jwtUtil.verificarToken(jwt);
+                if (claims.isPresent()) {
+                    authenticateUser(claims.get(), request);
+                }
             }
             
         } catch (Exception e) {
@@ -76,20 +85,22 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     }
 
     /**
-     * Autentica al usuario basado en el token JWT válido
+     * Autentica al usuario basado en los claims del token JWT ya verificado
      * Configura el contexto de seguridad de Spring Security
      */
-    private void authenticateUser(String jwt, HttpServletRequest request) {
+    private void authenticateUser(JwtClaims claims, HttpServletRequest request) {
         try {
-            // Extraer email del token
-            String email = jwtUtil.getEmailFromToken(jwt);
-            String role = jwtUtil.getRoleFromToken(jwt);
+            // Datos extraídos del token
+            String email = claims.email();
+            String role = claims.role();
             
-            // Verificar que el usuario existe en la base de datos
-            Optional<Person> personOpt = personRepository.findByEmail(email);
+            // Verificar que el usuario existe (caché de principales; la BD solo en un fallo)
+            UsuarioAutenticado usuario = cachePrincipales.obtener(email,
+                    e -> personRepository.findByEmail(e).map(UsuarioAutenticado::desde).orElse(null));
             
-            if (personOpt.isPresent()) {
-                Person person = personOpt.get();
+            if (usuario != null) {
+                // Principal desacoplado y sin contraseña
+                Person person = usuario.toPerson();
                 
                 // Crear autoridad basada en el rol del usuario
                 SimpleGrantedAuthority authority = new SimpleGrantedAuthority("ROLE_" + role);
@@ -0,0 +1,45 @@
+package com.example.AdoptaFacil.Security;
+
+import com.example.AdoptaFacil.Config.EnrutamientoLecturas;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Marca cada petición para el enrutamiento de lecturas (ver EnrutamientoLecturas)
+ *
+ * - Una petición que escribe (POST, PUT, PATCH, DELETE) lee siempre de la primaria
+ * - Al terminar, abre la ventana de lectura propia de su usuario: sus siguientes lecturas
+ *   también van a la primaria hasta que la réplica haya tenido tiempo de alcanzarla
+ * - Se ejecuta antes del filtro JWT y cierra la ventana después, con el usuario ya autenticado
+ */
+@Component
+public class LecturaPropiaFilter extends OncePerRequestFilter {
+
+    private static final Set<String> METODOS_LECTURA = Set.of("GET", "HEAD", "OPTIONS");
+
+    private final EnrutamientoLecturas enrutamiento;
+
+    public LecturaPropiaFilter(EnrutamientoLecturas enrutamiento) {
+        this.enrutamiento = enrutamiento;
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        enrutamiento.iniciarPeticion(!METODOS_LECTURA.contains(request.getMethod()), request.getRemoteAddr());
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            enrutamiento.finalizarPeticion();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.AdoptaFacil.Security;
+
+import com.example.AdoptaFacil.Util.EstadisticasLatencia;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Bulkhead para las subidas de imágenes
+ *
+ * Las subidas multipart de /api/mascotas (crear y actualizar) y los fragmentos de las subidas
+ * reanudables ocupan un hilo de Tomcat mientras llega el cuerpo. Sin límite, una ráfaga de
+ * subidas grandes acapara todo el pool y bloquea la navegación y el login.
+ * - Como máximo 'max-concurrentes' subidas a la vez (semáforo)
+ * - Una cola corta: hasta 'cola' peticiones esperan como mucho 'espera-maxima-ms' a que quede hueco
+ * - Si no hay hueco se responde 503 con Retry-After sin leer el cuerpo
+ */
+@Component
+public class LimiteSubidasFilter extends OncePerRequestFilter {
+
+    private static final String RUTA_MASCOTAS = "/api/mascotas";
+    private static final Pattern RUTA_FRAGMENTO = Pattern.compile("^/api/mascotas/\\d+/imagenes/subidas/[^/]+$");
+
+    private final Semaphore permisos;
+    private final AtomicInteger enCola = new AtomicInteger();
+    private final int maxConcurrentes;
+    private final int maxCola;
+    private final long esperaMaximaNanos;
+    private final long retryAfterSegundos;
+
+    private final LongAdder permitidas = new LongAdder();
+    private final LongAdder rechazadasColaLlena = new LongAdder();
+    private final LongAdder rechazadasPorEspera = new LongAdder();
+    private final EstadisticasLatencia esperas = new EstadisticasLatencia();
+
+    public LimiteSubidasFilter(@Value("${upload.bulkhead.max-concurrentes:4}") int maxConcurrentes,
+                               @Value("${upload.bulkhead.cola:8}") int maxCola,
+                               @Value("${upload.bulkhead.espera-maxima-ms:500}") long esperaMaximaMs,
+                               @Value("${upload.bulkhead.retry-after-segundos:5}") long retryAfterSegundos) {
+        this.permisos = new Semaphore(maxConcurrentes, true);
+        this.maxConcurrentes = maxConcurrentes;
+        this.maxCola = maxCola;
+        this.esperaMaximaNanos = TimeUnit.MILLISECONDS.toNanos(esperaMaximaMs);
+        this.retryAfterSegundos = retryAfterSegundos;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        String metodo = request.getMethod();
+        String ruta = request.getServletPath();
+        if (!ruta.startsWith(RUTA_MASCOTAS)) {
+            return true;
+        }
+        String tipo = request.getContentType();
+        boolean multipart = tipo != null && tipo.toLowerCase(Locale.ROOT).startsWith("multipart/");
+        boolean fragmento = "PUT".equals(metodo) && RUTA_FRAGMENTO.matcher(ruta).matches();
+        return !(fragmento || (multipart && ("POST".equals(metodo) || "PUT".equals(metodo))));
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        long inicio = System.nanoTime();
+        if (!permisos.tryAcquire()) {
+            // Sin hueco libre: esperar solo si la cola no está llena
+            if (enCola.incrementAndGet() > maxCola) {
+                enCola.decrementAndGet();
+                rechazadasColaLlena.increment();
+                rechazar(response);
+                return;
+            }
+            boolean adquirido;
+            try {
+                adquirido = permisos.tryAcquire(esperaMaximaNanos, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                adquirido = false;
+            } finally {
+                enCola.decrementAndGet();
+            }
+            if (!adquirido) {
+                rechazadasPorEspera.increment();
+                esperas.registrarDesde("rechazada", inicio);
+                rechazar(response);
+                return;
+            }
+            esperas.registrarDesde("encolada", inicio);
+        }
+
+        permitidas.increment();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            permisos.release();
+        }
+    }
+
+    private void rechazar(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader("Retry-After", String.valueOf(retryAfterSegundos));
+        // El cuerpo no se lee: cerrar la conexión evita que Tomcat tenga que descartarlo
+        response.setHeader("Connection", "close");
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getWriter().write("Demasiadas subidas en curso. Inténtalo de nuevo en " + retryAfterSegundos + " segundos");
+    }
+
+    /**
+     * Indicadores para el endpoint de administración
+     */
+    public Map<String, Object> estadisticas() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxConcurrentes", maxConcurrentes);
+        stats.put("enCurso", maxConcurrentes - permisos.availablePermits());
+        stats.put("maxCola", maxCola);
+        stats.put("enCola", enCola.get());
+        stats.put("permitidas", permitidas.sum());
+        stats.put("rechazadasColaLlena", rechazadasColaLlena.sum());
+        stats.put("rechazadasPorEspera", rechazadasPorEspera.sum());
+        stats.put("esperas", esperas.estadisticas());
+        return stats;
+    }
+}
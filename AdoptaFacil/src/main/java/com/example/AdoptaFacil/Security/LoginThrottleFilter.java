@@ -0,0 +1,279 @@
+package com.example.AdoptaFacil.Security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Filtro de limitación de intentos de login (POST /api/auth/login)
+ *
+ * Mantiene un token bucket por IP y otro por email. Si cualquiera de los dos está vacío
+ * responde 429 con Retry-After antes de consultar la base de datos o ejecutar BCrypt.
+ * Los buckets viven en mapas concurrentes; los que vuelven a estar llenos (inactivos)
+ * se eliminan periódicamente y el número total está acotado. Si un mapa alcanza el máximo,
+ * una clave nueva no se rechaza: se expulsa el bucket con más tokens de una pequeña muestra
+ * (el que menos limita) y se crea el suyo.
+ */
+@Component
+public class LoginThrottleFilter extends OncePerRequestFilter {
+
+    private static final String RUTA_LOGIN = "/api/auth/login";
+    // Buckets que se examinan para elegir cuál expulsar cuando no hay espacio
+    private static final int MUESTRA_EXPULSION = 8;
+
+    private final ConcurrentHashMap<String, TokenBucket> bucketsPorIp = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, TokenBucket> bucketsPorEmail = new ConcurrentHashMap<>();
+    private final ObjectMapper objectMapper;
+
+    private final double capacidadIp;
+    private final double tokensPorNanoIp;
+    private final double capacidadEmail;
+    private final double tokensPorNanoEmail;
+    private final int maxBuckets;
+    private final int tamanoMaximoCuerpo;
+
+    private final LongAdder permitidos = new LongAdder();
+    private final LongAdder rechazadosIp = new LongAdder();
+    private final LongAdder rechazadosEmail = new LongAdder();
+    private final LongAdder expulsados = new LongAdder();
+
+    public LoginThrottleFilter(ObjectMapper objectMapper,
+                               @Value("${security.login.ip.rafaga:20}") int capacidadIp,
+                               @Value("${security.login.ip.recarga-por-minuto:10}") int recargaIp,
+                               @Value("${security.login.email.rafaga:5}") int capacidadEmail,
+                               @Value("${security.login.email.recarga-por-minuto:5}") int recargaEmail,
+                               @Value("${security.login.max-buckets:100000}") int maxBuckets,
+                               @Value("${security.login.tamano-maximo-cuerpo:8192}") int tamanoMaximoCuerpo) {
+        this.objectMapper = objectMapper;
+        this.capacidadIp = capacidadIp;
+        this.tokensPorNanoIp = recargaIp / (double) TimeUnit.MINUTES.toNanos(1);
+        this.capacidadEmail = capacidadEmail;
+        this.tokensPorNanoEmail = recargaEmail / (double) TimeUnit.MINUTES.toNanos(1);
+        this.maxBuckets = maxBuckets;
+        this.tamanoMaximoCuerpo = tamanoMaximoCuerpo;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !("POST".equals(request.getMethod()) && RUTA_LOGIN.equals(request.getServletPath()));
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        long ahora = System.nanoTime();
+
+        // 1) Límite por IP (no requiere leer el cuerpo)
+        TokenBucket bucketIp = bucket(bucketsPorIp, request.getRemoteAddr(), capacidadIp, tokensPorNanoIp, ahora);
+        if (!bucketIp.intentarConsumir(ahora)) {
+            rechazadosIp.increment();
+            rechazar(response, bucketIp.nanosHastaSiguienteToken(ahora));
+            return;
+        }
+
+        // 2) Límite por email: se lee el cuerpo (pequeño) y se deja disponible para el controlador
+        byte[] cuerpo = request.getInputStream().readNBytes(tamanoMaximoCuerpo + 1);
+        if (cuerpo.length > tamanoMaximoCuerpo) {
+            response.sendError(HttpStatus.PAYLOAD_TOO_LARGE.value(), "Cuerpo de login demasiado grande");
+            return;
+        }
+        HttpServletRequest peticion = new CuerpoCacheado(request, cuerpo);
+        String email = extraerEmail(cuerpo);
+        if (email != null) {
+            TokenBucket bucketEmail = bucket(bucketsPorEmail, email, capacidadEmail, tokensPorNanoEmail, ahora);
+            if (!bucketEmail.intentarConsumir(ahora)) {
+                rechazadosEmail.increment();
+                rechazar(response, bucketEmail.nanosHastaSiguienteToken(ahora));
+                return;
+            }
+        }
+
+        permitidos.increment();
+        filterChain.doFilter(peticion, response);
+    }
+
+    /**
+     * Devuelve el bucket de la clave, creándolo si hace falta
+     * Si se alcanzó el máximo de buckets se expulsa uno antes de crear el nuevo (memoria acotada
+     * sin rechazar a los usuarios nuevos); los inactivos se eliminan en la limpieza periódica
+     */
+    private TokenBucket bucket(ConcurrentHashMap<String, TokenBucket> buckets, String clave,
+                               double capacidad, double tokensPorNano, long ahora) {
+        TokenBucket existente = buckets.get(clave);
+        if (existente != null) {
+            return existente;
+        }
+        if (buckets.size() >= maxBuckets) {
+            expulsarUno(buckets, ahora);
+        }
+        return buckets.computeIfAbsent(clave, c -> new TokenBucket(capacidad, tokensPorNano, ahora));
+    }
+
+    /**
+     * Expulsa el bucket con más tokens de los primeros MUESTRA_EXPULSION del mapa (O(1), sin recorrerlo entero)
+     * Uno lleno equivale a no tener bucket; uno casi lleno es el que menos información pierde
+     */
+    private void expulsarUno(ConcurrentHashMap<String, TokenBucket> buckets, long ahora) {
+        Map.Entry<String, TokenBucket> elegido = null;
+        double maximo = -1;
+        int examinados = 0;
+        for (Map.Entry<String, TokenBucket> entrada : buckets.entrySet()) {
+            double disponibles = entrada.getValue().disponibles(ahora);
+            if (disponibles > maximo) {
+                elegido = entrada;
+                maximo = disponibles;
+            }
+            if (++examinados >= MUESTRA_EXPULSION || entrada.getValue().estaLleno(ahora)) {
+                break;
+            }
+        }
+        if (elegido != null && buckets.remove(elegido.getKey(), elegido.getValue())) {
+            expulsados.increment();
+        }
+    }
+
+    private String extraerEmail(byte[] cuerpo) {
+        try {
+            JsonNode nodo = objectMapper.readTree(cuerpo);
+            JsonNode email = nodo != null ? nodo.get("email") : null;
+            return email != null && email.isTextual() ? email.asText().trim().toLowerCase(Locale.ROOT) : null;
+        } catch (IOException e) {
+            // Cuerpo inválido: lo rechazará la validación del controlador
+            return null;
+        }
+    }
+
+    private void rechazar(HttpServletResponse response, long nanosEspera) throws IOException {
+        long segundos = Math.max(1L, TimeUnit.NANOSECONDS.toSeconds(nanosEspera) + 1);
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader("Retry-After", String.valueOf(segundos));
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getWriter().write("Demasiados intentos de inicio de sesión. Inténtalo de nuevo en " + segundos + " segundos");
+    }
+
+    /**
+     * Elimina periódicamente los buckets llenos (sin actividad reciente)
+     */
+    @Scheduled(fixedDelayString = "${security.login.limpieza-ms:60000}")
+    public void limpiarBuckets() {
+        long ahora = System.nanoTime();
+        limpiar(bucketsPorIp, ahora);
+        limpiar(bucketsPorEmail, ahora);
+    }
+
+    private static void limpiar(ConcurrentHashMap<String, TokenBucket> buckets, long ahora) {
+        buckets.values().removeIf(b -> b.estaLleno(ahora));
+    }
+
+    /**
+     * Contadores para el endpoint de administración
+     */
+    public Map<String, Object> estadisticas() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("permitidos", permitidos.sum());
+        stats.put("rechazadosPorIp", rechazadosIp.sum());
+        stats.put("rechazadosPorEmail", rechazadosEmail.sum());
+        stats.put("bucketsIp", bucketsPorIp.size());
+        stats.put("bucketsEmail", bucketsPorEmail.size());
+        stats.put("maxBuckets", maxBuckets);
+        stats.put("expulsadosPorCapacidad", expulsados.sum());
+        return stats;
+    }
+
+    /**
+     * Petición cuyo cuerpo ya se leyó en memoria, para que el controlador pueda leerlo de nuevo
+     */
+    private static final class CuerpoCacheado extends HttpServletRequestWrapper {
+
+        private final byte[] cuerpo;
+
+        CuerpoCacheado(HttpServletRequest request, byte[] cuerpo) {
+            super(request);
+            this.cuerpo = cuerpo;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream entrada = new ByteArrayInputStream(cuerpo);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return entrada.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return entrada.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return entrada.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                /**
+                 * El cuerpo ya está en memoria: se notifica de inmediato que hay datos y,
+                 * cuando el lector los ha consumido, que se leyó todo
+                 */
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    try {
+                        if (!isFinished()) {
+                            readListener.onDataAvailable();
+                        }
+                        if (isFinished()) {
+                            readListener.onAllDataRead();
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        readListener.onError(e);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public int getContentLength() {
+            return cuerpo.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return cuerpo.length;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.AdoptaFacil.Security;
+
+import com.example.AdoptaFacil.Util.EstadisticasLatencia;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Ejecuta el hash y la verificación de contraseñas BCrypt en un pool dedicado y acotado
+ *
+ * BCrypt consume CPU a propósito; si se ejecuta en los hilos de Tomcat, una ráfaga de
+ * logins puede ocupar todos los hilos y dejar sin servicio al resto de endpoints.
+ * Aquí solo se permiten 'hilos' hashes simultáneos y una cola corta; cuando la cola
+ * está llena se lanza RejectedExecutionException de inmediato para responder 503.
+ *
+ * Los métodos devuelven un CompletableFuture: el controlador responde de forma asíncrona y el
+ * hilo de Tomcat queda libre mientras el hash espera en la cola o se calcula. Si no termina en
+ * 'espera-maxima-ms', el futuro falla con RejectedExecutionException y la tarea, si aún estaba
+ * en cola, ya no se ejecuta.
+ *
+ * Los futuros se completan en los hilos del pool: quien los use debe encadenar el trabajo
+ * posterior (BD, JWT...) con los métodos *Async y su propio executor, para que esos hilos
+ * solo calculen hashes.
+ */
+@Component
+public class PasswordHashingService {
+
+    // Formato de un hash BCrypt: $2a$10$... (el número es el coste)
+    private static final Pattern COSTE_BCRYPT = Pattern.compile("^\\$2[abxy]?\\$(\\d{2})\\$");
+
+    private final PasswordEncoder passwordEncoder;
+    private final int costeConfigurado;
+    private final long esperaMaximaMs;
+    private final ThreadPoolExecutor executor;
+
+    private final LongAdder rechazadas = new LongAdder();
+    private final EstadisticasLatencia latencias = new EstadisticasLatencia();
+
+    public PasswordHashingService(PasswordEncoder passwordEncoder,
+                                  @Value("${security.bcrypt.strength:10}") int costeConfigurado,
+                                  @Value("${security.hashing.hilos:4}") int hilos,
+                                  @Value("${security.hashing.cola:16}") int capacidadCola,
+                                  @Value("${security.hashing.espera-maxima-ms:5000}") long esperaMaximaMs) {
+        this.passwordEncoder = passwordEncoder;
+        this.costeConfigurado = costeConfigurado;
+        this.esperaMaximaMs = esperaMaximaMs;
+
+        AtomicInteger contador = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                hilos, hilos,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidadCola),
+                r -> {
+                    Thread t = new Thread(r, "password-hashing-" + contador.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Verifica una contraseña contra su hash en el pool de hashing
+     *
+     * @throws RejectedExecutionException si el pool está saturado (el futuro también falla con
+     *         ella si se agota la espera máxima)
+     */
+    public CompletableFuture<Boolean> verificar(String contrasena, String hash) {
+        return ejecutar(() -> passwordEncoder.matches(contrasena, hash));
+    }
+
+    /**
+     * Calcula el hash de una contraseña en el pool de hashing
+     *
+     * @throws RejectedExecutionException si el pool está saturado (el futuro también falla con
+     *         ella si se agota la espera máxima)
+     */
+    public CompletableFuture<String> codificar(String contrasena) {
+        return ejecutar(() -> passwordEncoder.encode(contrasena));
+    }
+
+    /**
+     * Indica si el hash guardado usa un coste distinto del configurado
+     * (en ese caso conviene recalcularlo tras un login correcto)
+     */
+    public boolean necesitaRehash(String hash) {
+        if (hash == null) {
+            return false;
+        }
+        Matcher matcher = COSTE_BCRYPT.matcher(hash);
+        return matcher.find() && Integer.parseInt(matcher.group(1)) != costeConfigurado;
+    }
+
+    /**
+     * Latencias por resultado de login y registro (las registra AuthController)
+     */
+    public EstadisticasLatencia getLatencias() {
+        return latencias;
+    }
+
+    /**
+     * Estado del pool para el endpoint de administración
+     */
+    public Map<String, Object> estadisticas() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("costeBcrypt", costeConfigurado);
+        stats.put("hilos", executor.getMaximumPoolSize());
+        stats.put("activos", executor.getActiveCount());
+        stats.put("enCola", executor.getQueue().size());
+        stats.put("capacidadCola", executor.getQueue().size() + executor.getQueue().remainingCapacity());
+        stats.put("completadas", executor.getCompletedTaskCount());
+        stats.put("rechazadas", rechazadas.sum());
+        stats.put("latencias", latencias.estadisticas());
+        return stats;
+    }
+
+    private <T> CompletableFuture<T> ejecutar(Callable<T> tarea) {
+        CompletableFuture<T> resultado = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                if (resultado.isDone()) {
+                    return; // se agotó la espera mientras estaba en cola: nadie espera este hash
+                }
+                try {
+                    resultado.complete(tarea.call());
+                } catch (Exception e) {
+                    resultado.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rechazadas.increment();
+            throw e;
+        }
+
+        return resultado.orTimeout(esperaMaximaMs, TimeUnit.MILLISECONDS)
+                .exceptionallyCompose(e -> {
+                    Throwable causa = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (causa instanceof TimeoutException) {
+                        rechazadas.increment();
+                        return CompletableFuture.failedFuture(
+                                new RejectedExecutionException("Tiempo de espera agotado en el pool de hashing"));
+                    }
+                    return CompletableFuture.failedFuture(causa);
+                });
+    }
+
+    @PreDestroy
+    void cerrar() {
+        executor.shutdownNow();
+    }
+}
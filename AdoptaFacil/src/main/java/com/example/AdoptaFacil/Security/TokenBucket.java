@@ -0,0 +1,70 @@
+package com.example.AdoptaFacil.Security;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Token bucket sin bloqueos (CAS sobre un estado inmutable)
+ *
+ * Permite ráfagas de hasta 'capacidad' peticiones y se recarga a 'tokensPorNano'.
+ * Varios hilos pueden consumir a la vez; el que pierde el CAS reintenta con el estado nuevo.
+ */
+public final class TokenBucket {
+
+    private record Estado(double tokens, long ultimaRecargaNanos) {
+    }
+
+    private final double capacidad;
+    private final double tokensPorNano;
+    private final AtomicReference<Estado> estado;
+
+    public TokenBucket(double capacidad, double tokensPorNano, long ahoraNanos) {
+        this.capacidad = capacidad;
+        this.tokensPorNano = tokensPorNano;
+        this.estado = new AtomicReference<>(new Estado(capacidad, ahoraNanos));
+    }
+
+    /**
+     * Intenta consumir un token
+     * @return true si había token disponible
+     */
+    public boolean intentarConsumir(long ahoraNanos) {
+        while (true) {
+            Estado actual = estado.get();
+            double disponibles = recargados(actual, ahoraNanos);
+            if (disponibles < 1.0) {
+                return false;
+            }
+            Estado nuevo = new Estado(disponibles - 1.0, Math.max(ahoraNanos, actual.ultimaRecargaNanos()));
+            if (estado.compareAndSet(actual, nuevo)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Nanosegundos que faltan para que haya al menos un token
+     */
+    public long nanosHastaSiguienteToken(long ahoraNanos) {
+        double faltan = 1.0 - recargados(estado.get(), ahoraNanos);
+        return faltan <= 0 ? 0 : (long) Math.ceil(faltan / tokensPorNano);
+    }
+
+    /**
+     * Tokens disponibles ahora (con la recarga acumulada)
+     */
+    public double disponibles(long ahoraNanos) {
+        return recargados(estado.get(), ahoraNanos);
+    }
+
+    /**
+     * Un bucket lleno e inactivo equivale a no tener bucket y puede descartarse
+     */
+    public boolean estaLleno(long ahoraNanos) {
+        return recargados(estado.get(), ahoraNanos) >= capacidad;
+    }
+
+    private double recargados(Estado e, long ahoraNanos) {
+        long transcurrido = Math.max(0L, ahoraNanos - e.ultimaRecargaNanos());
+        return Math.min(capacidad, e.tokens() + transcurrido * tokensPorNano);
+    }
+}
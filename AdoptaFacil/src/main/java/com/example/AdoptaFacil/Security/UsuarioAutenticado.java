@@ -0,0 +1,46 @@
+package com.example.AdoptaFacil.Security;
+
+import com.example.AdoptaFacil.Entity.Person;
+import com.example.AdoptaFacil.Entity.Role;
+
+/**
+ * Datos mínimos e inmutables del usuario autenticado que se guardan en la caché de principales
+ * No incluye el hash de la contraseña
+ */
+public record UsuarioAutenticado(Long idPerson, String name, String lastName, String email,
+                                 Long idRole, Role.RoleType roleType) {
+
+    /**
+     * Extrae los datos mínimos de una entidad Person
+     */
+    public static UsuarioAutenticado desde(Person person) {
+        Role role = person.getRole();
+        return new UsuarioAutenticado(
+                person.getIdPerson(),
+                person.getName(),
+                person.getLastName(),
+                person.getEmail(),
+                role != null ? role.getIdRole() : null,
+                role != null ? role.getRoleType() : null);
+    }
+
+    /**
+     * Construye una Person desacoplada (sin contraseña) para usar como principal
+     * Los controladores y servicios siguen trabajando con Person; al tener el ID
+     * puede usarse como referencia en relaciones (p. ej. mascota.setALIADO)
+     */
+    public Person toPerson() {
+        Person person = new Person();
+        person.setIdPerson(idPerson);
+        person.setName(name);
+        person.setLastName(lastName);
+        person.setEmail(email);
+        if (roleType != null) {
+            Role role = new Role();
+            role.setIdRole(idRole);
+            role.setRoleType(roleType);
+            person.setRole(role);
+        }
+        return person;
+    }
+}
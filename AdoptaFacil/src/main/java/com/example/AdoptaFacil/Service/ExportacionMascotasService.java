@@ -0,0 +1,13 @@
+package com.example.AdoptaFacil.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface ExportacionMascotasService {
+    // Escribe el catálogo (o el de un propietario si aliadoId no es null) en NDJSON o CSV, fila a fila
+    long exportar(Long aliadoId, FormatoExportacion formato, OutputStream salida) throws IOException;
+
+    enum FormatoExportacion {
+        NDJSON, CSV
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.AdoptaFacil.Service;
+
+import java.util.Map;
+
+public interface ImagenesHuerfanasService {
+    // Recorre upload.path y borra (o solo cuenta, si simulacion=true) los archivos que ninguna fila referencia
+    Map<String, Object> recolectar(boolean simulacion);
+
+    Map<String, Object> estadisticas();
+}
@@ -0,0 +1,10 @@
+package com.example.AdoptaFacil.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+public interface ImportacionMascotasService {
+    // Lee un CSV de mascotas fila a fila e inserta las válidas por lotes; aliadoId se usa si la fila no trae propietario
+    Map<String, Object> importar(InputStream entrada, Long aliadoId) throws IOException;
+}
@@ -1,24 +1,41 @@
 package com.example.AdoptaFacil.Service;
 
 import com.example.AdoptaFacil.DTO.MascotasDTO;
+import com.example.AdoptaFacil.DTO.FiltroMascotasDTO;
+import com.example.AdoptaFacil.DTO.MascotaResumenDTO;
+import com.example.AdoptaFacil.DTO.PaginaDTO;
+import com.example.AdoptaFacil.DTO.ResultadoFiltroDTO;
 import com.example.AdoptaFacil.Entity.Mascotas;
 import com.example.AdoptaFacil.Entity.Person;
+import com.example.AdoptaFacil.Util.PreparacionImagenes.ImagenPreparada;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
+import java.util.Map;
 
 public interface MascotasService {
     MascotasDTO crearMascota(Mascotas mascota, List<MultipartFile> imagenes);
     MascotasDTO obtenerMascota(Long id);
     List<MascotasDTO> listarMascotas();
     List<MascotasDTO> buscarPorNombre(String nombre);
+    List<MascotasDTO> buscarPorTexto(String texto);
+    ResultadoFiltroDTO filtrarMascotas(FiltroMascotasDTO filtro, String cursor, int tamano);
     MascotasDTO actualizarMascota(Long id, Mascotas mascota, List<MultipartFile> imagenes);
     void eliminarMascota(Long id);
     void eliminarMascotaPorUsuario(Long id, Person usuario);
     void eliminarImagen(Long mascotaId, Long imagenId);
+    MascotasDTO agregarImagen(Long mascotaId, ImagenPreparada imagen, Person usuario);
+    void reordenarImagenes(Long mascotaId, List<Long> imagenIds, Person usuario);
     
     // Nuevos métodos para filtrado por usuario
     List<MascotasDTO> listarMascotasPorUsuario(Person usuario);
     List<MascotasDTO> buscarPorNombreYUsuario(String nombre, Person usuario);
     List<MascotasDTO> listarTodasLasMascotasConPropietario();
+    PaginaDTO<MascotasDTO> listarMascotasConPropietarioPorCursor(String cursor, int tamano);
+
+    // Listado ligero (sin colección de imágenes); aliadoId null = catálogo completo
+    PaginaDTO<MascotaResumenDTO> listarResumenes(Long aliadoId, String cursor, int tamano);
+
+    // Duración de las transacciones de escritura (tiempo de retención de la conexión)
+    Map<String, Object> estadisticasTransacciones();
 }
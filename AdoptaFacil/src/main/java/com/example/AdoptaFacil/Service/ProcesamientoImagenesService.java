@@ -0,0 +1,14 @@
+package com.example.AdoptaFacil.Service;
+
+import java.util.List;
+import java.util.Map;
+
+public interface ProcesamientoImagenesService {
+    // Encola la generación de variantes (miniatura, media y completa) de las imágenes indicadas
+    void programar(Long mascotaId, List<Long> imagenIds);
+
+    // Claves de almacenamiento de todas las variantes de una imagen original (existan o no)
+    List<String> rutasVariantes(String clave);
+
+    Map<String, Object> estadisticas();
+}
@@ -0,0 +1,29 @@
+package com.example.AdoptaFacil.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Almacenamiento de imágenes por clave portable (ver ClavesAlmacenamiento)
+ * Implementaciones: disco local con subdirectorios (storage.tipo=local) o S3 compatible (storage.tipo=s3)
+ */
+public interface StorageService {
+
+    // Guarda el archivo local bajo la clave; el archivo de origen deja de existir
+    void guardar(String clave, Path origen) throws IOException;
+
+    boolean existe(String clave);
+
+    // Elimina el objeto si existe; devuelve true si se eliminó
+    boolean eliminar(String clave) throws IOException;
+
+    InputStream abrir(String clave) throws IOException;
+
+    // Ruta en disco si el backend es local (permite el envío sin copia); vacío en S3
+    Optional<Path> rutaLocal(String clave);
+
+    // URL pública del objeto
+    String url(String clave);
+}
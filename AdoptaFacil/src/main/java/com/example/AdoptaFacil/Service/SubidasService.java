@@ -0,0 +1,16 @@
+package com.example.AdoptaFacil.Service;
+
+import com.example.AdoptaFacil.DTO.MascotasDTO;
+import com.example.AdoptaFacil.DTO.SesionSubidaDTO;
+import com.example.AdoptaFacil.Entity.Person;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface SubidasService {
+    SesionSubidaDTO crearSesion(Long mascotaId, String nombreArchivo, long tamano, Person usuario);
+    SesionSubidaDTO escribirFragmento(Long mascotaId, String sesionId, long offset, InputStream datos, long longitud, Person usuario) throws IOException;
+    SesionSubidaDTO obtenerSesion(Long mascotaId, String sesionId, Person usuario);
+    MascotasDTO finalizar(Long mascotaId, String sesionId, Person usuario);
+    void cancelar(Long mascotaId, String sesionId, Person usuario);
+}
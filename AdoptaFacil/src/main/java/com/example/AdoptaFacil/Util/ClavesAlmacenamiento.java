@@ -0,0 +1,84 @@
+package com.example.AdoptaFacil.Util;
+
+import java.util.regex.Pattern;
+
+/**
+ * Claves portables de almacenamiento de imágenes
+ *
+ * Una clave es relativa y no depende del nodo que recibió la subida:
+ * - Nuevas: "ab/cd/abcdef...jpg" (dos niveles de subdirectorio con el prefijo del nombre)
+ * - Antiguas: solo el nombre del archivo (directorio plano de upload.path)
+ *
+ * Las filas anteriores guardaban la ruta absoluta; normalizar() la convierte en su clave.
+ */
+public final class ClavesAlmacenamiento {
+
+    private static final Pattern RUTA_ABSOLUTA = Pattern.compile("^(/|[A-Za-z]:[\\\\/]|\\\\\\\\).*");
+    private static final Pattern SEGMENTO_VALIDO = Pattern.compile("^[^/\\\\]+$");
+
+    private ClavesAlmacenamiento() {
+    }
+
+    /**
+     * Clave con subdirectorios por prefijo para un nombre de archivo nuevo
+     * Los nombres empiezan por un hash o un UUID, así que el reparto es uniforme
+     */
+    public static String conShard(String nombre) {
+        String prefijo = nombre.replaceAll("[^0-9A-Za-z]", "").toLowerCase();
+        if (prefijo.length() < 4) {
+            return nombre;
+        }
+        return prefijo.substring(0, 2) + "/" + prefijo.substring(2, 4) + "/" + nombre;
+    }
+
+    /**
+     * Convierte lo guardado en BD (clave o ruta absoluta antigua) en una clave
+     */
+    public static String normalizar(String valor) {
+        if (valor == null || valor.isEmpty()) {
+            return valor;
+        }
+        if (RUTA_ABSOLUTA.matcher(valor).matches()) {
+            // Ruta absoluta de un nodo: el archivo vive en el directorio plano
+            int separador = Math.max(valor.lastIndexOf('/'), valor.lastIndexOf('\\'));
+            return valor.substring(separador + 1);
+        }
+        return valor;
+    }
+
+    /**
+     * Clave de una variante, en el mismo subdirectorio que el original:
+     * ab/cd/nombre.png -> ab/cd/nombre_thumb.jpg
+     */
+    public static String variante(String clave, String sufijo, String extension) {
+        int barra = clave.lastIndexOf('/');
+        String directorio = barra >= 0 ? clave.substring(0, barra + 1) : "";
+        String nombre = clave.substring(barra + 1);
+        int punto = nombre.lastIndexOf('.');
+        String base = punto > 0 ? nombre.substring(0, punto) : nombre;
+        return directorio + base + "_" + sufijo + "." + extension;
+    }
+
+    /**
+     * Nombre de archivo (último segmento) de la clave
+     */
+    public static String nombre(String clave) {
+        return clave.substring(clave.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * Comprueba que la clave sea relativa y no salga del almacenamiento
+     * (sin '..', segmentos vacíos ni archivos ocultos)
+     */
+    public static boolean esValida(String clave) {
+        if (clave == null || clave.isBlank() || clave.length() > 512) {
+            return false;
+        }
+        for (String segmento : clave.split("/", -1)) {
+            if (!SEGMENTO_VALIDO.matcher(segmento).matches() || segmento.startsWith(".")) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.AdoptaFacil.Util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Codifica y decodifica los cursores opacos usados en la paginación keyset
+ * El cursor contiene el último ID entregado; el cliente no debe interpretarlo
+ */
+public final class CursorUtil {
+
+    private static final String PREFIJO = "id:";
+
+    private CursorUtil() {
+    }
+
+    /**
+     * Genera el cursor a partir del último ID de la página
+     */
+    public static String codificar(Long ultimoId) {
+        if (ultimoId == null) {
+            return null;
+        }
+        String valor = PREFIJO + ultimoId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Obtiene el último ID a partir del cursor recibido
+     * Un cursor vacío equivale a la primera página (ID 0)
+     *
+     * @throws IllegalArgumentException si el cursor no es válido
+     */
+    public static long decodificar(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            String valor = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+            if (!valor.startsWith(PREFIJO)) {
+                throw new IllegalArgumentException("Cursor inválido");
+            }
+            return Long.parseLong(valor.substring(PREFIJO.length()));
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException también es IllegalArgumentException
+            throw new IllegalArgumentException("Cursor inválido: " + cursor);
+        }
+    }
+}
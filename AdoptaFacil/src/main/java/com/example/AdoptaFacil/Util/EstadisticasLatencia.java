@@ -0,0 +1,58 @@
+package com.example.AdoptaFacil.Util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contadores de latencia por resultado (p. ej. "exito", "rechazado")
+ * Seguros para uso concurrente y sin bloqueos en el registro
+ */
+public class EstadisticasLatencia {
+
+    private static final class Contador {
+        final LongAdder total = new LongAdder();
+        final LongAdder nanosAcumulados = new LongAdder();
+        final AtomicLong nanosMaximo = new AtomicLong();
+    }
+
+    private final ConcurrentHashMap<String, Contador> contadores = new ConcurrentHashMap<>();
+
+    /**
+     * Registra una operación con su resultado y duración
+     * @param resultado Resultado de la operación
+     * @param nanos Duración en nanosegundos
+     */
+    public void registrar(String resultado, long nanos) {
+        Contador contador = contadores.computeIfAbsent(resultado, r -> new Contador());
+        contador.total.increment();
+        contador.nanosAcumulados.add(nanos);
+        contador.nanosMaximo.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Registra una operación que empezó en el instante indicado (System.nanoTime)
+     */
+    public void registrarDesde(String resultado, long inicioNanos) {
+        registrar(resultado, System.nanoTime() - inicioNanos);
+    }
+
+    /**
+     * Total, media y máximo en milisegundos por resultado
+     */
+    public Map<String, Object> estadisticas() {
+        Map<String, Object> stats = new TreeMap<>();
+        contadores.forEach((resultado, contador) -> {
+            long total = contador.total.sum();
+            Map<String, Object> valores = new LinkedHashMap<>();
+            valores.put("total", total);
+            valores.put("mediaMs", total == 0 ? 0.0 : contador.nanosAcumulados.sum() / 1_000_000.0 / total);
+            valores.put("maximoMs", contador.nanosMaximo.get() / 1_000_000.0);
+            stats.put(resultado, valores);
+        });
+        return stats;
+    }
+}
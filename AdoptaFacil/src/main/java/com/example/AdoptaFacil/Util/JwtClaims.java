@@ -0,0 +1,18 @@
+package com.example.AdoptaFacil.Util;
+
+import java.time.Instant;
+
+/**
+ * Datos de un token JWT ya verificado (firma y expiración)
+ * Inmutable: se obtiene una sola vez por petición con JwtUtil.verificarToken
+ *
+ * @param email Email del usuario (subject del token)
+ * @param role Rol del usuario (claim "role")
+ * @param expiracion Instante de expiración del token (claim "exp")
+ */
+public record JwtClaims(String email, String role, Instant expiracion) {
+
+    public boolean expirado() {
+        return expiracion != null && !expiracion.isAfter(Instant.now());
+    }
+}
@@ -1,17 +1,29 @@
 package com.example.AdoptaFacil.Util;
 
+import com.example.AdoptaFacil.Cache.CacheAcotada;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
+import java.util.Optional;
 
 /**
  * Utilidad para la gestión de tokens JWT (JSON Web Tokens)
  * Proporciona funcionalidades para generar, validar y extraer información de tokens JWT
- * 
+ *
+ * La clave de firma y el parser se construyen una sola vez al iniciar. Cada token se
+ * verifica una única vez con verificarToken, que devuelve sus claims inmutables y
+ * guarda el resultado en una caché acotada (por hash del token) hasta su expiración.
+ *
  * Configuración:
  * - jwt.secret: Clave secreta para firmar tokens (configurable en application.properties)
  * - jwt.expiration: Tiempo de expiración en milisegundos (por defecto 24 horas)
@@ -27,19 +39,28 @@ public class JwtUtil {
     @Value("${jwt.expiration:86400000}")
     private Long expiration;
 
+    // Caché de tokens ya verificados (clave: hash SHA-256 del token)
+    @Autowired
+    private CacheAcotada<String, JwtClaims> cacheTokens;
+
+    private SecretKey signingKey;
+    private JwtParser parser;
+
     /**
-     * Genera la clave de firma para los tokens JWT
-     * Utiliza el algoritmo HMAC-SHA256
-     * 
-     * @return SecretKey para firmar/verificar tokens
+     * Genera la clave de firma HMAC-SHA256 y el parser una sola vez
+     * (ambos son inmutables y seguros para uso concurrente)
      */
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
+    @PostConstruct
+    void init() {
+        this.signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
     }
 
     /**
      * Genera un nuevo token JWT para un usuario autenticado
-     * 
+     *
      * @param email Email del usuario (usado como subject del token)
      * @param role Rol del usuario (almacenado como claim personalizado)
      * @return Token JWT firmado como String
@@ -53,82 +74,103 @@ public class JwtUtil {
                 .claim("role", role)                    // Rol como claim personalizado
                 .setIssuedAt(now)                       // Fecha de emisión
                 .setExpiration(expiryDate)              // Fecha de expiración
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)  // Firma con HMAC-SHA256
+                .signWith(signingKey, SignatureAlgorithm.HS256)  // Firma con HMAC-SHA256
                 .compact();
     }
 
+    /**
+     * Verifica el token (firma y expiración) una sola vez y devuelve sus claims
+     * Los tokens ya verificados se sirven desde la caché sin volver a calcular la firma
+     *
+     * @param token Token JWT a verificar
+     * @return Claims del token, o vacío si es inválido o está expirado
+     */
+    public Optional<JwtClaims> verificarToken(String token) {
+        if (token == null || token.isBlank()) {
+            return Optional.empty();
+        }
+
+        String clave = hashToken(token);
+        JwtClaims enCache = cacheTokens.buscar(clave);
+        if (enCache != null) {
+            return enCache.expirado() ? Optional.empty() : Optional.of(enCache);
+        }
+
+        try {
+            // parseClaimsJws verifica la firma y rechaza tokens expirados
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            JwtClaims verificado = new JwtClaims(
+                    claims.getSubject(),
+                    claims.get("role", String.class),
+                    claims.getExpiration() != null ? claims.getExpiration().toInstant() : null);
+
+            if (verificado.expiracion() != null) {
+                cacheTokens.guardar(clave, verificado, verificado.expiracion());
+            }
+            return Optional.of(verificado);
+        } catch (JwtException | IllegalArgumentException e) {
+            // Token malformado, firma inválida, expirado, etc.
+            return Optional.empty();
+        }
+    }
+
     /**
      * Extrae el email (subject) del token JWT
-     * 
+     *
      * @param token Token JWT del cual extraer el email
      * @return Email del usuario
      * @throws JwtException si el token es inválido o está expirado
      */
     public String getEmailFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-        
-        return claims.getSubject();
+        return verificarToken(token)
+                .orElseThrow(() -> new JwtException("Token inválido o expirado"))
+                .email();
     }
 
     /**
      * Extrae el rol del usuario del token JWT
-     * 
+     *
      * @param token Token JWT del cual extraer el rol
      * @return Rol del usuario
      * @throws JwtException si el token es inválido o está expirado
      */
     public String getRoleFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-        
-        return claims.get("role", String.class);
+        return verificarToken(token)
+                .orElseThrow(() -> new JwtException("Token inválido o expirado"))
+                .role();
     }
 
     /**
-     * Valida la integridad y firma de un token JWT
-     * No verifica expiración, solo la validez estructural
-     * 
+     * Valida la integridad, firma y expiración de un token JWT
+     *
      * @param token Token JWT a validar
      * @return true si el token es válido, false en caso contrario
      */
     public boolean validateToken(String token) {
-        try {
-            Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token);
-            return true;
-        } catch (JwtException | IllegalArgumentException e) {
-            // Token malformado, firma inválida, etc.
-            return false;
-        }
+        return verificarToken(token).isPresent();
     }
 
     /**
      * Verifica si un token JWT ha expirado
-     * 
+     *
      * @param token Token JWT a verificar
-     * @return true si el token está expirado, false si aún es válido
+     * @return true si el token está expirado o no se puede verificar, false si aún es válido
      */
     public boolean isTokenExpired(String token) {
+        // Si no se puede verificar, consideramos que está expirado
+        return verificarToken(token).isEmpty();
+    }
+
+    /**
+     * Hash SHA-256 del token, usado como clave de la caché
+     * Así la caché no guarda los tokens en claro
+     */
+    private static String hashToken(String token) {
         try {
-            Claims claims = Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
-            
-            return claims.getExpiration().before(new Date());
-        } catch (JwtException | IllegalArgumentException e) {
-            // Si no se puede parsear, consideramos que está expirado
-            return true;
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
         }
     }
-}
\ No newline at end of file
+}
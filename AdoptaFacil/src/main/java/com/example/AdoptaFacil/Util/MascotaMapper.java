@@ -1,13 +1,13 @@
 package com.example.AdoptaFacil.Util;
 
 import com.example.AdoptaFacil.DTO.MascotaImageDTO;
+import com.example.AdoptaFacil.DTO.MascotaResumenDTO;
 import com.example.AdoptaFacil.DTO.MascotasDTO;
 import com.example.AdoptaFacil.Entity.MascotaImage;
 import com.example.AdoptaFacil.Entity.Mascotas;
-import org.springframework.beans.factory.annotation.Value;
+import com.example.AdoptaFacil.Service.StorageService;
 import org.springframework.stereotype.Component;
 
-import java.io.File;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -18,27 +18,22 @@ import java.util.stream.Collectors;
 @Component
 public class MascotaMapper {
 
-    @Value("${server.port:8080}")
-    private String serverPort;
+    private final StorageService storageService;
 
-    @Value("${server.host:10.0.2.2}") // 10.0.2.2 para Android Emulator, localhost para web
-    private String serverHost;
+    public MascotaMapper(StorageService storageService) {
+        this.storageService = storageService;
+    }
 
     /**
-     * Convierte una ruta absoluta de archivo a una URL accesible desde el frontend
-     * Ejemplo: C:/uploads/imagen.png -> http://10.0.2.2:8080/uploads/imagen.png
+     * Convierte la clave de almacenamiento de una imagen en una URL accesible desde el frontend
+     * Ejemplo: ab/cd/imagen.png -> http://10.0.2.2:8080/api/imagenes/ab/cd/imagen.png (almacenamiento local)
+     * Las filas antiguas guardan la ruta absoluta: se usa solo el nombre del archivo como clave
      */
-    private String convertToUrl(String absolutePath) {
-        if (absolutePath == null || absolutePath.isEmpty()) {
+    private String convertToUrl(String clave) {
+        if (clave == null || clave.isEmpty()) {
             return null;
         }
-        
-        // Obtener solo el nombre del archivo
-        File file = new File(absolutePath);
-        String fileName = file.getName();
-        
-        // Construir la URL completa usando el host configurado
-        return "http://" + serverHost + ":" + serverPort + "/uploads/" + fileName;
+        return storageService.url(ClavesAlmacenamiento.normalizar(clave));
     }
 
     /**
@@ -50,6 +45,20 @@ public class MascotaMapper {
         if (mascota == null) {
             return null;
         }
+        return toDTO(mascota, mascota.getImagenes());
+    }
+
+    /**
+     * Convierte una entidad Mascotas a MascotasDTO usando imágenes cargadas por separado
+     * Evita inicializar la colección lazy cuando las imágenes ya se consultaron por lotes
+     * @param mascota Entidad de mascota
+     * @param imagenes Imágenes de la mascota (pueden ser null o vacías)
+     * @return DTO de mascota sin relaciones lazy
+     */
+    public MascotasDTO toDTO(Mascotas mascota, List<MascotaImage> imagenes) {
+        if (mascota == null) {
+            return null;
+        }
 
         MascotasDTO dto = new MascotasDTO();
         dto.setId(mascota.getId());
@@ -64,8 +73,8 @@ public class MascotaMapper {
         dto.setImagen(convertToUrl(mascota.getImagen())); // Convertir a URL
 
         // Convertir las imágenes a DTOs
-        if (mascota.getImagenes() != null && !mascota.getImagenes().isEmpty()) {
-            List<MascotaImageDTO> imageDTOs = mascota.getImagenes().stream()
+        if (imagenes != null && !imagenes.isEmpty()) {
+            List<MascotaImageDTO> imageDTOs = imagenes.stream()
                     .map(this::toImageDTO)
                     .collect(Collectors.toList());
             dto.setImagenes(imageDTOs);
@@ -84,9 +93,23 @@ public class MascotaMapper {
         if (mascota == null) {
             return null;
         }
+        return toDTOConPropietario(mascota, mascota.getImagenes());
+    }
+
+    /**
+     * Igual que toDTOConPropietario(Mascotas) pero con imágenes cargadas por separado
+     * Usado por la paginación keyset, que consulta las imágenes de toda la página en un solo IN
+     * @param mascota Entidad de mascota con el propietario ya cargado
+     * @param imagenes Imágenes de la mascota
+     * @return DTO de mascota con información del propietario
+     */
+    public MascotasDTO toDTOConPropietario(Mascotas mascota, List<MascotaImage> imagenes) {
+        if (mascota == null) {
+            return null;
+        }
 
         // Convertir usando el método base
-        MascotasDTO dto = toDTO(mascota);
+        MascotasDTO dto = toDTO(mascota, imagenes);
 
         // Agregar información del propietario si existe
         if (mascota.getALIADO() != null) {
@@ -103,6 +126,16 @@ public class MascotaMapper {
         return dto;
     }
 
+    /**
+     * Sustituye la clave de la imagen principal del resumen por su URL
+     * @param resumen Resumen leído de la proyección
+     * @return El mismo resumen, con la URL de la imagen
+     */
+    public MascotaResumenDTO conUrlImagen(MascotaResumenDTO resumen) {
+        resumen.setImagen(convertToUrl(resumen.getImagen()));
+        return resumen;
+    }
+
     /**
      * Convierte una lista de entidades Mascotas a DTOs
      * @param mascotas Lista de entidades
@@ -119,7 +152,7 @@ public class MascotaMapper {
 
     /**
      * Convierte una imagen de entidad a DTO
-     * Convierte la ruta absoluta en una URL accesible
+     * Convierte la ruta absoluta en una URL accesible, junto con las URLs de cada variante
      * @param imagen Entidad de imagen
      * @return DTO de imagen con URL accesible
      */
@@ -127,10 +160,15 @@ public class MascotaMapper {
         if (imagen == null) {
             return null;
         }
+        String original = convertToUrl(imagen.getImagenPath()); // Convertir a URL
         return new MascotaImageDTO(
                 imagen.getId(),
-                convertToUrl(imagen.getImagenPath()), // Convertir a URL
-                imagen.getOrden()
+                original,
+                imagen.getOrden(),
+                // Mientras las variantes no estén listas se usa el original
+                imagen.getThumbnailPath() != null ? convertToUrl(imagen.getThumbnailPath()) : original,
+                imagen.getMediumPath() != null ? convertToUrl(imagen.getMediumPath()) : original,
+                imagen.getFullPath() != null ? convertToUrl(imagen.getFullPath()) : original
         );
     }
 }
@@ -0,0 +1,234 @@
+package com.example.AdoptaFacil.Util;
+
+import com.example.AdoptaFacil.Service.StorageService;
+import com.example.AdoptaFacil.Util.ValidadorImagenes.Formato;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Escritura en dos fases de las imágenes subidas, para no hacer E/S de disco con una
+ * conexión JDBC abierta:
+ * 1. preparar: antes de abrir la transacción, cada archivo se copia a un directorio temporal
+ * 2. confirmar / descartar: tras el commit se guarda en el StorageService bajo su clave; si hubo rollback se borra
+ *
+ * El directorio temporal está dentro de upload.path, así que con el almacenamiento local
+ * guardar es un simple renombrado (atómico) y no una segunda copia.
+ *
+ * Antes de escribir nada, cada archivo pasa por ValidadorImagenes (tipo real y dimensiones);
+ * el nombre guardado nunca usa el nombre del cliente tal cual, y la extensión es la del formato detectado.
+ *
+ * Mientras se escribe cada archivo se calcula su SHA-256. Con upload.deduplicar=true el
+ * nombre final es el propio hash, de modo que un contenido idéntico se guarda una sola vez
+ * (las referencias se cuentan en ArchivoImagen).
+ */
+@Component
+public class PreparacionImagenes {
+
+    /**
+     * Archivo ya escrito en el directorio temporal y la clave de almacenamiento que tendrá tras confirmarse
+     * 'hash' solo se informa cuando el archivo se guarda por contenido (deduplicado)
+     */
+    public record ImagenPreparada(Path temporal, String clave, String hash) {
+        public boolean deduplicada() {
+            return hash != null;
+        }
+    }
+
+    private final StorageService storageService;
+    private final ValidadorImagenes validadorImagenes;
+    private final Path stagingDir;
+    private final Duration antiguedadMaxima;
+    private final boolean deduplicar;
+
+    public PreparacionImagenes(StorageService storageService,
+                               ValidadorImagenes validadorImagenes,
+                               @Value("${upload.path}") String uploadPath,
+                               @Value("${upload.staging.antiguedad-maxima-minutos:60}") long antiguedadMaximaMinutos,
+                               @Value("${upload.deduplicar:false}") boolean deduplicar) {
+        this.storageService = storageService;
+        this.validadorImagenes = validadorImagenes;
+        this.stagingDir = Paths.get(uploadPath).resolve(".staging");
+        this.antiguedadMaxima = Duration.ofMinutes(antiguedadMaximaMinutos);
+        this.deduplicar = deduplicar;
+    }
+
+    /**
+     * Fase 1: valida todos los archivos y los escribe en el directorio temporal (fuera de la transacción)
+     * Si alguno no es válido no se escribe ninguno; si falla una escritura, se borran los ya escritos
+     *
+     * @throws IllegalArgumentException si alguna imagen no es válida o no se pudo guardar
+     */
+    public List<ImagenPreparada> preparar(List<MultipartFile> archivos) {
+        List<ImagenPreparada> preparadas = new ArrayList<>();
+        if (archivos == null || archivos.isEmpty()) {
+            return preparadas;
+        }
+
+        // Solo lee la cabecera de cada archivo: rechaza antes de escribir nada en disco
+        List<Formato> formatos = new ArrayList<>(archivos.size());
+        for (MultipartFile file : archivos) {
+            formatos.add(validadorImagenes.validar(file).formato());
+        }
+
+        try {
+            Files.createDirectories(stagingDir);
+        } catch (IOException e) {
+            System.err.println("❌ Error creando directorio de uploads: " + e.getMessage());
+            throw new IllegalArgumentException("Error al crear directorio de uploads: " + e.getMessage());
+        }
+
+        for (int i = 0; i < archivos.size(); i++) {
+            MultipartFile file = archivos.get(i);
+            Formato formato = formatos.get(i);
+            String fileName = UUID.randomUUID() + "_" + ValidadorImagenes.nombreSeguro(file.getOriginalFilename(), formato);
+            Path temporal = stagingDir.resolve(fileName);
+            try {
+                // El hash se calcula mientras se copia: el archivo se lee una sola vez
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                try (InputStream entrada = new DigestInputStream(file.getInputStream(), digest)) {
+                    Files.copy(entrada, temporal);
+                }
+
+                if (deduplicar) {
+                    String hash = HexFormat.of().formatHex(digest.digest());
+                    String nombre = hash + "." + formato.getExtension();
+                    preparadas.add(new ImagenPreparada(temporal, ClavesAlmacenamiento.conShard(nombre), hash));
+                } else {
+                    preparadas.add(new ImagenPreparada(temporal, ClavesAlmacenamiento.conShard(fileName), null));
+                }
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 no disponible", e);
+            } catch (IOException e) {
+                System.err.println("❌ Error guardando imagen: " + e.getMessage());
+                descartar(preparadas);
+                throw new IllegalArgumentException("Error al guardar imagen: " + e.getMessage());
+            }
+        }
+        System.out.println("✅ " + preparadas.size() + " imagen(es) preparadas fuera de la transacción");
+        return preparadas;
+    }
+
+    /**
+     * Fase 1 para un archivo ya completo en disco (subidas reanudables):
+     * lo valida, lo lleva al directorio temporal con un renombrado y calcula su hash
+     *
+     * @throws IllegalArgumentException si la imagen no es válida (se borra) o no se pudo leer o mover
+     */
+    public ImagenPreparada prepararArchivo(Path archivo, String nombreOriginal) {
+        Formato formato;
+        try {
+            formato = validadorImagenes.validar(archivo, nombreOriginal).formato();
+        } catch (IllegalArgumentException e) {
+            try {
+                Files.deleteIfExists(archivo);
+            } catch (IOException ex) {
+                System.err.println("⚠️ No se pudo eliminar la subida rechazada: " + archivo);
+            }
+            throw e;
+        }
+
+        String fileName = UUID.randomUUID() + "_" + ValidadorImagenes.nombreSeguro(nombreOriginal, formato);
+        Path temporal = stagingDir.resolve(fileName);
+        try {
+            Files.createDirectories(stagingDir);
+            Files.move(archivo, temporal, StandardCopyOption.ATOMIC_MOVE);
+            if (!deduplicar) {
+                return new ImagenPreparada(temporal, ClavesAlmacenamiento.conShard(fileName), null);
+            }
+
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (InputStream entrada = new DigestInputStream(Files.newInputStream(temporal), digest)) {
+                entrada.transferTo(OutputStream.nullOutputStream());
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            return new ImagenPreparada(temporal, ClavesAlmacenamiento.conShard(hash + "." + formato.getExtension()), hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        } catch (IOException e) {
+            System.err.println("❌ Error preparando imagen subida: " + e.getMessage());
+            throw new IllegalArgumentException("Error al guardar imagen: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Fase 2 (commit): guarda cada archivo en el almacenamiento bajo su clave
+     *
+     * Un archivo deduplicado solo se descarta si ya está almacenado. Si falta (lo borró la eliminación
+     * de la última imagen con ese contenido antes de que se confirmara esta referencia), se guarda la
+     * copia temporal: la referencia ya está confirmada, así que ningún borrado posterior lo eliminará.
+     */
+    public void confirmar(List<ImagenPreparada> preparadas) {
+        for (ImagenPreparada imagen : preparadas) {
+            try {
+                if (imagen.deduplicada() && storageService.existe(imagen.clave())) {
+                    // Mismo contenido ya almacenado: basta con la nueva referencia
+                    Files.deleteIfExists(imagen.temporal());
+                    System.out.println("♻️ Imagen deduplicada: " + imagen.clave());
+                    continue;
+                }
+                storageService.guardar(imagen.clave(), imagen.temporal());
+                System.out.println("✅ Imagen guardada: " + imagen.clave());
+            } catch (IOException | RuntimeException e) {
+                // La fila ya está confirmada: el procesamiento de variantes la marcará como ERROR
+                System.err.println("❌ Error guardando imagen " + imagen.clave() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Fase 2 (rollback o error): borra los archivos temporales
+     */
+    public void descartar(List<ImagenPreparada> preparadas) {
+        for (ImagenPreparada imagen : preparadas) {
+            try {
+                Files.deleteIfExists(imagen.temporal());
+            } catch (IOException e) {
+                System.err.println("⚠️ No se pudo eliminar el temporal: " + imagen.temporal());
+            }
+        }
+    }
+
+    /**
+     * Borra los temporales abandonados (por ejemplo, si el proceso se detuvo entre las dos fases)
+     */
+    @Scheduled(fixedDelayString = "${upload.staging.limpieza-ms:3600000}")
+    public void limpiarAbandonados() {
+        if (!Files.isDirectory(stagingDir)) {
+            return;
+        }
+        Instant limite = Instant.now().minus(antiguedadMaxima);
+        int eliminados = 0;
+        try (DirectoryStream<Path> archivos = Files.newDirectoryStream(stagingDir)) {
+            for (Path archivo : archivos) {
+                if (Files.getLastModifiedTime(archivo).toInstant().isBefore(limite) && Files.deleteIfExists(archivo)) {
+                    eliminados++;
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("⚠️ Error limpiando temporales de uploads: " + e.getMessage());
+        }
+        if (eliminados > 0) {
+            System.out.println("🧹 Temporales de uploads eliminados: " + eliminados);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.AdoptaFacil.Util;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Utilidades de normalización de texto para la búsqueda de mascotas
+ * Convierte a minúsculas, elimina tildes y colapsa espacios para que
+ * "Bogota" y "Bogotá" produzcan el mismo texto indexado
+ */
+public final class TextoUtil {
+
+    private static final Pattern MARCAS_DIACRITICAS = Pattern.compile("\\p{M}+");
+    private static final Pattern ESPACIOS = Pattern.compile("\\s+");
+
+    private TextoUtil() {
+    }
+
+    /**
+     * Normaliza un texto: sin tildes, en minúsculas y con espacios simples
+     * @param texto Texto original (puede ser null)
+     * @return Texto normalizado, o cadena vacía si es null
+     */
+    public static String normalizar(String texto) {
+        if (texto == null || texto.isEmpty()) {
+            return "";
+        }
+        String sinTildes = MARCAS_DIACRITICAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        return ESPACIOS.matcher(sinTildes.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    /**
+     * Construye el texto de búsqueda de una mascota a partir de sus campos
+     * Debe coincidir con lo que se guarda en la columna mascotas.busqueda
+     */
+    public static String textoBusqueda(String nombre, String raza, String ciudad, String descripcion) {
+        return normalizar(String.join(" ",
+                nombre != null ? nombre : "",
+                raza != null ? raza : "",
+                ciudad != null ? ciudad : "",
+                descripcion != null ? descripcion : ""));
+    }
+
+    /**
+     * Escapa los comodines de LIKE (%, _ y \) para usar el texto como literal
+     */
+    public static String escaparLike(String texto) {
+        return texto.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.AdoptaFacil.Util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Utilidades para ejecutar acciones ligadas al resultado de la transacción actual
+ */
+public final class TransaccionUtil {
+
+    private TransaccionUtil() {
+    }
+
+    /**
+     * Ejecuta la acción cuando la transacción actual se confirme (commit)
+     * Si no hay transacción activa, la ejecuta inmediatamente
+     * Útil para invalidar cachés sin que una lectura concurrente vuelva a cargar datos sin confirmar
+     */
+    public static void despuesDelCommit(Runnable accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accion.run();
+                }
+            });
+        } else {
+            accion.run();
+        }
+    }
+}
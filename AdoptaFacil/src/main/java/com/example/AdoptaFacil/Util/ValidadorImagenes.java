@@ -0,0 +1,348 @@
+package com.example.AdoptaFacil.Util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Validación barata de las imágenes subidas, antes de escribirlas en disco
+ *
+ * - El tipo se detecta por los bytes mágicos, no por el nombre ni el Content-Type del cliente
+ * - Las dimensiones se leen de la cabecera (IHDR, SOF, VP8...) sin decodificar píxeles,
+ *   así una "bomba de descompresión" (p. ej. un PNG de 50000x50000 comprimido) se rechaza
+ *   antes de que el procesamiento de variantes intente cargarla en memoria
+ * - Solo se leen los primeros bytes (en JPEG se saltan segmentos hasta el SOF; en GIF, la paleta
+ *   y las extensiones hasta el primer fotograma)
+ * - En GIF cuenta el mayor entre el lienzo lógico y el primer fotograma: ImageIO decodifica el
+ *   fotograma con su propio tamaño, que puede superar con mucho al lienzo declarado
+ * - WebP se reconoce pero no está permitido por defecto: ImageIO no trae lector de WebP y el
+ *   procesamiento de variantes no podría decodificarla (habría que añadir un plugin de ImageIO)
+ */
+@Component
+public class ValidadorImagenes {
+
+    // Cabecera suficiente para PNG, GIF y las tres variantes de WebP
+    private static final int BYTES_CABECERA = 30;
+    // Los JPEG con EXIF, XMP o perfiles ICC grandes tienen el SOF más adelante
+    private static final int MAX_BYTES_HASTA_SOF = 1024 * 1024;
+    // Paleta global (hasta 768 bytes) y extensiones (comentarios, XMP...) antes del primer fotograma
+    private static final int MAX_BYTES_HASTA_FOTOGRAMA = 1024 * 1024;
+
+    private static final byte[] FIRMA_PNG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    public enum Formato {
+        JPEG("jpg"), PNG("png"), GIF("gif"), WEBP("webp");
+
+        private final String extension;
+
+        Formato(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    /**
+     * Formato detectado y dimensiones declaradas en la cabecera
+     */
+    public record ImagenValidada(Formato formato, int ancho, int alto) {
+    }
+
+    private final long tamanoMaximo;
+    private final long maxPixeles;
+    private final Set<Formato> permitidos;
+
+    public ValidadorImagenes(@Value("${imagenes.validacion.tamano-maximo-bytes:10485760}") long tamanoMaximo,
+                             @Value("${imagenes.max-pixeles:40000000}") long maxPixeles,
+                             @Value("${imagenes.validacion.formatos:JPEG,PNG,GIF}") Set<Formato> permitidos) {
+        this.tamanoMaximo = tamanoMaximo;
+        this.maxPixeles = maxPixeles;
+        this.permitidos = permitidos.isEmpty() ? EnumSet.noneOf(Formato.class) : EnumSet.copyOf(permitidos);
+    }
+
+    /**
+     * Valida una imagen de un formulario multipart
+     *
+     * @throws IllegalArgumentException si el archivo no es una imagen aceptada
+     */
+    public ImagenValidada validar(MultipartFile archivo) {
+        String nombre = archivo.getOriginalFilename();
+        comprobarTamano(archivo.getSize(), nombre);
+        try (InputStream entrada = archivo.getInputStream()) {
+            return validar(entrada, nombre);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("No se pudo leer la imagen " + nombre + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Valida un archivo ya completo en disco (subidas reanudables)
+     *
+     * @throws IllegalArgumentException si el archivo no es una imagen aceptada
+     */
+    public ImagenValidada validar(Path archivo, String nombre) {
+        try {
+            comprobarTamano(Files.size(archivo), nombre);
+            try (InputStream entrada = Files.newInputStream(archivo)) {
+                return validar(entrada, nombre);
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("No se pudo leer la imagen " + nombre + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Nombre seguro para guardar: solo [A-Za-z0-9._-] del nombre original (sin ruta ni extensión)
+     * y la extensión del formato detectado
+     */
+    public static String nombreSeguro(String nombreOriginal, Formato formato) {
+        String base = nombreOriginal == null ? "" : nombreOriginal;
+        base = base.substring(Math.max(base.lastIndexOf('/'), base.lastIndexOf('\\')) + 1);
+        int punto = base.lastIndexOf('.');
+        if (punto >= 0) {
+            base = base.substring(0, punto);
+        }
+        base = base.replaceAll("[^A-Za-z0-9_-]", "_");
+        if (base.length() > 64) {
+            base = base.substring(0, 64);
+        }
+        if (base.isEmpty()) {
+            base = "imagen";
+        }
+        return base + "." + formato.getExtension();
+    }
+
+    private void comprobarTamano(long tamano, String nombre) {
+        if (tamano <= 0) {
+            throw new IllegalArgumentException("La imagen " + nombre + " está vacía");
+        }
+        if (tamano > tamanoMaximo) {
+            throw new IllegalArgumentException("La imagen " + nombre + " supera el tamaño máximo de " + tamanoMaximo + " bytes");
+        }
+    }
+
+    private ImagenValidada validar(InputStream origen, String nombre) throws IOException {
+        BufferedInputStream entrada = new BufferedInputStream(origen, 8192);
+        entrada.mark(BYTES_CABECERA);
+        byte[] cabecera = entrada.readNBytes(BYTES_CABECERA);
+
+        ImagenValidada imagen;
+        if (empiezaPor(cabecera, FIRMA_PNG)) {
+            imagen = leerPng(cabecera);
+        } else if (cabecera.length >= 13 && cabecera[0] == 'G' && cabecera[1] == 'I' && cabecera[2] == 'F') {
+            entrada.reset();
+            imagen = leerGif(entrada);
+        } else if (cabecera.length >= 12 && ascii(cabecera, 0, "RIFF") && ascii(cabecera, 8, "WEBP")) {
+            imagen = leerWebp(cabecera);
+        } else if (cabecera.length >= 3 && (cabecera[0] & 0xFF) == 0xFF && (cabecera[1] & 0xFF) == 0xD8
+                && (cabecera[2] & 0xFF) == 0xFF) {
+            entrada.reset();
+            imagen = leerJpeg(entrada);
+        } else {
+            imagen = null;
+        }
+
+        if (imagen == null) {
+            throw new IllegalArgumentException("El archivo " + nombre + " no es una imagen válida (JPEG, PNG, GIF o WebP)");
+        }
+        if (!permitidos.contains(imagen.formato())) {
+            throw new IllegalArgumentException("Formato de imagen no permitido: " + imagen.formato());
+        }
+        if (imagen.ancho() <= 0 || imagen.alto() <= 0) {
+            throw new IllegalArgumentException("Dimensiones de imagen no válidas en " + nombre);
+        }
+        long pixeles = (long) imagen.ancho() * imagen.alto();
+        if (pixeles > maxPixeles) {
+            throw new IllegalArgumentException("La imagen " + nombre + " es demasiado grande: "
+                    + imagen.ancho() + "x" + imagen.alto() + " píxeles");
+        }
+        return imagen;
+    }
+
+    private static ImagenValidada leerPng(byte[] c) {
+        // Firma (8) + longitud (4) + "IHDR" (4) + ancho (4) + alto (4)
+        if (c.length < 24 || !ascii(c, 12, "IHDR")) {
+            return null;
+        }
+        return new ImagenValidada(Formato.PNG, (int) Math.min(u32be(c, 16), Integer.MAX_VALUE),
+                (int) Math.min(u32be(c, 20), Integer.MAX_VALUE));
+    }
+
+    private static ImagenValidada leerWebp(byte[] c) {
+        if (c.length < BYTES_CABECERA) {
+            return null;
+        }
+        if (ascii(c, 12, "VP8 ")) {
+            // Con pérdida: código de inicio 9D 01 2A y dimensiones de 14 bits
+            if ((c[23] & 0xFF) != 0x9D || (c[24] & 0xFF) != 0x01 || (c[25] & 0xFF) != 0x2A) {
+                return null;
+            }
+            return new ImagenValidada(Formato.WEBP, u16le(c, 26) & 0x3FFF, u16le(c, 28) & 0x3FFF);
+        }
+        if (ascii(c, 12, "VP8L")) {
+            // Sin pérdida: firma 0x2F y (ancho-1, alto-1) en 14 bits cada uno
+            if ((c[20] & 0xFF) != 0x2F) {
+                return null;
+            }
+            int bits = (c[21] & 0xFF) | (c[22] & 0xFF) << 8 | (c[23] & 0xFF) << 16 | (c[24] & 0xFF) << 24;
+            return new ImagenValidada(Formato.WEBP, (bits & 0x3FFF) + 1, ((bits >>> 14) & 0x3FFF) + 1);
+        }
+        if (ascii(c, 12, "VP8X")) {
+            // Extendido: lienzo (ancho-1, alto-1) en 24 bits
+            return new ImagenValidada(Formato.WEBP, u24le(c, 24) + 1, u24le(c, 27) + 1);
+        }
+        return null;
+    }
+
+    /**
+     * Recorre los segmentos del JPEG saltando su contenido hasta el primer SOF
+     */
+    private static ImagenValidada leerJpeg(InputStream entrada) throws IOException {
+        try {
+            entrada.skipNBytes(2); // SOI
+            long leidos = 2;
+            while (leidos < MAX_BYTES_HASTA_SOF) {
+                if (entrada.read() != 0xFF) {
+                    return null;
+                }
+                leidos++;
+                int marcador;
+                do {
+                    marcador = entrada.read(); // bytes de relleno 0xFF
+                    leidos++;
+                } while (marcador == 0xFF);
+                if (marcador < 0 || marcador == 0xD9 || marcador == 0xDA) {
+                    return null; // fin de imagen o datos sin haber encontrado el SOF
+                }
+                if (marcador == 0x01 || (marcador >= 0xD0 && marcador <= 0xD7)) {
+                    continue; // marcadores sin longitud
+                }
+                int longitud = u16be(entrada);
+                if (longitud < 2) {
+                    return null;
+                }
+                // SOF0..SOF15 salvo DHT (C4), JPG (C8) y DAC (CC)
+                if (marcador >= 0xC0 && marcador <= 0xCF && marcador != 0xC4 && marcador != 0xC8 && marcador != 0xCC) {
+                    entrada.read(); // precisión
+                    int alto = u16be(entrada);
+                    int ancho = u16be(entrada);
+                    return alto < 0 || ancho < 0 ? null : new ImagenValidada(Formato.JPEG, ancho, alto);
+                }
+                entrada.skipNBytes(longitud - 2);
+                leidos += longitud;
+            }
+            return null;
+        } catch (EOFException e) {
+            return null; // archivo truncado
+        }
+    }
+
+    /**
+     * Lienzo lógico y primer fotograma del GIF: salta la paleta global y los bloques de extensión
+     * hasta el descriptor de imagen. Devuelve el mayor de los dos tamaños
+     */
+    private static ImagenValidada leerGif(InputStream entrada) throws IOException {
+        try {
+            // Cabecera "GIF89a" (6) + descriptor de pantalla lógica (7)
+            byte[] pantalla = entrada.readNBytes(13);
+            if (pantalla.length < 13) {
+                return null;
+            }
+            int anchoLienzo = u16le(pantalla, 6);
+            int altoLienzo = u16le(pantalla, 8);
+            int opciones = pantalla[10] & 0xFF;
+            long leidos = 13;
+            if ((opciones & 0x80) != 0) {
+                int paleta = 3 * (1 << ((opciones & 0x07) + 1));
+                entrada.skipNBytes(paleta);
+                leidos += paleta;
+            }
+
+            while (leidos < MAX_BYTES_HASTA_FOTOGRAMA) {
+                int bloque = entrada.read();
+                leidos++;
+                if (bloque == 0x2C) {
+                    // Descriptor de imagen: izquierda (2), arriba (2), ancho (2), alto (2)
+                    byte[] descriptor = entrada.readNBytes(8);
+                    if (descriptor.length < 8) {
+                        return null;
+                    }
+                    int ancho = u16le(descriptor, 4);
+                    int alto = u16le(descriptor, 6);
+                    return (long) ancho * alto > (long) anchoLienzo * altoLienzo
+                            ? new ImagenValidada(Formato.GIF, ancho, alto)
+                            : new ImagenValidada(Formato.GIF, anchoLienzo, altoLienzo);
+                }
+                if (bloque != 0x21) {
+                    return null; // fin del archivo (0x3B) o bloque desconocido sin ningún fotograma
+                }
+                // Extensión: etiqueta y sub-bloques (tamaño + datos) hasta uno de tamaño 0
+                if (entrada.read() < 0) {
+                    return null;
+                }
+                leidos++;
+                int tamano;
+                while ((tamano = entrada.read()) > 0) {
+                    entrada.skipNBytes(tamano);
+                    leidos += tamano + 1;
+                }
+                if (tamano < 0) {
+                    return null;
+                }
+                leidos++;
+            }
+            return null;
+        } catch (EOFException e) {
+            return null; // archivo truncado
+        }
+    }
+
+    private static boolean empiezaPor(byte[] datos, byte[] prefijo) {
+        return datos.length >= prefijo.length && Arrays.equals(datos, 0, prefijo.length, prefijo, 0, prefijo.length);
+    }
+
+    private static boolean ascii(byte[] datos, int desde, String texto) {
+        if (datos.length < desde + texto.length()) {
+            return false;
+        }
+        for (int i = 0; i < texto.length(); i++) {
+            if (datos[desde + i] != (byte) texto.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int u16le(byte[] c, int i) {
+        return (c[i] & 0xFF) | (c[i + 1] & 0xFF) << 8;
+    }
+
+    private static int u24le(byte[] c, int i) {
+        return (c[i] & 0xFF) | (c[i + 1] & 0xFF) << 8 | (c[i + 2] & 0xFF) << 16;
+    }
+
+    private static long u32be(byte[] c, int i) {
+        return (long) (c[i] & 0xFF) << 24 | (c[i + 1] & 0xFF) << 16 | (c[i + 2] & 0xFF) << 8 | (c[i + 3] & 0xFF);
+    }
+
+    /**
+     * Entero de 16 bits big-endian del flujo, o -1 si se acabó
+     */
+    private static int u16be(InputStream entrada) throws IOException {
+        int alto = entrada.read();
+        int bajo = entrada.read();
+        return (alto | bajo) < 0 ? -1 : alto << 8 | bajo;
+    }
+}
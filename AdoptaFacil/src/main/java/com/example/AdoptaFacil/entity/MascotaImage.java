@@ -2,24 +2,54 @@ package com.example.AdoptaFacil.Entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import lombok.Data;
 
 @Entity
+// Los índices los crean las migraciones de Flyway (V2: claves para el recolector de huérfanas; V7: accesos por mascota)
 @Table(name = "mascota_images")
+// Cacheada junto con la colección Mascotas.imagenes (que solo guarda los IDs)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "mascota_imagenes")
 @Data
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class MascotaImage {
 
+    // Estados de generación de variantes
+    public static final String ESTADO_PENDIENTE = "PENDIENTE";
+    public static final String ESTADO_LISTO = "LISTO";
+    public static final String ESTADO_ERROR = "ERROR";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "mascota_images_seq")
+    @SequenceGenerator(name = "mascota_images_seq", sequenceName = "mascota_images_seq", allocationSize = 50)
     @Column(name = "id_mascota_image")
     private Long id;
 
     @Column(name = "imagen_path", nullable = false)
-    private String imagenPath; // ruta de la imagen en "uploads/"
+    private String imagenPath; // clave en el StorageService (ab/cd/archivo), no una ruta del servidor
 
     private Integer orden = 1;
 
+    // Hash SHA-256 del contenido cuando el archivo está deduplicado (ver ArchivoImagen)
+    @Column(name = "hash_contenido", length = 64)
+    private String hashContenido;
+
+    // Variantes generadas en segundo plano (sin EXIF) para no servir siempre el original
+    @Column(name = "thumbnail_path")
+    private String thumbnailPath; // miniatura para listados
+
+    @Column(name = "medium_path")
+    private String mediumPath; // tamaño medio para el detalle
+
+    @Column(name = "full_path")
+    private String fullPath; // tamaño completo recomprimido
+
+    // PENDIENTE, LISTO o ERROR (null en imágenes anteriores al procesamiento)
+    @Column(name = "estado_variantes", length = 20)
+    private String estadoVariantes = ESTADO_PENDIENTE;
+
     // Relación con mascota - evitar referencia circular en JSON
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "mascota_id", nullable = false)
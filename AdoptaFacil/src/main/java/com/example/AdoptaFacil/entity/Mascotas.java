@@ -1,23 +1,35 @@
 package com.example.AdoptaFacil.Entity;
 
+import com.example.AdoptaFacil.Util.TextoUtil;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 @Entity
 @Table(name = "mascotas")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "mascotas")
 @Data
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Mascotas {
 
+    // IDs que reserva Hibernate por cada nextval (optimizador pooled): permite agrupar los INSERT en batches
+    // La importación masiva reserva los suyos de la misma secuencia con el mismo tamaño
+    public static final int IDS_POR_RESERVA = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "mascotas_seq")
+    @SequenceGenerator(name = "mascotas_seq", sequenceName = "mascotas_seq", allocationSize = IDS_POR_RESERVA)
     @Column(name = "id_mascota")
     private Long id;
 
@@ -49,7 +61,15 @@ public class Mascotas {
     @Column(columnDefinition = "TEXT")
     private String descripcion;
 
-    private String imagen;//imagen principal
+    // Imagen principal: clave de la imagen con menor 'orden' (ver actualizarImagenPrincipal)
+    // Desnormalizada para que los listados no necesiten cargar la colección de imágenes
+    private String imagen;
+
+    // Texto normalizado (sin tildes, minúsculas) de nombre, raza, ciudad y descripción
+    // Indexado con GIN (trigramas y tsvector) para la búsqueda de texto
+    @JsonIgnore
+    @Column(name = "busqueda", columnDefinition = "TEXT")
+    private String busqueda;
 
     // Relación con person - Ignorar la relación completa en la serialización JSON
     @ManyToOne(fetch = FetchType.LAZY)
@@ -58,8 +78,31 @@ public class Mascotas {
     private Person ALIADO;
 
     // Relación con mascotaImage
+    // La caché de la colección guarda solo los IDs; las imágenes salen de la región "mascota_imagenes"
     @OneToMany(mappedBy = "mascota", cascade = CascadeType.ALL, orphanRemoval = true)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "mascotas_imagenes")
     @JsonIgnoreProperties({"mascota", "hibernateLazyInitializer", "handler"})
     private List<MascotaImage> imagenes = new ArrayList<>();
-}
 
+    /**
+     * Mantiene la columna de búsqueda sincronizada con los campos de texto
+     */
+    @PrePersist
+    @PreUpdate
+    void actualizarBusqueda() {
+        this.busqueda = TextoUtil.textoBusqueda(nombre, raza, ciudad, descripcion);
+    }
+
+    /**
+     * Recalcula la imagen principal a partir de la colección (null si no tiene imágenes)
+     * Debe llamarse al añadir o quitar imágenes: la colección es el lado inverso de la relación
+     * y sus cambios no disparan @PreUpdate
+     */
+    public void actualizarImagenPrincipal() {
+        this.imagen = imagenes.stream()
+                .min(Comparator.comparing(MascotaImage::getOrden, Comparator.nullsLast(Integer::compare))
+                        .thenComparing(MascotaImage::getId, Comparator.nullsLast(Long::compare)))
+                .map(MascotaImage::getImagenPath)
+                .orElse(null);
+    }
+}
@@ -0,0 +1,55 @@
+-- Esquema inicial: el mismo que creaba ddl-auto=update (ver database/adoptafacil_db.sql)
+-- Con IF NOT EXISTS, en una BD ya creada por Hibernate esta migración no cambia nada
+
+CREATE TABLE IF NOT EXISTS role (
+    id_role   BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    role_type VARCHAR(255) NOT NULL UNIQUE
+        CHECK (role_type IN ('ADMIN', 'CLIENTE', 'ALIADO'))
+);
+
+CREATE TABLE IF NOT EXISTS person (
+    id_person BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    email     VARCHAR(255) NOT NULL UNIQUE,
+    last_name VARCHAR(50)  NOT NULL,
+    name      VARCHAR(50)  NOT NULL,
+    password  VARCHAR(255) NOT NULL,
+    id_role   BIGINT REFERENCES role (id_role)
+);
+
+CREATE TABLE IF NOT EXISTS mascotas (
+    id_mascota       BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    ciudad           VARCHAR(255),
+    descripcion      TEXT,
+    edad             INTEGER      NOT NULL,
+    especie          VARCHAR(50)  NOT NULL,
+    fecha_nacimiento DATE,
+    imagen           VARCHAR(255),
+    nombre           VARCHAR(100) NOT NULL,
+    raza             VARCHAR(50)  NOT NULL,
+    sexo             VARCHAR(255),
+    id_person        BIGINT       NOT NULL REFERENCES person (id_person)
+);
+
+CREATE TABLE IF NOT EXISTS mascota_images (
+    id_mascota_image BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    imagen_path      VARCHAR(255) NOT NULL,
+    orden            INTEGER,
+    mascota_id       BIGINT       NOT NULL REFERENCES mascotas (id_mascota)
+);
+
+CREATE TABLE IF NOT EXISTS donaciones (
+    id             BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    comentario     VARCHAR(500),
+    fecha_donacion TIMESTAMP(6)     NOT NULL,
+    metodo_pago    VARCHAR(255),
+    monto          DOUBLE PRECISION NOT NULL,
+    person_id      BIGINT           NOT NULL REFERENCES person (id_person)
+);
+
+CREATE TABLE IF NOT EXISTS solicitudes (
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    comentario VARCHAR(255),
+    estado     VARCHAR(255) NOT NULL,
+    mascota_id BIGINT       NOT NULL REFERENCES mascotas (id_mascota),
+    person_id  BIGINT       NOT NULL REFERENCES person (id_person)
+);
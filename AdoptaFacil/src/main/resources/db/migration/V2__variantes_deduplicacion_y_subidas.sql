@@ -0,0 +1,35 @@
+-- Columnas y tablas añadidas después del esquema inicial:
+-- variantes de imágenes, deduplicación por contenido y subidas reanudables
+
+ALTER TABLE mascota_images ADD COLUMN IF NOT EXISTS hash_contenido   VARCHAR(64);
+ALTER TABLE mascota_images ADD COLUMN IF NOT EXISTS thumbnail_path   VARCHAR(255);
+ALTER TABLE mascota_images ADD COLUMN IF NOT EXISTS medium_path      VARCHAR(255);
+ALTER TABLE mascota_images ADD COLUMN IF NOT EXISTS full_path        VARCHAR(255);
+ALTER TABLE mascota_images ADD COLUMN IF NOT EXISTS estado_variantes VARCHAR(20);
+
+-- Referencias por archivo deduplicado (ArchivoImagen)
+CREATE TABLE IF NOT EXISTS archivos_imagen (
+    hash        VARCHAR(64)  PRIMARY KEY,
+    ruta        VARCHAR(255) NOT NULL,
+    referencias INTEGER      NOT NULL,
+    creado_en   TIMESTAMP(6) NOT NULL
+);
+
+-- Sesiones de subida reanudable (SesionSubida)
+CREATE TABLE IF NOT EXISTS sesiones_subida (
+    id             VARCHAR(36)  PRIMARY KEY,
+    mascota_id     BIGINT       NOT NULL,
+    propietario_id BIGINT       NOT NULL,
+    nombre_archivo VARCHAR(255) NOT NULL,
+    tamano         BIGINT       NOT NULL,
+    recibido       BIGINT       NOT NULL,
+    ruta           VARCHAR(255) NOT NULL,
+    creada_en      TIMESTAMP(6) NOT NULL,
+    actualizada_en TIMESTAMP(6) NOT NULL
+);
+
+-- Claves de imágenes: el recolector de huérfanas comprueba por lotes cuáles siguen referenciadas
+CREATE INDEX IF NOT EXISTS idx_mascota_images_imagen_path ON mascota_images (imagen_path);
+CREATE INDEX IF NOT EXISTS idx_mascota_images_thumbnail_path ON mascota_images (thumbnail_path);
+CREATE INDEX IF NOT EXISTS idx_mascota_images_medium_path ON mascota_images (medium_path);
+CREATE INDEX IF NOT EXISTS idx_mascota_images_full_path ON mascota_images (full_path);
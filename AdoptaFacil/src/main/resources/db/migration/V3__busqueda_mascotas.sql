@@ -0,0 +1,11 @@
+-- Búsqueda de texto de mascotas sobre la columna normalizada 'busqueda'
+-- (antes en BusquedaMascotasInitializer). El relleno de las filas existentes lo hace
+-- BusquedaMascotasMigracion (V4) con la misma normalización que TextoUtil.
+-- Requiere permiso para crear la extensión pg_trgm.
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+ALTER TABLE mascotas ADD COLUMN IF NOT EXISTS busqueda TEXT;
+
+CREATE INDEX IF NOT EXISTS idx_mascotas_busqueda_trgm ON mascotas USING gin (busqueda gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_mascotas_busqueda_tsv ON mascotas USING gin (to_tsvector('simple', COALESCE(busqueda, '')));
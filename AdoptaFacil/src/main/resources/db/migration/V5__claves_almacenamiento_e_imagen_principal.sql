@@ -0,0 +1,17 @@
+-- Rutas absolutas guardadas antes del StorageService -> claves portables (solo el nombre del archivo)
+-- y la imagen principal desnormalizada en mascotas.imagen (antes ClavesAlmacenamientoInitializer
+-- e ImagenPrincipalInitializer). Rutas Unix (/...), Windows (C:\... o C:/...) y UNC (\\servidor\...)
+
+UPDATE mascota_images SET imagen_path = regexp_replace(imagen_path, '^.*[/\\]', '') WHERE imagen_path ~ '^(/|[A-Za-z]:[\\/]|\\\\)';
+UPDATE mascota_images SET thumbnail_path = regexp_replace(thumbnail_path, '^.*[/\\]', '') WHERE thumbnail_path ~ '^(/|[A-Za-z]:[\\/]|\\\\)';
+UPDATE mascota_images SET medium_path = regexp_replace(medium_path, '^.*[/\\]', '') WHERE medium_path ~ '^(/|[A-Za-z]:[\\/]|\\\\)';
+UPDATE mascota_images SET full_path = regexp_replace(full_path, '^.*[/\\]', '') WHERE full_path ~ '^(/|[A-Za-z]:[\\/]|\\\\)';
+UPDATE mascotas SET imagen = regexp_replace(imagen, '^.*[/\\]', '') WHERE imagen ~ '^(/|[A-Za-z]:[\\/]|\\\\)';
+UPDATE archivos_imagen SET ruta = regexp_replace(ruta, '^.*[/\\]', '') WHERE ruta ~ '^(/|[A-Za-z]:[\\/]|\\\\)';
+
+-- Imagen principal: la de menor 'orden' (y menor ID en caso de empate)
+UPDATE mascotas m SET imagen = p.imagen_path
+FROM (SELECT DISTINCT ON (mascota_id) mascota_id, imagen_path
+      FROM mascota_images
+      ORDER BY mascota_id, orden, id_mascota_image) p
+WHERE p.mascota_id = m.id_mascota AND m.imagen IS DISTINCT FROM p.imagen_path;
@@ -0,0 +1,33 @@
+-- Claves primarias: de IDENTITY a secuencias con reserva por bloques (allocationSize = 50)
+-- Con IDENTITY Hibernate desactiva los batches JDBC; con una secuencia 'pooled' cada nextval
+-- reserva 50 IDs (v-49..v) que se asignan en memoria.
+--
+-- Para cada tabla: crear la secuencia (INCREMENT BY 50, igual que allocationSize), adelantarla
+-- por encima del MAX(id) actual sin retrocederla nunca, y sustituir la identidad por un DEFAULT
+-- nextval, para que un INSERT manual sin ID no choque con un bloque reservado por Hibernate.
+-- 'role' sigue con IDENTITY (tabla de tres filas).
+
+CREATE SEQUENCE IF NOT EXISTS person_seq INCREMENT BY 50;
+SELECT setval('person_seq', GREATEST((SELECT COALESCE(MAX(id_person), 0) FROM person), (SELECT last_value FROM person_seq), 1));
+ALTER TABLE person ALTER COLUMN id_person DROP IDENTITY IF EXISTS;
+ALTER TABLE person ALTER COLUMN id_person SET DEFAULT nextval('person_seq');
+
+CREATE SEQUENCE IF NOT EXISTS mascotas_seq INCREMENT BY 50;
+SELECT setval('mascotas_seq', GREATEST((SELECT COALESCE(MAX(id_mascota), 0) FROM mascotas), (SELECT last_value FROM mascotas_seq), 1));
+ALTER TABLE mascotas ALTER COLUMN id_mascota DROP IDENTITY IF EXISTS;
+ALTER TABLE mascotas ALTER COLUMN id_mascota SET DEFAULT nextval('mascotas_seq');
+
+CREATE SEQUENCE IF NOT EXISTS mascota_images_seq INCREMENT BY 50;
+SELECT setval('mascota_images_seq', GREATEST((SELECT COALESCE(MAX(id_mascota_image), 0) FROM mascota_images), (SELECT last_value FROM mascota_images_seq), 1));
+ALTER TABLE mascota_images ALTER COLUMN id_mascota_image DROP IDENTITY IF EXISTS;
+ALTER TABLE mascota_images ALTER COLUMN id_mascota_image SET DEFAULT nextval('mascota_images_seq');
+
+CREATE SEQUENCE IF NOT EXISTS donaciones_seq INCREMENT BY 50;
+SELECT setval('donaciones_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM donaciones), (SELECT last_value FROM donaciones_seq), 1));
+ALTER TABLE donaciones ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE donaciones ALTER COLUMN id SET DEFAULT nextval('donaciones_seq');
+
+CREATE SEQUENCE IF NOT EXISTS solicitudes_seq INCREMENT BY 50;
+SELECT setval('solicitudes_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM solicitudes), (SELECT last_value FROM solicitudes_seq), 1));
+ALTER TABLE solicitudes ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE solicitudes ALTER COLUMN id SET DEFAULT nextval('solicitudes_seq');
@@ -0,0 +1,31 @@
+-- Índices para las claves foráneas y los accesos reales (ver database/benchmarks/indices_consultas.sql)
+-- Cada índice compuesto empieza por la clave foránea, así que también sirve para los JOIN,
+-- para filtrar por ella sola y para comprobar la FK al borrar la fila padre.
+--
+-- CONCURRENTLY no bloquea las escrituras mientras se construye; Flyway ejecuta esta migración
+-- fuera de transacción. Si una construcción falla, el índice queda INVALID: hay que borrarlo
+-- (DROP INDEX CONCURRENTLY) antes de reintentar.
+
+-- Mascotas de un propietario paginadas por ID (listado propio, resumen y exportación por aliado)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_mascotas_person_id ON mascotas (id_person, id_mascota);
+
+-- Imágenes de una mascota en orden (detalle, listados por lote e imagen principal)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_mascota_images_mascota_orden ON mascota_images (mascota_id, orden, id_mascota_image);
+
+-- Imágenes con variantes pendientes (reintento al arrancar): índice parcial, casi vacío en régimen normal
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_mascota_images_variantes_pendientes ON mascota_images (id_mascota_image)
+    WHERE estado_variantes IS NULL OR estado_variantes = 'PENDIENTE';
+
+-- Reutilización de variantes de un contenido ya procesado (deduplicación)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_mascota_images_hash_estado ON mascota_images (hash_contenido, estado_variantes)
+    WHERE hash_contenido IS NOT NULL;
+
+-- Donaciones de una persona por fecha
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_donaciones_person_fecha ON donaciones (person_id, fecha_donacion);
+
+-- Solicitudes de una mascota por estado (p. ej. las pendientes) y solicitudes de una persona
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_solicitudes_mascota_estado ON solicitudes (mascota_id, estado);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_solicitudes_person_id ON solicitudes (person_id);
+
+-- Limpieza de sesiones de subida abandonadas
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_sesiones_subida_actualizada_en ON sesiones_subida (actualizada_en);
@@ -1,14 +0,0 @@
-package com.example.AdoptaFacil;
-
-import org.springframework.boot.SpringApplication;
-import org.springframework.boot.autoconfigure.SpringBootApplication;
-
-
-@SpringBootApplication
-public class AdoptaFacilApplication {
-
-    public static void main(String[] args) {
-        SpringApplication.run(AdoptaFacilApplication.class, args);
-    }
-
-}
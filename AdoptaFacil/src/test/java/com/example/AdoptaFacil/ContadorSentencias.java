@@ -0,0 +1,93 @@
+package com.example.AdoptaFacil;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * Registra las sentencias JDBC que ejecuta el hilo actual mientras dura una operación
+ *
+ * Solo cuenta lo que ocurre en el hilo que llama a registrar: el trabajo en segundo plano
+ * (variantes de imágenes, tareas programadas) no altera el resultado.
+ * Un batch JDBC cuenta como una sola ejecución (una ida y vuelta) con varias filas.
+ */
+public final class ContadorSentencias implements QueryExecutionListener {
+
+    /**
+     * Una ida y vuelta a la base de datos: la sentencia y cuántas filas de parámetros llevaba
+     */
+    public record Ejecucion(String sql, boolean lote, int filas) {
+
+        public boolean empiezaPor(String prefijo) {
+            return sql.stripLeading().toLowerCase(Locale.ROOT).startsWith(prefijo.toLowerCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * Resultado de la operación y las sentencias que ejecutó
+     */
+    public record Registro<T>(T resultado, List<Ejecucion> ejecuciones) {
+    }
+
+    private static final ThreadLocal<List<Ejecucion>> EN_CURSO = new ThreadLocal<>();
+
+    public static <T> Registro<T> registrar(Supplier<T> operacion) {
+        List<Ejecucion> ejecuciones = new ArrayList<>();
+        EN_CURSO.set(ejecuciones);
+        try {
+            T resultado = operacion.get();
+            return new Registro<>(resultado, List.copyOf(ejecuciones));
+        } finally {
+            EN_CURSO.remove();
+        }
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo info, List<QueryInfo> consultas) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo info, List<QueryInfo> consultas) {
+        List<Ejecucion> ejecuciones = EN_CURSO.get();
+        if (ejecuciones == null) {
+            return;
+        }
+        for (QueryInfo consulta : consultas) {
+            int filas = info.isBatch() ? Math.max(1, consulta.getParametersList().size()) : 1;
+            ejecuciones.add(new Ejecucion(consulta.getQuery(), info.isBatch(), filas));
+        }
+    }
+
+    /**
+     * Envuelve el DataSource de la aplicación con el proxy que notifica cada sentencia
+     */
+    @TestConfiguration(proxyBeanMethods = false)
+    public static class Configuracion {
+
+        @Bean
+        static BeanPostProcessor contadorSentenciasDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String nombre) {
+                    if (bean instanceof DataSource dataSource) {
+                        return ProxyDataSourceBuilder.create(dataSource)
+                                .name(nombre)
+                                .listener(new ContadorSentencias())
+                                .build();
+                    }
+                    return bean;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.AdoptaFacil.Controller;
+
+import com.example.AdoptaFacil.Cache.CacheAcotada;
+import com.example.AdoptaFacil.Config.WebConfig;
+import com.example.AdoptaFacil.Implement.LocalStorageServiceImpl;
+import com.example.AdoptaFacil.Util.ClavesAlmacenamiento;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.http.HttpMessageConvertersAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendimiento al servir imágenes: /uploads/** (manejador estático de WebConfig) vs /api/imagenes/** (ImagenesController)
+ *
+ * - Arranca Tomcat embebido en un puerto libre solo con la capa web (sin base de datos ni seguridad)
+ * - Ambas rutas sirven el mismo archivo (nombre por hash, bajo ab/cd/) de 100KB o 5MB
+ * - 8 hilos cliente con HttpClient y el cuerpo descartado; el resultado son respuestas/s
+ *   (MB/s = respuestas/s × tamaño)
+ * - apiImagenesRevalidacion mide la respuesta 304 a If-None-Match, que /uploads no ofrece con ETag fuerte
+ *
+ * Ejecución (cualquier opción de JMH va detrás del nombre, p. ej. -p tamano=5MB):
+ *   mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *       -Dexec.args="-cp %classpath org.openjdk.jmh.Main ImagenesControllerBenchmark"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class ImagenesControllerBenchmark {
+
+    @Param({"100KB", "5MB"})
+    private String tamano;
+
+    private Path directorio;
+    private ConfigurableApplicationContext contexto;
+    private HttpClient cliente;
+    private HttpRequest uploads;
+    private HttpRequest apiImagenes;
+    private HttpRequest apiImagenesRevalidacion;
+
+    @Setup(Level.Trial)
+    public void arrancar() throws IOException, InterruptedException, NoSuchAlgorithmException {
+        byte[] contenido = new byte[tamano.equals("5MB") ? 5 * 1024 * 1024 : 100 * 1024];
+        ThreadLocalRandom.current().nextBytes(contenido);
+        String hash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(contenido));
+        String clave = ClavesAlmacenamiento.conShard(hash + ".jpg");
+
+        directorio = Files.createTempDirectory("adoptafacil-bench");
+        Path archivo = directorio.resolve(clave);
+        Files.createDirectories(archivo.getParent());
+        Files.write(archivo, contenido);
+
+        contexto = new SpringApplicationBuilder(CapaWeb.class)
+                .web(WebApplicationType.SERVLET)
+                .logStartupInfo(false)
+                // Como argumentos, para que prevalezcan sobre application.properties
+                .run("--server.port=0",
+                        "--upload.path=" + directorio,
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.root=WARN");
+        int puerto = ((WebServerApplicationContext) contexto).getWebServer().getPort();
+
+        cliente = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        String base = "http://localhost:" + puerto;
+        uploads = HttpRequest.newBuilder(URI.create(base + "/uploads/" + clave)).build();
+        apiImagenes = HttpRequest.newBuilder(URI.create(base + "/api/imagenes/" + clave)).build();
+        apiImagenesRevalidacion = HttpRequest.newBuilder(URI.create(base + "/api/imagenes/" + clave))
+                .header("If-None-Match", "\"" + hash + "\"")
+                .build();
+
+        // No medir errores: ambas rutas deben devolver el archivo completo
+        comprobar(uploads, 200, contenido.length);
+        comprobar(apiImagenes, 200, contenido.length);
+        comprobar(apiImagenesRevalidacion, 304, 0);
+    }
+
+    @TearDown(Level.Trial)
+    public void detener() throws IOException {
+        if (contexto != null) {
+            contexto.close();
+        }
+        FileSystemUtils.deleteRecursively(directorio);
+    }
+
+    @Benchmark
+    public int uploads() throws IOException, InterruptedException {
+        return enviar(uploads);
+    }
+
+    @Benchmark
+    public int apiImagenes() throws IOException, InterruptedException {
+        return enviar(apiImagenes);
+    }
+
+    @Benchmark
+    public int apiImagenesRevalidacion() throws IOException, InterruptedException {
+        return enviar(apiImagenesRevalidacion);
+    }
+
+    private int enviar(HttpRequest peticion) throws IOException, InterruptedException {
+        return cliente.send(peticion, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private void comprobar(HttpRequest peticion, int estado, long longitud) throws IOException, InterruptedException {
+        HttpResponse<byte[]> respuesta = cliente.send(peticion, HttpResponse.BodyHandlers.ofByteArray());
+        if (respuesta.statusCode() != estado || respuesta.body().length != longitud) {
+            throw new IllegalStateException("❌ " + peticion.uri() + " respondió " + respuesta.statusCode()
+                    + " con " + respuesta.body().length + " bytes (se esperaban " + estado + " y " + longitud + ")");
+        }
+    }
+
+    /**
+     * Solo la capa web: servidor, MVC, el manejador /uploads/** y ImagenesController con almacenamiento local
+     * Sin @Configuration: el escaneo de componentes de las pruebas de integración no debe registrarla
+     */
+    @ImportAutoConfiguration({
+            PropertyPlaceholderAutoConfiguration.class,
+            ServletWebServerFactoryAutoConfiguration.class,
+            DispatcherServletAutoConfiguration.class,
+            HttpMessageConvertersAutoConfiguration.class,
+            WebMvcAutoConfiguration.class
+    })
+    @Import({WebConfig.class, ImagenesController.class, LocalStorageServiceImpl.class})
+    static class CapaWeb {
+
+        @Bean
+        CacheAcotada<String, String> cacheEtags() {
+            return new CacheAcotada<>("etags", 10_000, 86_400, true);
+        }
+    }
+}
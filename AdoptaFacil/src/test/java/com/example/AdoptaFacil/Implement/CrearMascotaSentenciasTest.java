@@ -0,0 +1,117 @@
+package com.example.AdoptaFacil.Implement;
+
+import com.example.AdoptaFacil.ContadorSentencias;
+import com.example.AdoptaFacil.ContadorSentencias.Ejecucion;
+import com.example.AdoptaFacil.DTO.MascotasDTO;
+import com.example.AdoptaFacil.Entity.Mascotas;
+import com.example.AdoptaFacil.Entity.Person;
+import com.example.AdoptaFacil.PostgresIntegracionTest;
+import com.example.AdoptaFacil.Repository.PersonRepository;
+import com.example.AdoptaFacil.Service.MascotasService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Sentencias JDBC por cada MascotasServiceImpl.crearMascota
+ *
+ * Con IDs por secuencia (bloques de Mascotas.IDS_POR_RESERVA) y hibernate.jdbc.batch_size,
+ * una mascota con 3 imágenes se inserta con un INSERT para la mascota y un único batch
+ * para las imágenes, sin nextval por fila.
+ */
+class CrearMascotaSentenciasTest extends PostgresIntegracionTest {
+
+    @Autowired
+    private MascotasService mascotasService;
+
+    @Autowired
+    private PersonRepository personRepository;
+
+    private final List<Long> creadas = new ArrayList<>();
+
+    @AfterEach
+    void eliminarCreadas() {
+        creadas.forEach(mascotasService::eliminarMascota);
+    }
+
+    @Test
+    void crearMascotaConTresImagenesAgrupaLosInsertEnUnBatch() {
+        Person aliado = personRepository.findByEmail("aliado@ejemplo.com").orElseThrow();
+
+        // La primera creación reserva los bloques de IDs de las secuencias (nextval)
+        creadas.add(mascotasService.crearMascota(nuevaMascota(aliado), imagenes(3)).getId());
+
+        ContadorSentencias.Registro<MascotasDTO> registro =
+                ContadorSentencias.registrar(() -> mascotasService.crearMascota(nuevaMascota(aliado), imagenes(3)));
+        creadas.add(registro.resultado().getId());
+        List<Ejecucion> ejecuciones = registro.ejecuciones();
+        String detalle = "Sentencias ejecutadas:\n" + String.join("\n", ejecuciones.stream().map(Ejecucion::toString).toList());
+
+        List<Ejecucion> insertMascotas = ejecuciones.stream().filter(e -> e.empiezaPor("insert into mascotas ")).toList();
+        assertEquals(1, insertMascotas.size(), detalle);
+
+        List<Ejecucion> insertImagenes = ejecuciones.stream().filter(e -> e.empiezaPor("insert into mascota_images")).toList();
+        assertEquals(1, insertImagenes.size(), "Las 3 imágenes deben ir en un solo batch. " + detalle);
+        assertTrue(insertImagenes.get(0).lote(), detalle);
+        assertEquals(3, insertImagenes.get(0).filas(), detalle);
+
+        assertTrue(ejecuciones.stream().noneMatch(e -> e.sql().contains("nextval")),
+                "Los IDs salen del bloque ya reservado. " + detalle);
+        assertTrue(ejecuciones.stream().noneMatch(e -> e.empiezaPor("update")),
+                "La imagen principal y la búsqueda se calculan antes del INSERT. " + detalle);
+
+        // Por imagen: upsert de la referencia en archivos_imagen y búsqueda de variantes ya generadas
+        // para el mismo contenido; más el INSERT de la mascota y el batch de imágenes
+        assertEquals(3 * 2 + 2, ejecuciones.size(), detalle);
+    }
+
+    private static Mascotas nuevaMascota(Person aliado) {
+        Mascotas mascota = new Mascotas();
+        mascota.setNombre("Luna");
+        mascota.setEspecie("Perro");
+        mascota.setRaza("Criollo");
+        mascota.setEdad(3);
+        mascota.setSexo("Hembra");
+        mascota.setCiudad("Bogotá");
+        mascota.setDescripcion("Mascota de prueba");
+        mascota.setALIADO(aliado);
+        return mascota;
+    }
+
+    /**
+     * PNG pequeños con contenido aleatorio: cada uno tiene su propio hash
+     */
+    private static List<MultipartFile> imagenes(int cantidad) {
+        List<MultipartFile> imagenes = new ArrayList<>();
+        for (int i = 0; i < cantidad; i++) {
+            BufferedImage imagen = new BufferedImage(16, 16, BufferedImage.TYPE_INT_RGB);
+            for (int x = 0; x < 16; x++) {
+                for (int y = 0; y < 16; y++) {
+                    imagen.setRGB(x, y, ThreadLocalRandom.current().nextInt(0xFFFFFF));
+                }
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try {
+                ImageIO.write(imagen, "png", bytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            imagenes.add(new MockMultipartFile("imagenes", "foto" + i + ".png", "image/png", bytes.toByteArray()));
+        }
+        return imagenes;
+    }
+}
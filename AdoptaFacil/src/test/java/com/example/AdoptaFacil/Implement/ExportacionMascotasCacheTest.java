@@ -0,0 +1,70 @@
+package com.example.AdoptaFacil.Implement;
+
+import com.example.AdoptaFacil.Cache.CacheSegundoNivel;
+import com.example.AdoptaFacil.Entity.Mascotas;
+import com.example.AdoptaFacil.Entity.Person;
+import com.example.AdoptaFacil.PostgresIntegracionTest;
+import com.example.AdoptaFacil.Repository.PersonRepository;
+import com.example.AdoptaFacil.Service.ExportacionMascotasService;
+import com.example.AdoptaFacil.Service.ExportacionMascotasService.FormatoExportacion;
+import com.example.AdoptaFacil.Service.MascotasService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * La exportación recorre todo el catálogo: no debe llenar la región "mascotas" de la caché de segundo nivel
+ */
+class ExportacionMascotasCacheTest extends PostgresIntegracionTest {
+
+    @Autowired
+    private ExportacionMascotasService exportacionMascotas;
+
+    @Autowired
+    private MascotasService mascotasService;
+
+    @Autowired
+    private PersonRepository personRepository;
+
+    @Autowired
+    private CacheSegundoNivel cacheSegundoNivel;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void exportarNoGuardaLasMascotasEnLaCacheDeSegundoNivel() throws IOException {
+        Person aliado = personRepository.findByEmail("aliado@ejemplo.com").orElseThrow();
+        Mascotas mascota = new Mascotas();
+        mascota.setNombre("Tom");
+        mascota.setEspecie("Gato");
+        mascota.setRaza("Siamés");
+        mascota.setEdad(2);
+        mascota.setALIADO(aliado);
+        Long id = mascotasService.crearMascota(mascota, List.of()).getId();
+        try {
+            cacheSegundoNivel.invalidarTodo();
+            SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+            Statistics estadisticas = sessionFactory.getStatistics();
+            long insercionesAntes = estadisticas.getDomainDataRegionStatistics("mascotas").getPutCount();
+
+            long exportadas = exportacionMascotas.exportar(null, FormatoExportacion.CSV, OutputStream.nullOutputStream());
+
+            assertTrue(exportadas >= 1);
+            assertEquals(insercionesAntes, estadisticas.getDomainDataRegionStatistics("mascotas").getPutCount());
+            assertFalse(sessionFactory.getCache().containsEntity(Mascotas.class, id));
+        } finally {
+            mascotasService.eliminarMascota(id);
+        }
+    }
+}
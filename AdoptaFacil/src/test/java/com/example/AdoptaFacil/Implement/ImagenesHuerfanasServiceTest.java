@@ -0,0 +1,93 @@
+package com.example.AdoptaFacil.Implement;
+
+import com.example.AdoptaFacil.PostgresIntegracionTest;
+import com.example.AdoptaFacil.Service.ImagenesHuerfanasService;
+import com.example.AdoptaFacil.Util.ClavesAlmacenamiento;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Recolector de imágenes huérfanas: un archivo por contenido que vuelve a estar registrado en
+ * archivos_imagen (subida del mismo contenido aún sin fila en mascota_images) no se borra
+ */
+class ImagenesHuerfanasServiceTest extends PostgresIntegracionTest {
+
+    @Autowired
+    private ImagenesHuerfanasService imagenesHuerfanas;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${upload.path}")
+    private String uploadPath;
+
+    private final List<String> hashes = new ArrayList<>();
+    private final List<Path> archivos = new ArrayList<>();
+
+    @AfterEach
+    void limpiar() throws IOException {
+        for (String hash : hashes) {
+            jdbcTemplate.update("DELETE FROM archivos_imagen WHERE hash = ?", hash);
+        }
+        for (Path archivo : archivos) {
+            Files.deleteIfExists(archivo);
+        }
+    }
+
+    @Test
+    void conservaLosArchivosPorContenidoRegistradosYBorraLosDemas() throws IOException {
+        String registrado = nuevoHash();
+        jdbcTemplate.update("INSERT INTO archivos_imagen (hash, ruta, referencias, creado_en) VALUES (?, ?, 1, now())",
+                registrado, ClavesAlmacenamiento.conShard(registrado + ".jpg"));
+
+        Path original = archivoAntiguo(ClavesAlmacenamiento.conShard(registrado + ".jpg"));
+        Path variante = archivoAntiguo(ClavesAlmacenamiento.conShard(registrado + "_thumb.jpg"));
+        Path sinRegistro = archivoAntiguo(ClavesAlmacenamiento.conShard(nuevoHash() + ".png"));
+        Path porUuid = archivoAntiguo(UUID.randomUUID() + ".jpg");
+
+        imagenesHuerfanas.recolectar(false);
+
+        assertTrue(Files.exists(original), "El contenido registrado en archivos_imagen no debe borrarse");
+        assertTrue(Files.exists(variante), "Las variantes del contenido registrado tampoco");
+        assertFalse(Files.exists(sinRegistro));
+        assertFalse(Files.exists(porUuid));
+    }
+
+    private String nuevoHash() {
+        byte[] bytes = new byte[32];
+        ThreadLocalRandom.current().nextBytes(bytes);
+        String hash = HexFormat.of().formatHex(bytes);
+        hashes.add(hash);
+        return hash;
+    }
+
+    /**
+     * Archivo fuera del periodo de gracia (modificado hace dos días)
+     */
+    private Path archivoAntiguo(String clave) throws IOException {
+        Path archivo = Path.of(uploadPath).resolve(clave);
+        Files.createDirectories(archivo.getParent());
+        Files.write(archivo, new byte[]{1, 2, 3});
+        Files.setLastModifiedTime(archivo, FileTime.from(Instant.now().minus(Duration.ofDays(2))));
+        archivos.add(archivo);
+        return archivo;
+    }
+}
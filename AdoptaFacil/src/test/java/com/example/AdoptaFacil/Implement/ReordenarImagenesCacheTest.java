@@ -0,0 +1,145 @@
+package com.example.AdoptaFacil.Implement;
+
+import com.example.AdoptaFacil.DTO.MascotaImageDTO;
+import com.example.AdoptaFacil.DTO.MascotasDTO;
+import com.example.AdoptaFacil.Entity.MascotaImage;
+import com.example.AdoptaFacil.Entity.Mascotas;
+import com.example.AdoptaFacil.Entity.Person;
+import com.example.AdoptaFacil.PostgresIntegracionTest;
+import com.example.AdoptaFacil.Repository.MascotaImageRepository;
+import com.example.AdoptaFacil.Repository.PersonRepository;
+import com.example.AdoptaFacil.Service.MascotasService;
+import com.example.AdoptaFacil.Service.ProcesamientoImagenesService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Reordenar imágenes (SQL directo) invalida solo las entradas afectadas de la caché de segundo nivel
+ */
+class ReordenarImagenesCacheTest extends PostgresIntegracionTest {
+
+    @Autowired
+    private MascotasService mascotasService;
+
+    @Autowired
+    private MascotaImageRepository mascotaImageRepository;
+
+    @Autowired
+    private PersonRepository personRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ProcesamientoImagenesService procesamientoImagenes;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<Long> creadas = new ArrayList<>();
+
+    @AfterEach
+    void eliminarCreadas() {
+        creadas.forEach(mascotasService::eliminarMascota);
+    }
+
+    @Test
+    void reordenarInvalidaSoloLasImagenesDeLaMascota() throws InterruptedException {
+        Person aliado = personRepository.findByEmail("aliado@ejemplo.com").orElseThrow();
+        MascotasDTO reordenada = crear(aliado, 2);
+        MascotasDTO otra = crear(aliado, 1);
+        List<Long> ids = reordenada.getImagenes().stream().map(MascotaImageDTO::getId).toList();
+        Long idOtra = otra.getImagenes().get(0).getId();
+        esperarVariantes();
+
+        // Cada findById fuera de transacción carga la imagen en la caché de segundo nivel
+        ids.forEach(mascotaImageRepository::findById);
+        mascotaImageRepository.findById(idOtra);
+        Cache cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        assertTrue(cache.containsEntity(MascotaImage.class, idOtra));
+
+        mascotasService.reordenarImagenes(reordenada.getId(), ids.reversed(), aliado);
+
+        assertFalse(cache.containsEntity(MascotaImage.class, ids.get(0)));
+        assertFalse(cache.containsEntity(MascotaImage.class, ids.get(1)));
+        assertTrue(cache.containsEntity(MascotaImage.class, idOtra), "Las imágenes de otras mascotas siguen en caché");
+        assertEquals(2, mascotaImageRepository.findById(ids.get(0)).orElseThrow().getOrden());
+        assertEquals(1, mascotaImageRepository.findById(ids.get(1)).orElseThrow().getOrden());
+    }
+
+    /**
+     * Las variantes se guardan con un UPDATE en JPQL, que vacía toda la región de imágenes:
+     * hay que esperar a que terminen antes de llenar la caché
+     */
+    private void esperarVariantes() throws InterruptedException {
+        long limite = System.nanoTime() + 30_000_000_000L;
+        while (System.nanoTime() < limite) {
+            Map<String, Object> stats = procesamientoImagenes.estadisticas();
+            Integer pendientes = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM mascota_images WHERE mascota_id = ANY(?) AND estado_variantes = 'PENDIENTE'",
+                    Integer.class, (Object) creadas.toArray(Long[]::new));
+            if (pendientes != null && pendientes == 0
+                    && ((Number) stats.get("activos")).intValue() == 0 && ((Number) stats.get("enCola")).intValue() == 0) {
+                return;
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("Las variantes de las imágenes no terminaron a tiempo");
+    }
+
+    private MascotasDTO crear(Person aliado, int imagenes) {
+        Mascotas mascota = new Mascotas();
+        mascota.setNombre("Nala");
+        mascota.setEspecie("Gato");
+        mascota.setRaza("Criollo");
+        mascota.setEdad(1);
+        mascota.setALIADO(aliado);
+        MascotasDTO dto = mascotasService.crearMascota(mascota, imagenes(imagenes));
+        creadas.add(dto.getId());
+        return dto;
+    }
+
+    /**
+     * PNG pequeños con contenido aleatorio: cada uno tiene su propio hash
+     */
+    private static List<MultipartFile> imagenes(int cantidad) {
+        List<MultipartFile> imagenes = new ArrayList<>();
+        for (int i = 0; i < cantidad; i++) {
+            BufferedImage imagen = new BufferedImage(16, 16, BufferedImage.TYPE_INT_RGB);
+            for (int x = 0; x < 16; x++) {
+                for (int y = 0; y < 16; y++) {
+                    imagen.setRGB(x, y, ThreadLocalRandom.current().nextInt(0xFFFFFF));
+                }
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try {
+                ImageIO.write(imagen, "png", bytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            imagenes.add(new MockMultipartFile("imagenes", "foto" + i + ".png", "image/png", bytes.toByteArray()));
+        }
+        return imagenes;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.AdoptaFacil;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Base de las pruebas de integración contra PostgreSQL
+ *
+ * Las migraciones de Flyway usan extensiones y sintaxis propias de PostgreSQL (pg_trgm,
+ * CREATE INDEX CONCURRENTLY...), así que no sirve una base de datos en memoria:
+ * - Por defecto se arranca un contenedor con Testcontainers (requiere Docker)
+ * - Con -Dtest.postgres.url=jdbc:postgresql://localhost:5432/adoptafacil_test se usa esa base de datos
+ *   (usuario y contraseña en test.postgres.username / test.postgres.password); no debe ser la de desarrollo
+ * - Sin Docker ni URL, las pruebas se omiten
+ *
+ * Todas las clases comparten el contexto de Spring y, por tanto, la base de datos migrada.
+ * El DataSource va envuelto por ContadorSentencias (sin coste mientras no se registra nada).
+ */
+@SpringBootTest
+@Import(ContadorSentencias.Configuracion.class)
+public abstract class PostgresIntegracionTest {
+
+    private static final String URL_EXTERNA = System.getProperty("test.postgres.url");
+    private static final Path UPLOADS = directorioUploads();
+
+    private static PostgreSQLContainer<?> contenedor;
+
+    @BeforeAll
+    static void comprobarPostgres() {
+        assumeTrue(URL_EXTERNA != null || DockerClientFactory.instance().isDockerAvailable(),
+                "Sin Docker ni -Dtest.postgres.url: se omiten las pruebas de integración con PostgreSQL");
+    }
+
+    @DynamicPropertySource
+    static void propiedades(DynamicPropertyRegistry registro) {
+        if (URL_EXTERNA != null) {
+            registro.add("spring.datasource.url", () -> URL_EXTERNA);
+            registro.add("spring.datasource.username", () -> System.getProperty("test.postgres.username", "postgres"));
+            registro.add("spring.datasource.password", () -> System.getProperty("test.postgres.password", ""));
+        } else {
+            registro.add("spring.datasource.url", () -> contenedor().getJdbcUrl());
+            registro.add("spring.datasource.username", () -> contenedor().getUsername());
+            registro.add("spring.datasource.password", () -> contenedor().getPassword());
+        }
+        // Las imágenes de las pruebas no deben acabar en el upload.path real
+        registro.add("upload.path", UPLOADS::toString);
+        registro.add("spring.jpa.show-sql", () -> "false");
+    }
+
+    /**
+     * Un único contenedor para todas las clases (Testcontainers lo elimina al terminar la JVM)
+     */
+    private static synchronized PostgreSQLContainer<?> contenedor() {
+        if (contenedor == null) {
+            contenedor = new PostgreSQLContainer<>("postgres:16-alpine");
+            contenedor.start();
+        }
+        return contenedor;
+    }
+
+    private static Path directorioUploads() {
+        try {
+            return Files.createTempDirectory("adoptafacil-uploads");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
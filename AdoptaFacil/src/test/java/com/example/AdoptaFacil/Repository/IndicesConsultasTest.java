@@ -0,0 +1,151 @@
+package com.example.AdoptaFacil.Repository;
+
+import com.example.AdoptaFacil.PostgresIntegracionTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Comprueba con EXPLAIN que las consultas reales usan los índices de V7__indices_claves_foraneas.sql
+ *
+ * - Trabaja sobre el esquema que crean las migraciones de Flyway, no sobre una copia
+ * - Inserta datos sintéticos con generate_series y ejecuta ANALYZE dentro de la transacción de la
+ *   prueba (ANALYZE ve las filas insertadas por la propia transacción); todo se deshace al terminar
+ * - Los IDs sintéticos empiezan en BASE para no chocar con los datos de ejemplo
+ *
+ * database/benchmarks/indices_consultas.sql hace la misma comprobación con más volumen y
+ * muestra los tiempos con EXPLAIN ANALYZE.
+ */
+@Transactional
+class IndicesConsultasTest extends PostgresIntegracionTest {
+
+    private static final long BASE = 900_000_000L;
+    private static final int PERSONAS = 2_000;
+    private static final int MASCOTAS = 40_000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void generarDatos() {
+        jdbcTemplate.update("""
+                INSERT INTO person (id_person, email, last_name, name, password)
+                SELECT %1$d + g, 'indices' || g || '@ejemplo.com', 'Prueba', 'Persona', 'x'
+                FROM generate_series(1, %2$d) AS g
+                """.formatted(BASE, PERSONAS));
+
+        jdbcTemplate.update("""
+                INSERT INTO mascotas (id_mascota, nombre, especie, raza, edad, sexo, ciudad, id_person)
+                SELECT %1$d + g, 'Mascota ' || g, (ARRAY['Perro','Gato'])[1 + (g %% 2)], 'Criollo', g %% 15,
+                       (ARRAY['Macho','Hembra'])[1 + (g %% 2)], 'Bogotá', %1$d + 1 + (g %% %2$d)
+                FROM generate_series(1, %3$d) AS g
+                """.formatted(BASE, PERSONAS, MASCOTAS));
+
+        // Dos imágenes por mascota; casi todas con variantes listas
+        jdbcTemplate.update("""
+                INSERT INTO mascota_images (id_mascota_image, imagen_path, orden, hash_contenido, estado_variantes, mascota_id)
+                SELECT %1$d + g, md5(g::text) || '.jpg', 1 + (g %% 2), md5(g::text) || md5((g + 1)::text),
+                       CASE WHEN g %% 5000 = 0 THEN 'PENDIENTE' ELSE 'LISTO' END, %1$d + 1 + (g - 1) / 2
+                FROM generate_series(1, %2$d) AS g
+                """.formatted(BASE, MASCOTAS * 2));
+
+        jdbcTemplate.update("""
+                INSERT INTO donaciones (id, fecha_donacion, monto, person_id)
+                SELECT %1$d + g, TIMESTAMP '2024-01-01' + (g %% 600) * INTERVAL '1 day', 10000 + g %% 90000,
+                       %1$d + 1 + (g %% %2$d)
+                FROM generate_series(1, 100000) AS g
+                """.formatted(BASE, PERSONAS));
+
+        jdbcTemplate.update("""
+                INSERT INTO solicitudes (id, estado, mascota_id, person_id)
+                SELECT %1$d + g, (ARRAY['PENDIENTE','APROBADA','RECHAZADA'])[1 + (g %% 3)],
+                       %1$d + 1 + (g %% %3$d), %1$d + 1 + (g %% %2$d)
+                FROM generate_series(1, 60000) AS g
+                """.formatted(BASE, PERSONAS, MASCOTAS));
+
+        // Casi todas las sesiones son recientes: solo unas pocas están abandonadas
+        jdbcTemplate.update("""
+                INSERT INTO sesiones_subida (id, mascota_id, propietario_id, nombre_archivo, tamano, recibido, ruta,
+                                             creada_en, actualizada_en)
+                SELECT md5('indices' || g), %1$d + 1 + (g %% %3$d), %1$d + 1 + (g %% %2$d), 'foto.jpg', 1000, 0,
+                       md5('indices' || g) || '.part', now(),
+                       now() - CASE WHEN g %% 1000 = 0 THEN INTERVAL '3 days' ELSE (g %% 600) * INTERVAL '1 second' END
+                FROM generate_series(1, 20000) AS g
+                """.formatted(BASE, PERSONAS, MASCOTAS));
+
+        jdbcTemplate.execute("ANALYZE person, mascotas, mascota_images, donaciones, solicitudes, sesiones_subida");
+    }
+
+    @Test
+    void lasConsultasUsanLosIndicesDeV7() {
+        long persona = BASE + 42;
+        long mascota = BASE + 4242;
+        List<Executable> comprobaciones = new ArrayList<>();
+
+        comprobaciones.add(comprobar("Resumen de las mascotas de un propietario (keyset)", """
+                SELECT id_mascota, nombre, especie, raza, edad, sexo, ciudad, imagen FROM mascotas
+                WHERE id_mascota > %d AND id_person = %d ORDER BY id_mascota LIMIT 21
+                """.formatted(BASE + 1000, persona), "idx_mascotas_person_id"));
+
+        comprobaciones.add(comprobar("Imágenes de una página de mascotas en orden", """
+                SELECT * FROM mascota_images WHERE mascota_id IN (%s)
+                ORDER BY mascota_id, orden
+                """.formatted(String.join(", ", List.of(10, 20, 30, 40, 50, 60, 70, 80, 90, 100).stream()
+                .map(i -> String.valueOf(BASE + i)).toList())), "idx_mascota_images_mascota_orden"));
+
+        comprobaciones.add(comprobar("Imagen principal de una mascota", """
+                SELECT imagen_path FROM mascota_images WHERE mascota_id = %d
+                ORDER BY orden, id_mascota_image LIMIT 1
+                """.formatted(mascota), "idx_mascota_images_mascota_orden"));
+
+        comprobaciones.add(comprobar("Imágenes con variantes pendientes", """
+                SELECT id_mascota_image FROM mascota_images
+                WHERE estado_variantes IS NULL OR estado_variantes = 'PENDIENTE' ORDER BY id_mascota_image LIMIT 100
+                """, "idx_mascota_images_variantes_pendientes"));
+
+        comprobaciones.add(comprobar("Variantes ya generadas para el mismo contenido", """
+                SELECT * FROM mascota_images WHERE hash_contenido = md5('4242') || md5('4243')
+                AND estado_variantes = 'LISTO' LIMIT 1
+                """, "idx_mascota_images_hash_estado"));
+
+        comprobaciones.add(comprobar("Donaciones de una persona por fecha", """
+                SELECT * FROM donaciones WHERE person_id = %d ORDER BY fecha_donacion DESC
+                """.formatted(persona), "idx_donaciones_person_fecha"));
+
+        comprobaciones.add(comprobar("Solicitudes pendientes de una mascota", """
+                SELECT * FROM solicitudes WHERE mascota_id = %d AND estado = 'PENDIENTE'
+                """.formatted(mascota), "idx_solicitudes_mascota_estado"));
+
+        comprobaciones.add(comprobar("Comprobación de la FK al borrar una mascota", """
+                SELECT 1 FROM solicitudes WHERE mascota_id = %d
+                """.formatted(mascota), "idx_solicitudes_mascota_estado"));
+
+        comprobaciones.add(comprobar("Solicitudes de una persona", """
+                SELECT * FROM solicitudes WHERE person_id = %d
+                """.formatted(persona), "idx_solicitudes_person_id"));
+
+        comprobaciones.add(comprobar("Sesiones de subida abandonadas", """
+                SELECT * FROM sesiones_subida WHERE actualizada_en < now() - INTERVAL '1 day'
+                """, "idx_sesiones_subida_actualizada_en"));
+
+        assertAll(comprobaciones);
+    }
+
+    /**
+     * Falla si el plan de la consulta no menciona el índice esperado (se incluye el plan en el mensaje)
+     */
+    private Executable comprobar(String descripcion, String consulta, String indice) {
+        String plan = jdbcTemplate.queryForObject("EXPLAIN (FORMAT JSON) " + consulta, String.class);
+        return () -> assertTrue(plan != null && plan.contains("\"" + indice + "\""),
+                () -> "❌ " + descripcion + " no usa " + indice + ":\n" + plan);
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.AdoptaFacil.Security;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contención del CAS de TokenBucket.intentarConsumir
+ *
+ * - compartido*: todos los hilos consumen del mismo bucket (el peor caso: una misma IP o email
+ *   atacado desde muchas conexiones); los CAS fallidos se reintentan
+ * - porHilo: cada hilo tiene su bucket (muchas claves distintas, el caso habitual de LoginThrottleFilter)
+ * - agotado: bucket vacío compartido; el rechazo solo lee el estado y no hace CAS
+ *
+ * Los buckets con tokens se recargan tan rápido que nunca se vacían: se mide siempre el camino que consume.
+ *
+ * Ejecución (cualquier opción de JMH va detrás del nombre, p. ej. -t 16):
+ *   mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *       -Dexec.args="-cp %classpath org.openjdk.jmh.Main TokenBucketBenchmark"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenBucketBenchmark {
+
+    private static final double CAPACIDAD_INAGOTABLE = 1e12;
+    private static final double RECARGA_INAGOTABLE = 1e3;
+
+    /**
+     * Bucket compartido por todos los hilos
+     */
+    @State(Scope.Benchmark)
+    public static class Compartido {
+        TokenBucket bucket;
+
+        @Setup(Level.Iteration)
+        public void preparar() {
+            bucket = new TokenBucket(CAPACIDAD_INAGOTABLE, RECARGA_INAGOTABLE, System.nanoTime());
+        }
+    }
+
+    /**
+     * Un bucket por hilo
+     */
+    @State(Scope.Thread)
+    public static class PorHilo {
+        TokenBucket bucket;
+
+        @Setup(Level.Iteration)
+        public void preparar() {
+            bucket = new TokenBucket(CAPACIDAD_INAGOTABLE, RECARGA_INAGOTABLE, System.nanoTime());
+        }
+    }
+
+    /**
+     * Bucket compartido sin tokens y sin recarga apreciable
+     */
+    @State(Scope.Benchmark)
+    public static class Agotado {
+        TokenBucket bucket;
+
+        @Setup(Level.Iteration)
+        public void preparar() {
+            bucket = new TokenBucket(1, 1e-18, System.nanoTime());
+            bucket.intentarConsumir(System.nanoTime());
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean compartidoUnHilo(Compartido compartido) {
+        return compartido.bucket.intentarConsumir(System.nanoTime());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean compartidoConcurrente(Compartido compartido) {
+        return compartido.bucket.intentarConsumir(System.nanoTime());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean porHiloConcurrente(PorHilo porHilo) {
+        return porHilo.bucket.intentarConsumir(System.nanoTime());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean agotadoConcurrente(Agotado agotado) {
+        return agotado.bucket.intentarConsumir(System.nanoTime());
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.AdoptaFacil.Util;
+
+import com.example.AdoptaFacil.Cache.CacheAcotada;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Microbenchmark de JwtUtil.verificarToken: verificación completa de la firma vs caché de tokens verificados
+ *
+ * - sinCache: cada llamada calcula el HMAC-SHA256 y parsea el JSON (caché deshabilitada)
+ * - conCache: tras el primer uso, cada token se sirve desde CacheAcotada (solo se calcula el SHA-256 de la clave)
+ * - tokenInvalido: firma alterada; nunca entra en la caché, así que siempre se verifica
+ * - Las variantes *Concurrente repiten la medida con 8 hilos sobre la misma caché
+ *
+ * Los tokens rotan entre 'tokens' usuarios distintos, como peticiones de varias sesiones.
+ *
+ * Ejecución (cualquier opción de JMH va detrás del nombre, p. ej. -f 1 -wi 1 -i 3):
+ *   mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *       -Dexec.args="-cp %classpath org.openjdk.jmh.Main JwtUtilBenchmark"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtUtilBenchmark {
+
+    private static final String SECRETO = "mySecretKey123456789012345678901234567890";
+
+    @Param({"1000"})
+    private int tokens;
+
+    private JwtUtil conCache;
+    private JwtUtil sinCache;
+    private String[] validos;
+    private String invalido;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        conCache = nuevoJwtUtil(true);
+        sinCache = nuevoJwtUtil(false);
+
+        validos = new String[tokens];
+        for (int i = 0; i < tokens; i++) {
+            validos[i] = conCache.generateToken("usuario" + i + "@ejemplo.com", "ADOPTANTE");
+        }
+        // Cambiar un carácter del centro de la firma la invalida sin romper el formato
+        String token = validos[0];
+        int posicion = token.lastIndexOf('.') + 10;
+        invalido = token.substring(0, posicion) + (token.charAt(posicion) == 'A' ? 'B' : 'A') + token.substring(posicion + 1);
+
+        // Llena la caché para que conCache mida solo aciertos
+        for (String valido : validos) {
+            conCache.verificarToken(valido);
+        }
+    }
+
+    /**
+     * Índice propio de cada hilo para recorrer los tokens
+     */
+    @State(Scope.Thread)
+    public static class Turno {
+        private int siguiente;
+
+        int avanzar(int limite) {
+            int actual = siguiente;
+            siguiente = actual + 1 == limite ? 0 : actual + 1;
+            return actual;
+        }
+    }
+
+    @Benchmark
+    public Optional<JwtClaims> sinCache(Turno turno) {
+        return sinCache.verificarToken(validos[turno.avanzar(tokens)]);
+    }
+
+    @Benchmark
+    public Optional<JwtClaims> conCache(Turno turno) {
+        return conCache.verificarToken(validos[turno.avanzar(tokens)]);
+    }
+
+    @Benchmark
+    public Optional<JwtClaims> tokenInvalido() {
+        return conCache.verificarToken(invalido);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Optional<JwtClaims> sinCacheConcurrente(Turno turno) {
+        return sinCache.verificarToken(validos[turno.avanzar(tokens)]);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Optional<JwtClaims> conCacheConcurrente(Turno turno) {
+        return conCache.verificarToken(validos[turno.avanzar(tokens)]);
+    }
+
+    /**
+     * JwtUtil configurado como en la aplicación, sin levantar el contexto de Spring
+     */
+    private static JwtUtil nuevoJwtUtil(boolean cacheHabilitada) {
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", SECRETO);
+        ReflectionTestUtils.setField(jwtUtil, "expiration", 86_400_000L);
+        ReflectionTestUtils.setField(jwtUtil, "cacheTokens",
+                new CacheAcotada<String, JwtClaims>("tokens", 10_000, 300, cacheHabilitada));
+        jwtUtil.init();
+        return jwtUtil;
+    }
+}
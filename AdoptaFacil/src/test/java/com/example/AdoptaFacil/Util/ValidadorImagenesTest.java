@@ -0,0 +1,101 @@
+package com.example.AdoptaFacil.Util;
+
+import com.example.AdoptaFacil.Util.ValidadorImagenes.Formato;
+import com.example.AdoptaFacil.Util.ValidadorImagenes.ImagenValidada;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.EnumSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Formato y dimensiones leídos de la cabecera, sin decodificar la imagen
+ */
+class ValidadorImagenesTest {
+
+    private static final long MAX_PIXELES = 40_000_000L;
+
+    private final ValidadorImagenes validador = nuevoValidador(MAX_PIXELES);
+
+    @Test
+    void leeLasDimensionesDePngJpegYGif() throws IOException {
+        assertEquals(new ImagenValidada(Formato.PNG, 40, 30), validador.validar(archivo(codificar("png", 40, 30))));
+        assertEquals(new ImagenValidada(Formato.JPEG, 40, 30), validador.validar(archivo(codificar("jpg", 40, 30))));
+        assertEquals(new ImagenValidada(Formato.GIF, 40, 30), validador.validar(archivo(codificar("gif", 40, 30))));
+    }
+
+    @Test
+    void rechazaLasImagenesQueSuperanElMaximoDePixeles() throws IOException {
+        ValidadorImagenes estricto = nuevoValidador(40 * 30 - 1);
+
+        for (String formato : new String[]{"png", "jpg", "gif"}) {
+            byte[] imagen = codificar(formato, 40, 30);
+            assertThrows(IllegalArgumentException.class, () -> estricto.validar(archivo(imagen)), formato);
+        }
+    }
+
+    @Test
+    void enGifCuentaElPrimerFotogramaSiEsMayorQueElLienzo() {
+        // Lienzo de 1x1 con un fotograma de 30x20, tras una extensión de control gráfico
+        assertEquals(new ImagenValidada(Formato.GIF, 30, 20), validador.validar(archivo(gif(1, 1, 30, 20))));
+
+        // Lienzo de 1x1 con un fotograma de 60000x60000
+        assertThrows(IllegalArgumentException.class, () -> validador.validar(archivo(gif(1, 1, 60000, 60000))));
+    }
+
+    @Test
+    void rechazaUnJpegTruncadoAntesDelSof() throws IOException {
+        byte[] jpeg = codificar("jpg", 40, 30);
+        byte[] truncado = Arrays.copyOf(jpeg, 30);
+
+        assertThrows(IllegalArgumentException.class, () -> validador.validar(archivo(truncado)));
+    }
+
+    private static ValidadorImagenes nuevoValidador(long maxPixeles) {
+        return new ValidadorImagenes(10 * 1024 * 1024, maxPixeles, EnumSet.of(Formato.JPEG, Formato.PNG, Formato.GIF));
+    }
+
+    private static MockMultipartFile archivo(byte[] contenido) {
+        return new MockMultipartFile("imagen", "foto", "application/octet-stream", contenido);
+    }
+
+    private static byte[] codificar(String formato, int ancho, int alto) throws IOException {
+        BufferedImage imagen = new BufferedImage(ancho, alto, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(imagen, formato, bytes);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * GIF mínimo escrito a mano: paleta global de 2 colores, extensión de control gráfico y un
+     * fotograma con las dimensiones indicadas (sin datos de imagen reales)
+     */
+    private static byte[] gif(int anchoLienzo, int altoLienzo, int anchoFotograma, int altoFotograma) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.writeBytes("GIF89a".getBytes());
+        escribirU16(bytes, anchoLienzo);
+        escribirU16(bytes, altoLienzo);
+        bytes.writeBytes(new byte[]{(byte) 0x80, 0, 0});           // paleta global de 2 colores
+        bytes.writeBytes(new byte[]{0, 0, 0, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF});
+        bytes.writeBytes(new byte[]{0x21, (byte) 0xF9, 4, 0, 0, 0, 0, 0}); // control gráfico
+        bytes.write(0x2C);
+        escribirU16(bytes, 0);
+        escribirU16(bytes, 0);
+        escribirU16(bytes, anchoFotograma);
+        escribirU16(bytes, altoFotograma);
+        bytes.writeBytes(new byte[]{0, 2, 0, 0x3B});
+        return bytes.toByteArray();
+    }
+
+    private static void escribirU16(ByteArrayOutputStream bytes, int valor) {
+        bytes.write(valor & 0xFF);
+        bytes.write((valor >>> 8) & 0xFF);
+    }
+}
@@ -0,0 +1,67 @@
+#!/usr/bin/env bash
+# Benchmark de la importación masiva de mascotas: POST /api/admin/importar/mascotas con 100k filas
+#
+# Uso (con el backend levantado y un token de ADMIN):
+#   TOKEN=eyJ... ALIADO_ID=1 BASE_URL=http://localhost:8080 ./benchmarks/importar_mascotas.sh
+#
+# Genera un CSV con cabecera (formato de la exportación) y FILAS filas, con un 1% de filas
+# inválidas para comprobar el informe de errores, y lo envía REPETICIONES veces. Para comparar
+# tamaños de lote, repetir con el backend arrancado con otro mascotas.importacion.lote.
+# Como referencia, compara con N_INDIVIDUALES altas por POST /api/mascotas (una petición por mascota).
+# Las filas importadas quedan en la BD: conviene usar una base de datos de pruebas.
+
+set -euo pipefail
+
+BASE_URL="${BASE_URL:-http://localhost:8080}"
+FILAS="${FILAS:-100000}"
+ALIADO_ID="${ALIADO_ID:-1}"
+REPETICIONES="${REPETICIONES:-3}"
+N_INDIVIDUALES="${N_INDIVIDUALES:-500}"
+CSV="${CSV:-/tmp/mascotas_${FILAS}.csv}"
+
+[ -n "${TOKEN:-}" ] || { echo "❌ Falta TOKEN (JWT de un usuario ADMIN)"; exit 1; }
+command -v curl >/dev/null || { echo "❌ Falta 'curl' en el PATH"; exit 1; }
+
+if [ ! -f "$CSV" ]; then
+  echo "=== Generando $FILAS filas en $CSV ==="
+  awk -v filas="$FILAS" -v aliado="$ALIADO_ID" 'BEGIN {
+    srand(42)
+    split("Perro,Gato,Conejo", especies, ",")
+    split("Labrador Retriever,Criollo,Siamés,Persa,Beagle,Angora", razas, ",")
+    split("Bogotá,Medellín,Cali,Barranquilla,Cartagena", ciudades, ",")
+    print "nombre,especie,raza,edad,fechaNacimiento,sexo,ciudad,descripcion,imagen,idPropietario"
+    for (i = 1; i <= filas; i++) {
+      edad = int(rand() * 15)
+      # 1% de filas inválidas: edad no numérica
+      if (i % 100 == 0) edad = "x"
+      printf "Mascota %d,%s,%s,%s,%d-%02d-%02d,%s,%s,\"Muy juguetona, \"\"sociable\"\" y vacunada\",,%s\n",
+        i, especies[1 + i % 3], razas[1 + i % 6], edad, 2010 + i % 15, 1 + i % 12, 1 + i % 28,
+        (i % 2 ? "Macho" : "Hembra"), ciudades[1 + i % 5], aliado
+    }
+  }' > "$CSV"
+fi
+ls -lh "$CSV" | awk '{print "Tamaño del CSV: " $5}'
+
+for r in $(seq 1 "$REPETICIONES"); do
+  echo "=== Importación $r/$REPETICIONES ==="
+  curl -s -o /tmp/importacion_resultado.json -w "HTTP %{http_code}  %{time_total}s  subida %{speed_upload} B/s\n" \
+    -H "Authorization: Bearer $TOKEN" -H "Content-Type: text/csv" \
+    --data-binary @"$CSV" "$BASE_URL/api/admin/importar/mascotas"
+  grep -oE '"(filasLeidas|insertadas|rechazadas|lotes|duracionMs)":[0-9]+' /tmp/importacion_resultado.json | tr '\n' ' '
+  echo
+done
+
+[ "$N_INDIVIDUALES" -gt 0 ] || exit 0
+
+echo "=== Referencia: $N_INDIVIDUALES altas con POST /api/mascotas ==="
+inicio=$(date +%s.%N)
+for i in $(seq 1 "$N_INDIVIDUALES"); do
+  curl -s -o /dev/null -H "Authorization: Bearer $TOKEN" \
+    -F "nombre=Individual $i" -F "especie=Perro" -F "raza=Criollo" -F "edad=3" -F "fechaNacimiento=2021-05-12" -F "sexo=Macho" -F "ciudad=Bogotá" \
+    "$BASE_URL/api/mascotas"
+done
+fin=$(date +%s.%N)
+awk -v i="$inicio" -v f="$fin" -v n="$N_INDIVIDUALES" -v filas="$FILAS" 'BEGIN {
+  s = f - i
+  printf "%d altas en %.2fs (%.1f filas/s); extrapolado a %d filas: %.0fs\n", n, s, n / s, filas, s / n * filas
+}'
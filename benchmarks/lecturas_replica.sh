@@ -0,0 +1,87 @@
+#!/usr/bin/env bash
+# Prueba del enrutamiento de lecturas a la réplica con dos bases de datos locales
+#
+# 1) Crear la "réplica" como copia de la base de datos principal (no se replica: sirve para ver a dónde va cada lectura)
+#      PREPARAR=1 DB=adoptafacil DB_REPLICA=adoptafacil_replica ./benchmarks/lecturas_replica.sh
+# 2) Arrancar el backend apuntando a la copia:
+#      (cd AdoptaFacil && ./mvnw spring-boot:run -Dspring-boot.run.arguments=--datasource.replica.url=jdbc:postgresql://localhost:5432/adoptafacil_replica)
+# 3) Con un token de ADMIN, lanzar las comprobaciones:
+#      TOKEN=eyJ... DONANTE_ID=1 ./benchmarks/lecturas_replica.sh
+#
+# Comprueba con GET /api/admin/metricas/datasource que:
+# - las lecturas del catálogo (transacciones readOnly) van a la réplica
+# - tras una escritura del mismo usuario, sus lecturas van a la primaria durante la ventana de lectura propia
+# - pasada la ventana, vuelven a la réplica
+# La escritura es una donación de prueba (POST /api/donaciones): conviene usar una base de datos de pruebas.
+
+set -euo pipefail
+
+BASE_URL="${BASE_URL:-http://localhost:8080}"
+DB="${DB:-adoptafacil}"
+DB_REPLICA="${DB_REPLICA:-adoptafacil_replica}"
+LECTURAS="${LECTURAS:-200}"
+VENTANA_MS="${VENTANA_MS:-5000}"
+DONANTE_ID="${DONANTE_ID:-1}"
+
+if [ -n "${PREPARAR:-}" ]; then
+  command -v pg_dump >/dev/null || { echo "❌ Falta 'pg_dump' en el PATH"; exit 1; }
+  echo "=== Copiando $DB en $DB_REPLICA ==="
+  dropdb --if-exists "$DB_REPLICA"
+  createdb "$DB_REPLICA"
+  pg_dump --no-owner "$DB" | psql -q -v ON_ERROR_STOP=1 -d "$DB_REPLICA" >/dev/null
+  echo "✅ Réplica creada. Arranca el backend con --datasource.replica.url=jdbc:postgresql://localhost:5432/$DB_REPLICA"
+  exit 0
+fi
+
+[ -n "${TOKEN:-}" ] || { echo "❌ Falta TOKEN (JWT de un usuario ADMIN)"; exit 1; }
+command -v curl >/dev/null || { echo "❌ Falta 'curl' en el PATH"; exit 1; }
+command -v jq >/dev/null || { echo "❌ Falta 'jq' en el PATH"; exit 1; }
+
+AUTH="Authorization: Bearer $TOKEN"
+
+metrica() {
+  curl -sf -H "$AUTH" "$BASE_URL/api/admin/metricas/datasource" | jq -r ".$1"
+}
+
+leer() {
+  for _ in $(seq 1 "$1"); do
+    curl -sf -o /dev/null -H "$AUTH" "$BASE_URL/api/mascotas/resumen?tamano=20"
+  done
+}
+
+# Compara el contador antes y después de una tanda de lecturas
+comprobar() {
+  local descripcion="$1" contador="$2" lecturas="$3"
+  local antes despues
+  antes=$(metrica "$contador")
+  leer "$lecturas"
+  despues=$(metrica "$contador")
+  if [ $((despues - antes)) -ge "$lecturas" ]; then
+    echo "✅ $descripcion: $contador +$((despues - antes))"
+  else
+    echo "❌ $descripcion: $contador solo +$((despues - antes)) de $lecturas"
+    exit 1
+  fi
+}
+
+echo "=== Pools antes de la prueba ==="
+metrica pools
+
+sleep $(( (VENTANA_MS + 999) / 1000 ))
+echo "=== $LECTURAS lecturas del catálogo ==="
+inicio=$(date +%s%N)
+comprobar "Lecturas sin escrituras previas" lecturasReplica "$LECTURAS"
+echo "⏱️  $(( ($(date +%s%N) - inicio) / 1000000 )) ms"
+
+echo "=== Escritura y lectura inmediata del mismo usuario ==="
+curl -sf -o /dev/null -H "$AUTH" -H "Content-Type: application/json" \
+  -d "{\"donanteId\": $DONANTE_ID, \"monto\": 1000, \"metodoPago\": \"PRUEBA\", \"comentario\": \"lecturas_replica.sh\"}" \
+  "$BASE_URL/api/donaciones"
+comprobar "Lecturas dentro de la ventana de lectura propia" lecturasPrimariaPorVentana 5
+
+echo "=== Lecturas pasada la ventana (${VENTANA_MS} ms) ==="
+sleep $(( (VENTANA_MS + 999) / 1000 ))
+comprobar "Lecturas tras la ventana" lecturasReplica 5
+
+echo "=== Métricas finales ==="
+curl -sf -H "$AUTH" "$BASE_URL/api/admin/metricas/datasource" | jq .
@@ -0,0 +1,75 @@
+-- Benchmark de la búsqueda de mascotas: LIKE '%x%' (actual) vs columna normalizada con GIN
+--
+-- Uso (en una base de datos de pruebas, NO en producción):
+--   psql -d adoptafacil_bench -f database/benchmarks/busqueda_mascotas.sql
+--
+-- Crea el esquema 'bench' con 500.000 mascotas sintéticas, construye los mismos
+-- índices que la migración V3__busqueda_mascotas.sql y compara los planes y tiempos con EXPLAIN ANALYZE.
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+DROP SCHEMA IF EXISTS bench CASCADE;
+CREATE SCHEMA bench;
+
+CREATE TABLE bench.mascotas (
+    id_mascota  BIGSERIAL PRIMARY KEY,
+    nombre      VARCHAR(100) NOT NULL,
+    especie     VARCHAR(50)  NOT NULL,
+    raza        VARCHAR(50)  NOT NULL,
+    edad        INTEGER      NOT NULL,
+    sexo        VARCHAR(255),
+    ciudad      VARCHAR(255),
+    descripcion TEXT,
+    busqueda    TEXT
+);
+
+INSERT INTO bench.mascotas (nombre, especie, raza, edad, sexo, ciudad, descripcion)
+SELECT (ARRAY['Rocky','Luna','Max','Misha','Buddy','Penélope','Charlie','Simba','Toby','Lola'])[1 + (g % 10)] || ' ' || g,
+       (ARRAY['Perro','Gato'])[1 + (g % 2)],
+       (ARRAY['Labrador Retriever','Persa','Pastor Alemán','Siamés','Golden Retriever','Beagle','Maine Coon','Criollo'])[1 + (g % 8)],
+       g % 15,
+       (ARRAY['Macho','Hembra'])[1 + (g % 2)],
+       (ARRAY['Bogotá','Medellín','Cali','Barranquilla','Cartagena','Bucaramanga','Pereira','Cúcuta'])[1 + (g % 8)],
+       (ARRAY['Perro muy juguetón','Gato tranquilo y cariñoso','Perro guardián leal','Gato curioso y juguetón','Muy enérgico, ideal para familias'])[1 + (g % 5)]
+FROM generate_series(1, 500000) AS g;
+
+-- Misma normalización que TextoUtil.textoBusqueda (minúsculas y sin tildes)
+UPDATE bench.mascotas
+SET busqueda = translate(lower(nombre || ' ' || raza || ' ' || ciudad || ' ' || coalesce(descripcion, '')),
+                         'áéíóúüñ', 'aeiouun');
+
+CREATE INDEX idx_bench_busqueda_trgm ON bench.mascotas USING gin (busqueda gin_trgm_ops);
+CREATE INDEX idx_bench_busqueda_tsv ON bench.mascotas USING gin (to_tsvector('simple', COALESCE(busqueda, '')));
+ANALYZE bench.mascotas;
+
+\timing on
+
+-- 1) Ruta actual: LOWER(nombre) LIKE '%x%' (Seq Scan sobre toda la tabla)
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM bench.mascotas m
+WHERE LOWER(m.nombre) LIKE LOWER(CONCAT('%', 'penelope 4242', '%'));
+
+-- 2) Ruta nueva: columna normalizada, índices GIN y ranking (encuentra "Penélope" sin tilde)
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT m.* FROM bench.mascotas m
+WHERE m.busqueda LIKE CONCAT('%', 'penelope 4242', '%')
+   OR to_tsvector('simple', COALESCE(m.busqueda, '')) @@ plainto_tsquery('simple', 'penelope 4242')
+ORDER BY ts_rank(to_tsvector('simple', COALESCE(m.busqueda, '')), plainto_tsquery('simple', 'penelope 4242')) DESC,
+         similarity(m.busqueda, 'penelope 4242') DESC,
+         m.id_mascota
+LIMIT 50;
+
+-- 3) Búsqueda por ciudad sin tilde ("bogota" encuentra "Bogotá")
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT m.* FROM bench.mascotas m
+WHERE m.busqueda LIKE CONCAT('%', 'bogota persa', '%')
+   OR to_tsvector('simple', COALESCE(m.busqueda, '')) @@ plainto_tsquery('simple', 'bogota persa')
+ORDER BY ts_rank(to_tsvector('simple', COALESCE(m.busqueda, '')), plainto_tsquery('simple', 'bogota persa')) DESC,
+         similarity(m.busqueda, 'bogota persa') DESC,
+         m.id_mascota
+LIMIT 50;
+
+\timing off
+
+-- Limpieza
+-- DROP SCHEMA bench CASCADE;
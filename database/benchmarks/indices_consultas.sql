@@ -0,0 +1,189 @@
+-- Comprobación con EXPLAIN de los índices de V7__indices_claves_foraneas.sql
+--
+-- Uso (en una base de datos de pruebas, NO en producción):
+--   psql -d adoptafacil_bench -f database/benchmarks/indices_consultas.sql
+--
+-- Crea el esquema 'bench_indices' con datos sintéticos (200.000 mascotas, 400.000 imágenes,
+-- 500.000 donaciones y 300.000 solicitudes), construye los mismos índices que la migración y,
+-- para cada consulta real de la aplicación, comprueba con EXPLAIN (FORMAT JSON) que el plan usa
+-- el índice esperado. Si alguna no lo usa, el script se detiene con error (ON_ERROR_STOP).
+-- Al final muestra EXPLAIN ANALYZE de cada consulta para comparar tiempos.
+
+\set ON_ERROR_STOP on
+
+DROP SCHEMA IF EXISTS bench_indices CASCADE;
+CREATE SCHEMA bench_indices;
+SET search_path TO bench_indices;
+
+CREATE TABLE person (
+    id_person BIGINT PRIMARY KEY,
+    email     VARCHAR(255) NOT NULL UNIQUE
+);
+
+CREATE TABLE mascotas (
+    id_mascota BIGINT PRIMARY KEY,
+    nombre     VARCHAR(100) NOT NULL,
+    especie    VARCHAR(50)  NOT NULL,
+    raza       VARCHAR(50)  NOT NULL,
+    edad       INTEGER      NOT NULL,
+    sexo       VARCHAR(255),
+    ciudad     VARCHAR(255),
+    imagen     VARCHAR(255),
+    id_person  BIGINT       NOT NULL REFERENCES person (id_person)
+);
+
+CREATE TABLE mascota_images (
+    id_mascota_image BIGINT PRIMARY KEY,
+    imagen_path      VARCHAR(255) NOT NULL,
+    orden            INTEGER,
+    hash_contenido   VARCHAR(64),
+    estado_variantes VARCHAR(20),
+    mascota_id       BIGINT       NOT NULL REFERENCES mascotas (id_mascota)
+);
+
+CREATE TABLE donaciones (
+    id             BIGINT PRIMARY KEY,
+    fecha_donacion TIMESTAMP(6)     NOT NULL,
+    monto          DOUBLE PRECISION NOT NULL,
+    person_id      BIGINT           NOT NULL REFERENCES person (id_person)
+);
+
+CREATE TABLE solicitudes (
+    id         BIGINT PRIMARY KEY,
+    estado     VARCHAR(255) NOT NULL,
+    mascota_id BIGINT       NOT NULL REFERENCES mascotas (id_mascota),
+    person_id  BIGINT       NOT NULL REFERENCES person (id_person)
+);
+
+CREATE TABLE sesiones_subida (
+    id             VARCHAR(36)  PRIMARY KEY,
+    mascota_id     BIGINT       NOT NULL,
+    actualizada_en TIMESTAMP(6) NOT NULL
+);
+
+INSERT INTO person (id_person, email)
+SELECT g, 'persona' || g || '@example.com' FROM generate_series(1, 10000) AS g;
+
+INSERT INTO mascotas (id_mascota, nombre, especie, raza, edad, sexo, ciudad, id_person)
+SELECT g, 'Mascota ' || g, (ARRAY['Perro','Gato'])[1 + (g % 2)], 'Criollo', g % 15,
+       (ARRAY['Macho','Hembra'])[1 + (g % 2)], 'Bogotá', 1 + (g % 10000)
+FROM generate_series(1, 200000) AS g;
+
+-- Dos imágenes por mascota; casi todas con variantes listas
+INSERT INTO mascota_images (id_mascota_image, imagen_path, orden, hash_contenido, estado_variantes, mascota_id)
+SELECT g, md5(g::text) || '.jpg', 1 + (g % 2), md5(g::text) || md5((g + 1)::text),
+       CASE WHEN g % 5000 = 0 THEN 'PENDIENTE' ELSE 'LISTO' END, 1 + (g - 1) / 2
+FROM generate_series(1, 400000) AS g;
+
+INSERT INTO donaciones (id, fecha_donacion, monto, person_id)
+SELECT g, TIMESTAMP '2024-01-01' + (g % 600) * INTERVAL '1 day', 10000 + g % 90000, 1 + (g % 10000)
+FROM generate_series(1, 500000) AS g;
+
+INSERT INTO solicitudes (id, estado, mascota_id, person_id)
+SELECT g, (ARRAY['PENDIENTE','APROBADA','RECHAZADA'])[1 + (g % 3)], 1 + (g % 200000), 1 + (g % 10000)
+FROM generate_series(1, 300000) AS g;
+
+-- Casi todas las sesiones son recientes: solo unas pocas están abandonadas
+INSERT INTO sesiones_subida (id, mascota_id, actualizada_en)
+SELECT md5(g::text), 1 + (g % 200000),
+       now() - CASE WHEN g % 1000 = 0 THEN INTERVAL '3 days' ELSE (g % 600) * INTERVAL '1 second' END
+FROM generate_series(1, 100000) AS g;
+
+-- Mismos índices que V7__indices_claves_foraneas.sql (sin CONCURRENTLY: tablas nuevas)
+CREATE INDEX idx_mascotas_person_id ON mascotas (id_person, id_mascota);
+CREATE INDEX idx_mascota_images_mascota_orden ON mascota_images (mascota_id, orden, id_mascota_image);
+CREATE INDEX idx_mascota_images_variantes_pendientes ON mascota_images (id_mascota_image)
+    WHERE estado_variantes IS NULL OR estado_variantes = 'PENDIENTE';
+CREATE INDEX idx_mascota_images_hash_estado ON mascota_images (hash_contenido, estado_variantes)
+    WHERE hash_contenido IS NOT NULL;
+CREATE INDEX idx_donaciones_person_fecha ON donaciones (person_id, fecha_donacion);
+CREATE INDEX idx_solicitudes_mascota_estado ON solicitudes (mascota_id, estado);
+CREATE INDEX idx_solicitudes_person_id ON solicitudes (person_id);
+CREATE INDEX idx_sesiones_subida_actualizada_en ON sesiones_subida (actualizada_en);
+
+ANALYZE;
+
+-- Falla si el plan de la consulta no menciona el índice esperado
+CREATE FUNCTION comprobar(descripcion TEXT, consulta TEXT, indice TEXT) RETURNS VOID AS $$
+DECLARE
+    plan JSON;
+BEGIN
+    EXECUTE 'EXPLAIN (FORMAT JSON) ' || consulta INTO plan;
+    IF position(indice IN plan::TEXT) = 0 THEN
+        RAISE EXCEPTION '❌ % no usa %: %', descripcion, indice, plan;
+    END IF;
+    RAISE NOTICE '✅ % usa %', descripcion, indice;
+END;
+$$ LANGUAGE plpgsql;
+
+SELECT comprobar('Resumen de las mascotas de un propietario (keyset)',
+    'SELECT id_mascota, nombre, especie, raza, edad, sexo, ciudad, imagen FROM mascotas
+     WHERE id_mascota > 1000 AND id_person = 42 ORDER BY id_mascota LIMIT 21',
+    'idx_mascotas_person_id');
+
+SELECT comprobar('Imágenes de una página de mascotas en orden',
+    'SELECT * FROM mascota_images WHERE mascota_id IN (10, 20, 30, 40, 50, 60, 70, 80, 90, 100)
+     ORDER BY mascota_id, orden',
+    'idx_mascota_images_mascota_orden');
+
+SELECT comprobar('Imagen principal de una mascota',
+    'SELECT imagen_path FROM mascota_images WHERE mascota_id = 4242
+     ORDER BY orden, id_mascota_image LIMIT 1',
+    'idx_mascota_images_mascota_orden');
+
+SELECT comprobar('Imágenes con variantes pendientes',
+    'SELECT id_mascota_image FROM mascota_images
+     WHERE estado_variantes IS NULL OR estado_variantes = ''PENDIENTE'' ORDER BY id_mascota_image LIMIT 100',
+    'idx_mascota_images_variantes_pendientes');
+
+SELECT comprobar('Variantes ya generadas para el mismo contenido',
+    'SELECT * FROM mascota_images WHERE hash_contenido = md5(''4242'') || md5(''4243'')
+     AND estado_variantes = ''LISTO'' LIMIT 1',
+    'idx_mascota_images_hash_estado');
+
+SELECT comprobar('Donaciones de una persona por fecha',
+    'SELECT * FROM donaciones WHERE person_id = 42 ORDER BY fecha_donacion DESC',
+    'idx_donaciones_person_fecha');
+
+SELECT comprobar('Solicitudes pendientes de una mascota',
+    'SELECT * FROM solicitudes WHERE mascota_id = 4242 AND estado = ''PENDIENTE''',
+    'idx_solicitudes_mascota_estado');
+
+SELECT comprobar('Comprobación de la FK al borrar una mascota',
+    'SELECT 1 FROM solicitudes WHERE mascota_id = 4242',
+    'idx_solicitudes_mascota_estado');
+
+SELECT comprobar('Solicitudes de una persona',
+    'SELECT * FROM solicitudes WHERE person_id = 42',
+    'idx_solicitudes_person_id');
+
+SELECT comprobar('Sesiones de subida abandonadas',
+    'SELECT * FROM sesiones_subida WHERE actualizada_en < now() - INTERVAL ''1 day''',
+    'idx_sesiones_subida_actualizada_en');
+
+\timing on
+
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT id_mascota, nombre, especie, raza, edad, sexo, ciudad, imagen FROM mascotas
+WHERE id_mascota > 1000 AND id_person = 42 ORDER BY id_mascota LIMIT 21;
+
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM mascota_images WHERE mascota_id IN (10, 20, 30, 40, 50, 60, 70, 80, 90, 100)
+ORDER BY mascota_id, orden;
+
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT id_mascota_image FROM mascota_images
+WHERE estado_variantes IS NULL OR estado_variantes = 'PENDIENTE' ORDER BY id_mascota_image LIMIT 100;
+
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM donaciones WHERE person_id = 42 ORDER BY fecha_donacion DESC;
+
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM solicitudes WHERE mascota_id = 4242 AND estado = 'PENDIENTE';
+
+\timing off
+
+RESET search_path;
+
+-- Limpieza
+-- DROP SCHEMA bench_indices CASCADE;